@@ -0,0 +1,84 @@
+package com.csvxml.benchmark;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.config.ExecutorConfig;
+import com.csvxml.converter.CsvRecordConverterImpl;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.processor.StreamingXmlProcessor;
+import com.csvxml.processor.StrictColumnValidator;
+import com.csvxml.processor.TemplateEnricher;
+import com.csvxml.service.CheckpointStore;
+import com.csvxml.service.DateParser;
+import com.csvxml.service.NameProcessor;
+import com.csvxml.service.OutputFileWriter;
+import com.csvxml.service.RowQuarantine;
+import com.csvxml.xml.CompiledXmlTemplateProcessor;
+import com.csvxml.xml.TemplateRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.dataformat.csv.CsvDataFormat;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 不启动Spring容器，按生产配置手工组装各处理器
+ */
+final class BenchmarkSupport {
+    final AppConfig appConfig = new AppConfig();
+    final CamelContext camelContext = new DefaultCamelContext();
+    final ExecutorService renderExecutor;
+    final ExecutorService compressExecutor = ExecutorConfig.newCompressExecutor();
+    final RowQuarantine quarantine = new RowQuarantine(appConfig, new PipelineMetrics(new SimpleMeterRegistry()));
+    final RecordMapping mapping = new RecordMapping(appConfig, new NameProcessor(), new DateParser());
+    final StrictColumnValidator columnValidator = new StrictColumnValidator(quarantine, mapping);
+    final CsvRecordConverterImpl csvRecordConverter = new CsvRecordConverterImpl(quarantine, mapping);
+    final OutputFileWriter outputFileWriter = new OutputFileWriter(appConfig, compressExecutor);
+    final TemplateEnricher templateEnricher;
+    final StreamingXmlProcessor streamingXmlProcessor;
+
+    BenchmarkSupport(int workers) {
+        appConfig.getParallel().setWorkers(workers);
+        renderExecutor = new ExecutorConfig().renderExecutor(appConfig);
+        templateEnricher = new TemplateEnricher(new TemplateRegistry(new CompiledXmlTemplateProcessor(), mapping, appConfig),
+            mapping, appConfig, renderExecutor, outputFileWriter);
+        streamingXmlProcessor = new StreamingXmlProcessor(appConfig, templateEnricher, renderExecutor,
+            outputFileWriter, quarantine, new CheckpointStore(appConfig), mapping);
+    }
+
+    Exchange exchange(Object body) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setHeader(Exchange.FILE_NAME, "profiles.csv");
+        exchange.getIn().setBody(body);
+        return exchange;
+    }
+
+    /**
+     * 与路由中 csvFormat 相同的CSV数据格式
+     */
+    CsvDataFormat csvFormat() {
+        CsvDataFormat csv = new CsvDataFormat();
+        csv.setDelimiter(',');
+        csv.setSkipHeaderRecord(false);
+        csv.setUseMaps(false);
+        csv.start();
+        return csv;
+    }
+
+    /**
+     * 触发交换完成回调，例如清理流式模式的临时目录
+     */
+    void complete(Exchange exchange) {
+        exchange.adapt(ExtendedExchange.class).handoverCompletions()
+            .forEach(synchronization -> synchronization.onComplete(exchange));
+    }
+
+    void close() {
+        renderExecutor.shutdownNow();
+        compressExecutor.shutdownNow();
+        camelContext.stop();
+    }
+}
@@ -0,0 +1,90 @@
+package com.csvxml.benchmark;
+
+import com.csvxml.model.CsvRecord;
+import com.csvxml.model.NameParts;
+import com.csvxml.service.NameProcessor;
+import com.csvxml.xml.DefaultXmlTemplateProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DOM模板处理基准：逐节点克隆填充占位符，以及整个文档的序列化
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DomTemplateBenchmark {
+    private static final String TEMPLATE_PATH = "/templates/profile.xml";
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private final DefaultXmlTemplateProcessor xmlProcessor = new DefaultXmlTemplateProcessor();
+    private Document template;
+    private List<Map<String, String>> placeholders;
+    private Document document;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        template = xmlProcessor.loadTemplate(TEMPLATE_PATH);
+        NameProcessor nameProcessor = new NameProcessor();
+        placeholders = new ArrayList<>(rows);
+        int lineNumber = 0;
+        for (List<String> row : BenchmarkData.rows(rows)) {
+            CsvRecord record = new CsvRecord(row.get(0), row.get(1), row.get(2), row.get(3), ++lineNumber);
+            NameParts name = nameProcessor.parse(record.getFullName());
+            Map<String, String> values = new HashMap<>();
+            values.put("userId", record.getUserId());
+            values.put("firstName", name.getGiven());
+            values.put("lastName", name.getSurname());
+            values.put("registerDate", record.getRegisterDate());
+            placeholders.add(values);
+        }
+        document = fillDocument();
+    }
+
+    @Benchmark
+    public Document fillPlaceholders() {
+        return fillDocument();
+    }
+
+    @Benchmark
+    public String documentToString() {
+        return xmlProcessor.documentToString(document);
+    }
+
+    private Document fillDocument() {
+        Document doc = xmlProcessor.loadTemplate(TEMPLATE_PATH);
+        Element root = doc.getDocumentElement();
+        while (root.hasChildNodes()) {
+            root.removeChild(root.getFirstChild());
+        }
+        for (Map<String, String> values : placeholders) {
+            Node profile = doc.importNode(xmlProcessor.cloneTemplateNode(template, "Profile"), true);
+            xmlProcessor.fillPlaceholders(profile, values);
+            root.appendChild(profile);
+        }
+        return doc;
+    }
+}
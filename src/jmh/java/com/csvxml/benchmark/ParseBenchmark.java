@@ -0,0 +1,91 @@
+package com.csvxml.benchmark;
+
+import com.csvxml.csv.CsvRow;
+import com.csvxml.csv.CsvRowReader;
+import com.csvxml.csv.MappedCsvDataFormat;
+import com.csvxml.csv.MappedCsvReader;
+import org.apache.camel.Exchange;
+import org.apache.camel.dataformat.csv.CsvDataFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV解析基准：camel-csv 的 unmarshal 与内存映射读取器。
+ * 吞吐量乘以文件大小（setUp 时打印）即为解析带宽。
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private BenchmarkSupport support;
+    private CsvDataFormat csvFormat;
+    private MappedCsvDataFormat mappedFormat;
+    private Path csvFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        support = new BenchmarkSupport(1);
+        csvFile = BenchmarkData.writeCsv(Files.createTempFile("bench-", ".csv"), rows);
+        csvFormat = support.csvFormat();
+        mappedFormat = new MappedCsvDataFormat();
+        System.out.println("CSV文件大小: " + Files.size(csvFile) + " 字节");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        csvFormat.stop();
+        support.close();
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    public Object camelCsv() throws Exception {
+        Exchange exchange = support.exchange(csvFile.toFile());
+        try (InputStream in = Files.newInputStream(csvFile)) {
+            return csvFormat.unmarshal(exchange, in);
+        }
+    }
+
+    @Benchmark
+    public Object mappedCsv() throws Exception {
+        Exchange exchange = support.exchange(csvFile.toFile());
+        return mappedFormat.unmarshal(exchange, null);
+    }
+
+    /**
+     * 只切分不解码字符串，衡量切分本身的带宽
+     */
+    @Benchmark
+    public long mappedTokenizeOnly() throws Exception {
+        long cells = 0;
+        try (CsvRowReader reader = MappedCsvReader.open(csvFile, StandardCharsets.UTF_8, 0)) {
+            for (CsvRow row = reader.next(); row != null; row = reader.next()) {
+                cells += row.size();
+            }
+        }
+        return cells;
+    }
+}
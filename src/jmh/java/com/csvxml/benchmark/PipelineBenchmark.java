@@ -0,0 +1,95 @@
+package com.csvxml.benchmark;
+
+import com.csvxml.csv.MappedCsvDataFormat;
+import com.csvxml.processor.FusedCsvConverter;
+import org.apache.camel.Exchange;
+import org.apache.camel.dataformat.csv.CsvDataFormat;
+import org.apache.camel.spi.DataFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端基准：按路由中的顺序对同一个CSV文件执行全部处理器（不含文件轮询与输出写盘）。
+ * mode 为 list 时依次执行 unmarshal、列数校验与记录转换，fused 时以单遍转换代替这三步。
+ * 更大的文件可通过 -p rows=10000000 指定，内存映射读取器可通过 -p mapped=true 开启。
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"list", "fused", "streaming"})
+    public String mode;
+
+    @Param({"1", "0"})
+    public int workers;
+
+    @Param({"false"})
+    public boolean mapped;
+
+    private BenchmarkSupport support;
+    private CsvDataFormat csvFormat;
+    private DataFormat dataFormat;
+    private FusedCsvConverter fusedConverter;
+    private Path csvFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        support = new BenchmarkSupport(workers);
+        csvFile = BenchmarkData.writeCsv(Files.createTempFile("bench-", ".csv"), rows);
+        csvFormat = support.csvFormat();
+        support.appConfig.getCsv().setMapped(mapped);
+        dataFormat = mapped ? new MappedCsvDataFormat() : csvFormat;
+        fusedConverter = new FusedCsvConverter(support.quarantine, support.mapping, support.appConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        csvFormat.stop();
+        support.close();
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    public Object route() throws Exception {
+        Exchange exchange = support.exchange(csvFile.toFile());
+        if ("streaming".equals(mode)) {
+            support.streamingXmlProcessor.process(exchange);
+            Object body = exchange.getIn().getBody();
+            support.complete(exchange);
+            return body;
+        }
+        if ("fused".equals(mode)) {
+            fusedConverter.process(exchange);
+        } else {
+            try (InputStream in = Files.newInputStream(csvFile)) {
+                exchange.getIn().setBody(dataFormat.unmarshal(exchange, in));
+            }
+            support.columnValidator.process(exchange);
+            support.csvRecordConverter.process(exchange);
+        }
+        support.templateEnricher.process(exchange);
+        return exchange.getIn().getBody(InputStream.class);
+    }
+}
@@ -0,0 +1,70 @@
+package com.csvxml.benchmark;
+
+import com.csvxml.model.RecordBatch;
+import org.apache.camel.Exchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由各阶段处理器的整文件基准：列数校验、记录转换与XML生成
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StageBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private BenchmarkSupport support;
+    private List<List<String>> csvRows;
+    private RecordBatch records;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        support = new BenchmarkSupport(1);
+        csvRows = BenchmarkData.rows(rows);
+        records = support.csvRecordConverter.convertBatch(csvRows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        support.close();
+    }
+
+    @Benchmark
+    public Exchange columnValidator() throws Exception {
+        Exchange exchange = support.exchange(csvRows);
+        support.columnValidator.process(exchange);
+        return exchange;
+    }
+
+    @Benchmark
+    public RecordBatch recordConverter() {
+        return support.csvRecordConverter.convertBatch(csvRows);
+    }
+
+    @Benchmark
+    public InputStream templateEnricher() throws Exception {
+        Exchange exchange = support.exchange(records);
+        support.templateEnricher.process(exchange);
+        return exchange.getIn().getBody(InputStream.class);
+    }
+}
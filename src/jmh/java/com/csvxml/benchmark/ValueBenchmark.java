@@ -0,0 +1,60 @@
+package com.csvxml.benchmark;
+
+import com.csvxml.model.NameParts;
+import com.csvxml.service.DateParser;
+import com.csvxml.service.NameProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个字段的解析基准：姓名拆分与日期解析，输入按生成数据的分布循环取值
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueBenchmark {
+    private static final int SAMPLES = 4096;
+
+    private final NameProcessor nameProcessor = new NameProcessor();
+    private final DateParser dateParser = new DateParser();
+    private String[] names;
+    private String[] dates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<String> nameList = BenchmarkData.fullNames(SAMPLES);
+        List<String> dateList = BenchmarkData.dates(SAMPLES);
+        names = nameList.toArray(new String[0]);
+        dates = dateList.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public NameParts nameParse() {
+        return nameProcessor.parse(names[nextIndex()]);
+    }
+
+    @Benchmark
+    public Instant dateParse() {
+        return dateParser.parse(dates[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (SAMPLES - 1);
+        return next;
+    }
+}
@@ -1,11 +1,16 @@
 package com.csvxml;
 
+import com.csvxml.cli.BatchConverter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @SpringBootApplication
 public class CsvXmlConverterApplication {
     public static void main(String[] args) {
+        if (args.length > 0 && BatchConverter.COMMAND.equals(args[0])) {
+            // 批处理模式：转换单个文件后退出，不启动 Spring 上下文与 Camel 路由
+            System.exit(BatchConverter.run(args));
+        }
         SpringApplication.run(CsvXmlConverterApplication.class, args);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,292 @@
+package com.csvxml.cli;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.config.ExecutorConfig;
+import com.csvxml.converter.CsvRecordConverterImpl;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.csv.CsvReaders;
+import com.csvxml.csv.CsvRow;
+import com.csvxml.csv.CsvRowReader;
+import com.csvxml.metrics.FileSummary;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.model.RecordBatch;
+import com.csvxml.processor.Deduplicator;
+import com.csvxml.processor.FusedCsvConverter;
+import com.csvxml.processor.StrictColumnValidator;
+import com.csvxml.processor.TemplateEnricher;
+import com.csvxml.service.DateParser;
+import com.csvxml.service.DedupIndex;
+import com.csvxml.service.NameProcessor;
+import com.csvxml.service.OutputFileWriter;
+import com.csvxml.service.RejectLog;
+import com.csvxml.service.RowQuarantine;
+import com.csvxml.util.PipelinedGzipOutputStream;
+import com.csvxml.xml.CompiledXmlTemplateProcessor;
+import com.csvxml.xml.ProfileTemplates;
+import com.csvxml.xml.TemplateRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单文件批处理入口：{@code convert <输入.csv> <输出.xml>}。
+ * 不启动 Spring 上下文与 Camel，也不轮询输入目录，直接组装列数校验、记录转换与模板渲染，
+ * 适合转换一个文件后即退出的定时任务。配置从 application.yml 读取，位置与优先级与 Spring Boot 相同，
+ * 也可用系统属性或环境变量覆盖。
+ */
+public final class BatchConverter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(BatchConverter.class);
+    private static final Logger rowLogger = LoggerFactory.getLogger(AppConfig.ROW_LOGGER);
+    public static final String COMMAND = "convert";
+    private static final String USAGE = "用法: " + COMMAND
+        + " <输入.csv> <输出.xml> [--template=<模板名>] [--charset=<字符集>]";
+    // 后者优先，与 Spring Boot 的默认配置位置一致
+    private static final String[] CONFIG_LOCATIONS = {
+        "classpath:application.yml", "file:./application.yml", "file:./config/application.yml"
+    };
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final DateTimeFormatter REJECT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final RowQuarantine quarantine;
+    private final TemplateRegistry templateRegistry;
+    private final StrictColumnValidator columnValidator;
+    private final CsvRecordConverterImpl recordConverter;
+    private final FusedCsvConverter fusedConverter;
+    private final DedupIndex dedupIndex;
+    private final Deduplicator deduplicator;
+    private final TemplateEnricher templateEnricher;
+    private final ExecutorService renderExecutor;
+    private final ExecutorService compressExecutor;
+    private final int compressionLevel;
+    private final boolean mapped;
+    private final boolean fused;
+    private final int rowErrorLimit;
+
+    public BatchConverter(AppConfig appConfig) throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        this.quarantine = new RowQuarantine(appConfig, metrics);
+        RecordMapping mapping = new RecordMapping(appConfig, new NameProcessor(), new DateParser());
+        // 不监视模板目录，只在启动时加载一次
+        this.templateRegistry = new TemplateRegistry(new CompiledXmlTemplateProcessor(), mapping, appConfig);
+        this.columnValidator = new StrictColumnValidator(quarantine, mapping);
+        this.recordConverter = new CsvRecordConverterImpl(quarantine, mapping);
+        this.fusedConverter = new FusedCsvConverter(quarantine, mapping, appConfig);
+        // 配置了索引文件时，多次执行之间同样跨文件去重
+        this.dedupIndex = new DedupIndex(appConfig);
+        this.deduplicator = appConfig.getDedup().isEnabled()
+            ? new Deduplicator(dedupIndex, mapping, metrics, appConfig) : null;
+        this.renderExecutor = ExecutorConfig.newRenderExecutor(appConfig);
+        this.compressExecutor = ExecutorConfig.newCompressExecutor();
+        this.compressionLevel = appConfig.getOutput().getCompressionLevel();
+        this.templateEnricher = new TemplateEnricher(templateRegistry, mapping, appConfig, renderExecutor,
+            new OutputFileWriter(appConfig, compressExecutor));
+        this.mapped = appConfig.getCsv().isMapped();
+        this.fused = appConfig.getCsv().isFused();
+        this.rowErrorLimit = appConfig.getLogging().getRowErrorLimit();
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * 执行批处理命令，返回进程退出码：0 成功，1 转换失败，2 参数错误
+     */
+    public static int run(String... args) {
+        List<String> files = new ArrayList<>();
+        String template = null;
+        Charset charset = Charset.defaultCharset();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i == 0 && COMMAND.equals(arg)) {
+                continue;
+            }
+            if (arg.startsWith("--template=")) {
+                template = arg.substring("--template=".length());
+            } else if (arg.startsWith("--charset=")) {
+                charset = charsetOf(arg.substring("--charset=".length()));
+                if (charset == null) {
+                    System.err.println(USAGE);
+                    return 2;
+                }
+            } else if (arg.startsWith("--")) {
+                System.err.println(USAGE);
+                return 2;
+            } else {
+                files.add(arg);
+            }
+        }
+        if (files.size() != 2) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        StandardEnvironment environment = loadEnvironment();
+        LoggingSystem loggingSystem = configureLogging(environment);
+        AppConfig appConfig = new AppConfig();
+        Binder.get(environment).bind("app", Bindable.ofInstance(appConfig));
+        try (BatchConverter converter = new BatchConverter(appConfig)) {
+            converter.convert(Paths.get(files.get(0)), Paths.get(files.get(1)), template, charset);
+            return 0;
+        } catch (Exception e) {
+            logger.error(AppConfig.LogMessages.ERROR_OCCURRED, files.get(0), e);
+            System.err.println("转换失败: " + e.getMessage());
+            return 1;
+        } finally {
+            // 退出前写出异步日志队列中剩余的日志
+            Runnable shutdownHandler = loggingSystem.getShutdownHandler();
+            if (shutdownHandler != null) {
+                shutdownHandler.run();
+            }
+        }
+    }
+
+    /**
+     * 不支持或不合法的字符集名称返回 null
+     */
+    private static Charset charsetOf(String name) {
+        try {
+            return Charset.isSupported(name) ? Charset.forName(name) : null;
+        } catch (IllegalCharsetNameException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 转换一个文件：先写入输出文件旁的临时文件，成功后原子重命名；template 为 null 时按文件名规则选择模板。
+     * gzip 压缩的输入文件流式解压；输出文件名以 .gz 结尾时压缩输出
+     */
+    public void convert(Path input, Path output, String template, Charset charset) throws Exception {
+        long started = System.nanoTime();
+        String fileName = input.getFileName().toString();
+        logger.info(AppConfig.LogMessages.FILE_PROCESSING_START + " {}", fileName);
+        ProfileTemplates templates = template != null ? templateRegistry.get(template) : templateRegistry.forFile(fileName);
+        RejectLog rejects = quarantine.open(rejectFile(fileName));
+        FileSummary summary = new FileSummary(fileName, rowErrorLimit, rowLogger.isDebugEnabled());
+        Path target = output.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        // 与 OutputFileWriter 相同，临时文件名唯一，同时写同一输出的两个进程不会互相覆盖临时文件
+        Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        int rows;
+        try {
+            RecordBatch batch = fused ? fusedConverter.convert(input, charset, rejects, summary)
+                : readAndConvert(input, charset, rejects, summary);
+            rows = batch.size();
+            Deduplicator.Result duplicates = deduplicator != null ? deduplicator.deduplicate(fileName, batch) : null;
+            try (OutputStream out = open(temp, output)) {
+                templateEnricher.write(templates, batch, out, summary);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (duplicates != null) {
+                deduplicator.commit(duplicates);
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            if (rejects != null) {
+                quarantine.finish(fileName, rejects).forEach(summary::addErrors);
+            }
+        }
+        logger.info(AppConfig.LogMessages.FILE_SUMMARY, fileName, rows, summary.getErrors(), summary.getSuppressedErrors(),
+            summary.getCompanyCount(), summary.getRenderMillis(), summary.slowestCompanies());
+        logger.info("{} {}, 共 {} 行, 用时 {} ms, 自JVM启动 {} ms", AppConfig.LogMessages.PROCESSING_COMPLETED, fileName, rows,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+            System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+
+    private RecordBatch readAndConvert(Path input, Charset charset, RejectLog rejects, FileSummary summary) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (CsvRowReader reader = CsvReaders.open(input, charset, mapped, 0, 1)) {
+            for (CsvRow row = reader.next(); row != null; row = reader.next()) {
+                rows.add(row.toList());
+            }
+        }
+        columnValidator.validate(rows, rejects, summary);
+        return recordConverter.convertBatch(rows, rejects, true);
+    }
+
+    private OutputStream open(Path temp, Path output) throws IOException {
+        OutputStream out = Files.newOutputStream(temp);
+        if (!output.getFileName().toString().endsWith(GZIP_SUFFIX)) {
+            return out;
+        }
+        return new PipelinedGzipOutputStream(out, compressionLevel, 64 * 1024, compressExecutor);
+    }
+
+    private static Path rejectFile(String inputName) {
+        String fileName = inputName.endsWith(GZIP_SUFFIX)
+            ? inputName.substring(0, inputName.length() - GZIP_SUFFIX.length()) : inputName;
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return Paths.get(AppConfig.REJECT_DIR, baseName + "_rejected_" + LocalDateTime.now().format(REJECT_TIMESTAMP) + ".csv");
+    }
+
+    /**
+     * 系统属性与环境变量优先，其次按 {@link #CONFIG_LOCATIONS} 的逆序读取 application.yml
+     */
+    private static StandardEnvironment loadEnvironment() {
+        StandardEnvironment environment = new StandardEnvironment();
+        YamlPropertySourceLoader loader = new YamlPropertySourceLoader();
+        DefaultResourceLoader resources = new DefaultResourceLoader();
+        for (int i = CONFIG_LOCATIONS.length - 1; i >= 0; i--) {
+            Resource resource = resources.getResource(CONFIG_LOCATIONS[i]);
+            if (!resource.exists()) {
+                continue;
+            }
+            try {
+                for (PropertySource<?> source : loader.load(CONFIG_LOCATIONS[i], resource)) {
+                    environment.getPropertySources().addLast(source);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to load " + CONFIG_LOCATIONS[i], e);
+            }
+        }
+        return environment;
+    }
+
+    /**
+     * 与 Spring Boot 启动时一样初始化日志系统并应用 logging.level 配置
+     */
+    private static LoggingSystem configureLogging(StandardEnvironment environment) {
+        LoggingSystem loggingSystem = LoggingSystem.get(BatchConverter.class.getClassLoader());
+        loggingSystem.beforeInitialize();
+        loggingSystem.initialize(new LoggingInitializationContext(environment), null, null);
+        Binder.get(environment).bind("logging.level", Bindable.mapOf(String.class, LogLevel.class))
+            .ifBound(levels -> levels.forEach(loggingSystem::setLogLevel));
+        return loggingSystem;
+    }
+
+    @Override
+    public void close() throws IOException {
+        renderExecutor.shutdownNow();
+        compressExecutor.shutdownNow();
+        dedupIndex.close();
+    }
+}
@@ -0,0 +1,52 @@
+package com.csvxml.cluster;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.xml.TemplateRegistry;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import java.io.File;
+import java.nio.charset.Charset;
+
+/**
+ * 集群模式下输入路由的处理器：把输入文件移入工作队列并切分，转换由各节点的 {@link ClusterWorker} 完成。
+ * 多个节点可能同时发现同一文件，只有移入成功的节点创建任务
+ */
+@Component
+public class ClusterIntake implements Processor {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterIntake.class);
+
+    private final WorkQueue workQueue;
+    private final TemplateRegistry templateRegistry;
+
+    public ClusterIntake(WorkQueue workQueue, TemplateRegistry templateRegistry) {
+        this.workQueue = workQueue;
+        this.templateRegistry = templateRegistry;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        String fileName = exchange.getIn().getHeader("CamelFileName", String.class);
+        File input = exchange.getIn().getBody(File.class);
+        String charset = exchange.getProperty(Exchange.CHARSET_NAME, String.class);
+        // 模板在加入队列时确定，各节点转换分片时使用同一模板
+        String template = templateRegistry.select(exchange).getName();
+
+        WorkQueue.Claim split = workQueue.submit(input.toPath(), fileName,
+            charset != null ? charset : Charset.defaultCharset().name(), template);
+        if (split == null) {
+            logger.info("文件 {} 已由其他节点加入工作队列", fileName);
+            return;
+        }
+        try {
+            int shards = workQueue.plan(split);
+            if (shards >= 0) {
+                logger.info(AppConfig.LogMessages.CLUSTER_JOB_CREATED, fileName, split.getJob().getId(), shards);
+            }
+        } finally {
+            split.close();
+        }
+    }
+}
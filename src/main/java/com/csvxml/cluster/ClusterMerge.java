@@ -0,0 +1,118 @@
+package com.csvxml.cluster;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.processor.StreamingXmlProcessor;
+import com.csvxml.service.RejectLog;
+import com.csvxml.service.RowQuarantine;
+import com.csvxml.util.TransformError;
+import com.csvxml.util.TransformException;
+import com.csvxml.xml.TemplateRegistry;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 合并一个任务的所有分片：各公司按首次出现的顺序输出，每个公司的片段按分片顺序拼接，结果与单节点转换相同。
+ * 分片中的错误按单节点转换时的优先级抛出：中止转换的异常、列数错误、首个渲染失败，最后是空文件
+ */
+@Component
+public class ClusterMerge implements Processor {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterMerge.class);
+    public static final String ENDPOINT = "direct:cluster-merge";
+    public static final String JOB_PROPERTY = "CsvXmlClusterJob";
+
+    private final StreamingXmlProcessor streamingXmlProcessor;
+    private final TemplateRegistry templateRegistry;
+    private final RowQuarantine quarantine;
+
+    public ClusterMerge(StreamingXmlProcessor streamingXmlProcessor, TemplateRegistry templateRegistry,
+                        RowQuarantine quarantine) {
+        this.streamingXmlProcessor = streamingXmlProcessor;
+        this.templateRegistry = templateRegistry;
+        this.quarantine = quarantine;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        WorkQueue.Job job = exchange.getProperty(JOB_PROPERTY, WorkQueue.Job.class);
+        List<WorkQueue.Shard> shards = job.getShards();
+        logger.info(AppConfig.LogMessages.CLUSTER_MERGE_START, job.getFileName(), shards.size());
+
+        RejectLog rejects = quarantine.forExchange(exchange);
+        // 使用HashMap并按首次出现顺序放入公司，迭代顺序与 Collectors.groupingBy 一致
+        Map<String, List<Path>> fragments = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        Exception fatal = null;
+        Exception failure = null;
+        int rows = 0;
+        for (WorkQueue.Shard shard : shards) {
+            Path dir = job.partDir(shard);
+            ShardPart part = ShardPart.load(dir);
+            if (fatal == null) {
+                fatal = part.getFatal();
+            }
+            if (failure == null) {
+                failure = part.getFailure();
+            }
+            errors.addAll(part.getErrors());
+            rows += part.getRows();
+            for (int i = 0; i < part.getCompanies().size(); i++) {
+                fragments.computeIfAbsent(part.getCompanies().get(i), company -> new ArrayList<>()).add(part.getFiles().get(i));
+            }
+            if (rejects != null) {
+                replay(dir.resolve(ShardPart.REJECTS_FILE), rejects);
+            }
+        }
+
+        if (fatal != null) {
+            throw fatal;
+        }
+        if (rows == 0) {
+            logger.error(AppConfig.LogMessages.VALIDATION_FAILED, "Empty CSV file");
+            throw new IllegalArgumentException("Empty CSV file");
+        }
+        if (!errors.isEmpty()) {
+            String combinedError = String.join("\n", errors);
+            logger.error(AppConfig.LogMessages.VALIDATION_FAILED, "发现以下列数错误：\n" + combinedError);
+            throw new TransformException(TransformError.COLUMN_MISMATCH, combinedError);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        exchange.setProperty(PipelineMetrics.ROW_COUNT, rows);
+        streamingXmlProcessor.writeOutput(exchange, templateRegistry.get(job.getTemplate()), job.getFileName(),
+            fragments, job.mergeDir());
+    }
+
+    /**
+     * 把分片的拒绝记录按原顺序写入整个文件的拒绝记录
+     */
+    private static void replay(Path file, RejectLog rejects) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (CSVParser parser = CSVFormat.DEFAULT.parse(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            for (CSVRecord record : parser) {
+                List<String> row = new ArrayList<>(record.size() - 3);
+                for (int i = 3; i < record.size(); i++) {
+                    row.add(record.get(i));
+                }
+                rejects.reject(Integer.parseInt(record.get(0)), TransformError.valueOf(record.get(1)), record.get(2), row);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.csvxml.cluster;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.processor.StreamingXmlProcessor;
+import com.csvxml.service.RejectLog;
+import com.csvxml.service.RowQuarantine;
+import com.csvxml.xml.TemplateRegistry;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import javax.annotation.PreDestroy;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 集群模式下的工作线程：轮询工作队列，认领并转换分片；任务的所有分片完成后认领合并，
+ * 通过合并路由输出结果，再把输入文件移入 .camel 目录并删除任务目录。
+ * 节点失效时其认领在租期后由其他节点接管，因此每个分片至少被转换一次
+ */
+@Component
+public class ClusterWorker {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterWorker.class);
+
+    private final AppConfig.Cluster config;
+    private final WorkQueue workQueue;
+    private final StreamingXmlProcessor streamingXmlProcessor;
+    private final TemplateRegistry templateRegistry;
+    private final RowQuarantine quarantine;
+    private final ProducerTemplate producerTemplate;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public ClusterWorker(AppConfig appConfig, WorkQueue workQueue, StreamingXmlProcessor streamingXmlProcessor,
+                         TemplateRegistry templateRegistry, RowQuarantine quarantine,
+                         ProducerTemplate producerTemplate) {
+        this.config = appConfig.getCluster();
+        this.workQueue = workQueue;
+        this.streamingXmlProcessor = streamingXmlProcessor;
+        this.templateRegistry = templateRegistry;
+        this.quarantine = quarantine;
+        this.producerTemplate = producerTemplate;
+    }
+
+    /**
+     * 应用启动完成、合并路由可用后再开始轮询
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < Math.max(1, config.getWorkers()); i++) {
+            Thread thread = new Thread(this::run, "csvxml-cluster-worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        logger.info("集群节点 {} 启动 {} 个工作线程，工作队列目录: {}", workQueue.getNodeId(), threads.size(), config.getDir());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            thread.join(config.getLease());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            boolean worked = false;
+            try {
+                worked = poll();
+            } catch (Exception e) {
+                logger.error("处理工作队列时发生错误", e);
+            }
+            if (!worked) {
+                try {
+                    Thread.sleep(config.getPollDelay());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 处理一项工作：接管中断的切分、转换一个分片或合并一个任务；没有可做的工作时返回 false
+     */
+    boolean poll() throws Exception {
+        for (WorkQueue.Job job : workQueue.jobs()) {
+            if (!job.isPlanned()) {
+                if (recover(job)) {
+                    return true;
+                }
+                continue;
+            }
+            boolean complete = true;
+            for (WorkQueue.Shard shard : job.getShards()) {
+                if (job.isDone(shard)) {
+                    continue;
+                }
+                complete = false;
+                if (convert(job, shard)) {
+                    return true;
+                }
+            }
+            if (complete && merge(job)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean recover(WorkQueue.Job job) throws Exception {
+        WorkQueue.Claim split = workQueue.recover(job);
+        if (split == null) {
+            return false;
+        }
+        try {
+            if (!job.isPlanned()) {
+                int shards = workQueue.plan(split);
+                if (shards >= 0) {
+                    logger.info(AppConfig.LogMessages.CLUSTER_JOB_CREATED, job.getFileName(), job.getId(), shards);
+                }
+            }
+        } finally {
+            split.close();
+        }
+        return true;
+    }
+
+    private boolean convert(WorkQueue.Job job, WorkQueue.Shard shard) throws Exception {
+        WorkQueue.Claim claim = workQueue.claim(job, "shard-" + shard.getIndex());
+        if (claim == null) {
+            return false;
+        }
+        try {
+            // 认领前可能已由其他节点完成
+            if (job.isDone(shard)) {
+                return true;
+            }
+            logger.info(AppConfig.LogMessages.CLUSTER_SHARD_CLAIMED, workQueue.getNodeId(), job.getFileName(), shard.getIndex());
+            Path work = job.newPartDir(shard);
+            RejectLog rejects = quarantine.open(work.resolve(ShardPart.REJECTS_FILE));
+            try {
+                StreamingXmlProcessor.RangeResult result = streamingXmlProcessor.convertRange(job.getSource(),
+                    Charset.forName(job.getCharset()), shard.getStart(), shard.getEnd(), shard.getFirstRow(),
+                    templateRegistry.get(job.getTemplate()), work, rejects);
+                ShardPart.store(work, result);
+                logger.info(AppConfig.LogMessages.CLUSTER_SHARD_DONE, job.getFileName(), shard.getIndex(), result.getRows());
+            } catch (Exception e) {
+                // 错误在合并时按单节点转换的方式报告
+                logger.error("{} 的分片 {} 转换失败: {}", job.getFileName(), shard.getIndex(), e.getMessage());
+                ShardPart.storeFatal(work, e);
+            } finally {
+                if (rejects != null) {
+                    rejects.close();
+                }
+            }
+            if (claim.isHeld()) {
+                job.publish(shard, work);
+            } else {
+                // 接管的节点会重新转换该分片
+                WorkQueue.deleteQuietly(work);
+            }
+        } finally {
+            claim.close();
+        }
+        return true;
+    }
+
+    private boolean merge(WorkQueue.Job job) throws Exception {
+        WorkQueue.Claim claim = workQueue.claim(job, WorkQueue.MERGE_TASK);
+        if (claim == null) {
+            return false;
+        }
+        try {
+            if (!claim.isHeld()) {
+                return true;
+            }
+            if (!job.isMerged()) {
+                // 转换失败时由合并路由的异常处理写出错误文件，任务同样结束
+                Exchange merged = producerTemplate.send(ClusterMerge.ENDPOINT, exchange -> {
+                    exchange.getIn().setHeader(Exchange.FILE_NAME, job.getFileName());
+                    exchange.getIn().setHeader(Exchange.FILE_LENGTH, Files.size(job.getSource()));
+                    exchange.setProperty(ClusterMerge.JOB_PROPERTY, job);
+                });
+                if (merged.getException() != null) {
+                    // 未交给合并路由处理，例如应用正在关闭，稍后重试
+                    throw merged.getException();
+                }
+                job.markMerged();
+            }
+            // 合并期间被接管时由接管的节点结束任务
+            if (claim.isHeld()) {
+                workQueue.finish(job);
+            }
+        } finally {
+            claim.close();
+        }
+        return true;
+    }
+}
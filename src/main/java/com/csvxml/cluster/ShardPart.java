@@ -0,0 +1,151 @@
+package com.csvxml.cluster;
+
+import com.csvxml.processor.StreamingXmlProcessor;
+import com.csvxml.util.TransformError;
+import com.csvxml.util.TransformException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 已发布分片的转换结果，保存在分片目录的 part.properties 中：行数、列数错误、各公司及其分桶文件，
+ * 以及首个渲染失败或使转换中止的异常。异常只保存类别与信息，合并时重建为同类异常，由原有的异常处理路由处理
+ */
+final class ShardPart {
+    static final String REJECTS_FILE = "rejects.csv";
+    private static final String PART_FILE = "part.properties";
+    // 只保存异常链的前几层
+    private static final int MAX_CAUSES = 3;
+
+    private final int rows;
+    private final List<String> errors;
+    private final List<String> companies;
+    private final List<Path> files;
+    private final Exception fatal;
+    private final Exception failure;
+
+    private ShardPart(int rows, List<String> errors, List<String> companies, List<Path> files,
+                      Exception fatal, Exception failure) {
+        this.rows = rows;
+        this.errors = errors;
+        this.companies = companies;
+        this.files = files;
+        this.fatal = fatal;
+        this.failure = failure;
+    }
+
+    static void store(Path dir, StreamingXmlProcessor.RangeResult result) throws IOException {
+        Properties part = new Properties();
+        part.setProperty("rows", Integer.toString(result.getRows()));
+        part.setProperty("errors", Integer.toString(result.getErrors().size()));
+        for (int i = 0; i < result.getErrors().size(); i++) {
+            part.setProperty("error." + i, result.getErrors().get(i));
+        }
+        part.setProperty("companies", Integer.toString(result.getCompanies().size()));
+        for (int i = 0; i < result.getCompanies().size(); i++) {
+            part.setProperty("company." + i, result.getCompanies().get(i));
+            part.setProperty("file." + i, dir.relativize(result.getFiles().get(i)).toString());
+        }
+        putException(part, "failure.", result.getFailure(), MAX_CAUSES);
+        WorkQueue.store(part, dir.resolve(PART_FILE));
+    }
+
+    /**
+     * 转换中止的分片：读取失败等异常在合并时抛出，与单节点转换时一样
+     */
+    static void storeFatal(Path dir, Exception fatal) throws IOException {
+        Properties part = new Properties();
+        part.setProperty("rows", "0");
+        putException(part, "fatal.", fatal, MAX_CAUSES);
+        WorkQueue.store(part, dir.resolve(PART_FILE));
+    }
+
+    static ShardPart load(Path dir) throws IOException {
+        Properties part = WorkQueue.load(dir.resolve(PART_FILE));
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < Integer.parseInt(part.getProperty("errors", "0")); i++) {
+            errors.add(part.getProperty("error." + i));
+        }
+        List<String> companies = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < Integer.parseInt(part.getProperty("companies", "0")); i++) {
+            companies.add(part.getProperty("company." + i));
+            files.add(dir.resolve(part.getProperty("file." + i)));
+        }
+        return new ShardPart(Integer.parseInt(part.getProperty("rows")), errors, companies, files,
+            getException(part, "fatal."), getException(part, "failure."));
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    List<String> getErrors() {
+        return errors;
+    }
+
+    List<String> getCompanies() {
+        return companies;
+    }
+
+    List<Path> getFiles() {
+        return files;
+    }
+
+    Exception getFatal() {
+        return fatal;
+    }
+
+    Exception getFailure() {
+        return failure;
+    }
+
+    private static void putException(Properties part, String prefix, Throwable e, int depth) {
+        if (e == null || depth == 0) {
+            return;
+        }
+        String kind;
+        if (e instanceof TransformException) {
+            kind = "transform";
+            part.setProperty(prefix + "error", ((TransformException) e).getError().name());
+        } else if (e instanceof IllegalArgumentException) {
+            kind = "argument";
+        } else if (e instanceof IOException || e instanceof UncheckedIOException) {
+            kind = "io";
+        } else if (e.getClass() == RuntimeException.class) {
+            kind = "runtime";
+        } else {
+            kind = "other";
+        }
+        part.setProperty(prefix + "kind", kind);
+        part.setProperty(prefix + "type", e.getClass().getName());
+        if (e.getMessage() != null) {
+            part.setProperty(prefix + "message", e.getMessage());
+        }
+        putException(part, prefix + "cause.", e.getCause(), depth - 1);
+    }
+
+    private static Exception getException(Properties part, String prefix) {
+        String kind = part.getProperty(prefix + "kind");
+        if (kind == null) {
+            return null;
+        }
+        String message = part.getProperty(prefix + "message");
+        Exception cause = getException(part, prefix + "cause.");
+        switch (kind) {
+            case "transform":
+                return new TransformException(TransformError.valueOf(part.getProperty(prefix + "error")), message);
+            case "argument":
+                return new IllegalArgumentException(message, cause);
+            case "io":
+                return new IOException(message, cause);
+            case "runtime":
+                return new RuntimeException(message, cause);
+            default:
+                return new IllegalStateException(part.getProperty(prefix + "type") + ": " + message, cause);
+        }
+    }
+}
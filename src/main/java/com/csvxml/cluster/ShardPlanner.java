@@ -0,0 +1,54 @@
+package com.csvxml.cluster;
+
+import com.csvxml.csv.CsvFormatException;
+import com.csvxml.csv.CsvReaders;
+import com.csvxml.csv.CsvRow;
+import com.csvxml.csv.MappedCsvReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按行边界把输入文件切分为大约 shardBytes 字节的分片，引号内的换行不会被切开
+ */
+final class ShardPlanner {
+
+    private ShardPlanner() {
+    }
+
+    static List<WorkQueue.Shard> plan(Path source, Charset charset, long shardBytes) throws IOException {
+        long size = Files.size(source);
+        if (size <= shardBytes || !MappedCsvReader.supports(charset) || CsvReaders.isCompressed(source)) {
+            // 小文件、无法在字节上识别行边界的字符集，或无法从中间解压的压缩文件，由一个节点转换
+            return single(size);
+        }
+        List<WorkQueue.Shard> shards = new ArrayList<>();
+        long start = 0;
+        int firstRow = 1;
+        int rows = 0;
+        try (MappedCsvReader reader = MappedCsvReader.open(source, charset, 0)) {
+            for (CsvRow row = reader.next(); row != null; row = reader.next()) {
+                long position = row.getPosition();
+                if (position - start >= shardBytes) {
+                    shards.add(new WorkQueue.Shard(shards.size(), start, position, firstRow));
+                    start = position;
+                    firstRow = rows + 1;
+                }
+                rows++;
+            }
+        } catch (CsvFormatException e) {
+            // 格式错误的文件整体交给一个节点，报告与单节点转换相同的错误
+            return single(size);
+        }
+        shards.add(new WorkQueue.Shard(shards.size(), start, size, firstRow));
+        return shards;
+    }
+
+    private static List<WorkQueue.Shard> single(long size) {
+        return Collections.singletonList(new WorkQueue.Shard(0, 0, size, 1));
+    }
+}
@@ -0,0 +1,517 @@
+package com.csvxml.cluster;
+
+import com.csvxml.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 基于共享目录的工作队列，不依赖外部服务。每个输入文件对应 jobs 下的一个任务目录：
+ * <pre>
+ * jobs/&lt;任务&gt;/intake.properties   原文件名、字符集与模板
+ *            source.csv          从输入目录原子移入的输入文件，移入成功的节点负责该文件
+ *            plan.properties     切分结果，写入后各节点才开始认领分片
+ *            claims/&lt;任务项&gt;      认领文件：split、shard-N 或 merge
+ *            parts/&lt;N&gt;/          分片的转换结果，整个目录原子重命名后才可见
+ *            merged              合并完成的标记
+ * </pre>
+ * 认领以排他创建文件实现，持有期间定期更新修改时间；超过租期未更新的认领可被其他节点通过原子重命名接管。
+ * 接管后原节点仍可能完成同一分片，先发布的结果生效，另一份被丢弃。
+ * 工作队列目录须与输入目录位于同一文件系统，以便原子移入输入文件。
+ */
+@Service
+public class WorkQueue {
+    private static final Logger logger = LoggerFactory.getLogger(WorkQueue.class);
+
+    public static final String SPLIT_TASK = "split";
+    public static final String MERGE_TASK = "merge";
+    private static final String JOBS_DIR = "jobs";
+    private static final String SOURCE_FILE = "source.csv";
+    private static final String INTAKE_FILE = "intake.properties";
+    private static final String PLAN_FILE = "plan.properties";
+    private static final String CLAIMS_DIR = "claims";
+    private static final String PARTS_DIR = "parts";
+    private static final String MERGED_FILE = "merged";
+    // 与 Camel file 端点默认的 move 选项一致，处理完的输入文件移入该目录
+    private static final String DONE_DIR = ".camel";
+
+    private final AppConfig.Cluster config;
+    private final Path jobsDir;
+    private final String nodeId;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "csvxml-cluster-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WorkQueue(AppConfig appConfig) {
+        this.config = appConfig.getCluster();
+        this.jobsDir = Paths.get(config.getDir(), JOBS_DIR);
+        String configured = config.getNodeId();
+        this.nodeId = configured != null && !configured.isEmpty()
+            ? configured : ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @PreDestroy
+    public void close() {
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * 把输入文件移入新的任务目录，返回该任务的切分认领；文件已被其他节点取走时返回 null
+     */
+    public Claim submit(Path input, String fileName, String charset, String template) throws IOException {
+        Files.createDirectories(jobsDir);
+        String id = jobId(fileName);
+        // 在隐藏目录中准备好任务文件与认领后再整体重命名，其他节点看不到不完整的任务
+        Path staging = jobsDir.resolve("." + id);
+        Files.createDirectories(staging.resolve(CLAIMS_DIR));
+        Properties intake = new Properties();
+        intake.setProperty("file", fileName);
+        intake.setProperty("charset", charset);
+        intake.setProperty("template", template);
+        store(intake, staging.resolve(INTAKE_FILE));
+        String token = token();
+        Files.write(staging.resolve(CLAIMS_DIR).resolve(SPLIT_TASK), token.getBytes(StandardCharsets.UTF_8));
+        Path dir = jobsDir.resolve(id);
+        Files.move(staging, dir, StandardCopyOption.ATOMIC_MOVE);
+
+        Job job = new Job(dir);
+        Claim claim = new Claim(job, SPLIT_TASK, token);
+        try {
+            Files.move(input, job.getSource(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            claim.close();
+            deleteQuietly(dir);
+            return null;
+        } catch (AtomicMoveNotSupportedException e) {
+            claim.close();
+            deleteQuietly(dir);
+            throw new IOException("工作队列目录必须与输入目录位于同一文件系统: " + config.getDir(), e);
+        }
+        return claim;
+    }
+
+    /**
+     * 在持有切分认领时切分任务的输入文件并发布切分结果，返回分片数；认领已被接管时不发布，返回 -1
+     */
+    public int plan(Claim split) throws IOException {
+        Job job = split.getJob();
+        List<Shard> shards = ShardPlanner.plan(job.getSource(), Charset.forName(job.getCharset()), config.getShardBytes());
+        if (!split.isHeld()) {
+            return -1;
+        }
+        Properties plan = new Properties();
+        plan.setProperty("shards", Integer.toString(shards.size()));
+        for (Shard shard : shards) {
+            plan.setProperty("shard." + shard.getIndex(), shard.getStart() + "," + shard.getEnd() + "," + shard.getFirstRow());
+        }
+        store(plan, job.dir.resolve(PLAN_FILE));
+        return shards.size();
+    }
+
+    /**
+     * 当前的任务，按任务名排序；同时清理超过租期仍未完成准备的隐藏目录
+     */
+    public List<Job> jobs() throws IOException {
+        if (!Files.isDirectory(jobsDir)) {
+            return Collections.emptyList();
+        }
+        List<Job> jobs = new ArrayList<>();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(jobsDir)) {
+            for (Path dir : dirs) {
+                if (!dir.getFileName().toString().startsWith(".")) {
+                    jobs.add(new Job(dir));
+                } else if (isExpired(dir)) {
+                    deleteQuietly(dir);
+                }
+            }
+        }
+        jobs.sort(Comparator.comparing(job -> job.dir.getFileName().toString()));
+        return jobs;
+    }
+
+    /**
+     * 认领任务项；已被其他节点持有时返回 null。超过租期未更新的认领由本节点接管
+     */
+    public Claim claim(Job job, String task) throws IOException {
+        Path file = job.claimFile(task);
+        String token = token();
+        try {
+            Files.write(file, token.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return new Claim(job, task, token);
+        } catch (FileAlreadyExistsException e) {
+            // 继续检查是否超时
+        } catch (NoSuchFileException e) {
+            // 任务目录已被删除
+            return null;
+        }
+        if (!isExpired(file)) {
+            return null;
+        }
+        // 只有一个节点能把过期的认领重命名走
+        Path expired = file.resolveSibling(task + ".expired-" + UUID.randomUUID());
+        try {
+            Files.move(file, expired, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!isExpired(expired)) {
+            // 期间已被其他节点重新认领，放回原处
+            try {
+                Files.move(expired, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ignored) {
+                Files.deleteIfExists(expired);
+            }
+            return null;
+        }
+        Files.deleteIfExists(expired);
+        logger.warn(AppConfig.LogMessages.CLUSTER_CLAIM_EXPIRED, job.getFileName(), task);
+        try {
+            Files.write(file, token.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException e) {
+            return null;
+        }
+        return new Claim(job, task, token);
+    }
+
+    /**
+     * 任务完成：输入文件移入输入目录下的 .camel 目录，删除任务目录
+     */
+    public void finish(Job job) throws IOException {
+        if (Files.exists(job.getSource())) {
+            Path done = Files.createDirectories(Paths.get(AppConfig.INPUT_DIR, DONE_DIR));
+            Files.move(job.getSource(), done.resolve(job.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        }
+        deleteQuietly(job.dir);
+    }
+
+    /**
+     * 未完成准备的任务：输入文件未移入时直接删除，否则返回接管的切分认领，切分仍在进行时返回 null
+     */
+    public Claim recover(Job job) throws IOException {
+        if (!Files.exists(job.getSource())) {
+            if (isExpired(job.dir)) {
+                deleteQuietly(job.dir);
+            }
+            return null;
+        }
+        return claim(job, SPLIT_TASK);
+    }
+
+    boolean isExpired(Path file) throws IOException {
+        try {
+            return System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() > config.getLease();
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private String token() {
+        return nodeId + " " + UUID.randomUUID();
+    }
+
+    private static String jobId(String fileName) {
+        String name = fileName.replaceAll("[^\\p{L}\\p{N}._-]", "_");
+        return name + "-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * 先写临时文件再原子重命名，其他节点只会读到完整的内容
+     */
+    static void store(Properties properties, Path file) throws IOException {
+        Path temp = file.resolveSibling("." + file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, null);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static Properties load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    static void deleteQuietly(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("清理任务目录失败: {}", dir, e);
+        }
+    }
+
+    /**
+     * 一个输入文件的任务
+     */
+    public final class Job {
+        private final Path dir;
+        private Properties intake;
+        private List<Shard> shards;
+
+        Job(Path dir) {
+            this.dir = dir;
+        }
+
+        public String getId() {
+            return dir.getFileName().toString();
+        }
+
+        public Path getDir() {
+            return dir;
+        }
+
+        public Path getSource() {
+            return dir.resolve(SOURCE_FILE);
+        }
+
+        public String getFileName() {
+            return intake("file");
+        }
+
+        public String getCharset() {
+            return intake("charset");
+        }
+
+        public String getTemplate() {
+            return intake("template");
+        }
+
+        /**
+         * 切分结果是否已发布
+         */
+        public boolean isPlanned() {
+            return Files.exists(dir.resolve(PLAN_FILE));
+        }
+
+        public List<Shard> getShards() throws IOException {
+            if (shards == null) {
+                Properties plan = load(dir.resolve(PLAN_FILE));
+                int count = Integer.parseInt(plan.getProperty("shards"));
+                List<Shard> loaded = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String[] range = plan.getProperty("shard." + i).split(",");
+                    loaded.add(new Shard(i, Long.parseLong(range[0]), Long.parseLong(range[1]), Integer.parseInt(range[2])));
+                }
+                shards = loaded;
+            }
+            return shards;
+        }
+
+        public boolean isDone(Shard shard) {
+            return Files.isDirectory(partDir(shard));
+        }
+
+        public Path partDir(Shard shard) {
+            return dir.resolve(PARTS_DIR).resolve(Integer.toString(shard.getIndex()));
+        }
+
+        /**
+         * 转换分片用的私有目录，完成后由 {@link #publish} 发布
+         */
+        public Path newPartDir(Shard shard) throws IOException {
+            return Files.createDirectories(dir.resolve(PARTS_DIR)
+                .resolve("." + shard.getIndex() + "-" + UUID.randomUUID()));
+        }
+
+        /**
+         * 把转换结果目录原子重命名为分片结果；其他节点已发布同一分片时删除本结果并返回 false
+         */
+        public boolean publish(Shard shard, Path work) {
+            try {
+                Files.move(work, partDir(shard), StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } catch (IOException e) {
+                deleteQuietly(work);
+                if (!isDone(shard)) {
+                    logger.warn("发布 {} 的分片 {} 失败", getFileName(), shard.getIndex(), e);
+                }
+                return false;
+            }
+        }
+
+        /**
+         * 合并用的临时目录，随任务目录一起删除
+         */
+        public Path mergeDir() throws IOException {
+            return Files.createDirectories(dir.resolve(MERGE_TASK));
+        }
+
+        public boolean isMerged() {
+            return Files.exists(dir.resolve(MERGED_FILE));
+        }
+
+        public void markMerged() throws IOException {
+            try {
+                Files.createFile(dir.resolve(MERGED_FILE));
+            } catch (FileAlreadyExistsException e) {
+                // 已标记
+            }
+        }
+
+        Path claimFile(String task) {
+            return dir.resolve(CLAIMS_DIR).resolve(task);
+        }
+
+        private String intake(String key) {
+            if (intake == null) {
+                try {
+                    intake = load(dir.resolve(INTAKE_FILE));
+                } catch (IOException e) {
+                    throw new IllegalStateException("无法读取任务信息: " + dir, e);
+                }
+            }
+            return intake.getProperty(key);
+        }
+    }
+
+    /**
+     * 输入文件中从字节位置 start 到 end 的一段，firstRow 为其中第一行的行号
+     */
+    public static final class Shard {
+        private final int index;
+        private final long start;
+        private final long end;
+        private final int firstRow;
+
+        Shard(int index, long start, long end, int firstRow) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            this.firstRow = firstRow;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public int getFirstRow() {
+            return firstRow;
+        }
+    }
+
+    /**
+     * 持有中的认领：定期更新认领文件的修改时间，关闭时删除认领文件。
+     * 认领文件中的令牌不再是本认领的令牌时认领已被接管，停止更新，持有者应放弃工作
+     */
+    public final class Claim implements Closeable {
+        private final Job job;
+        private final String task;
+        private final String token;
+        private final ScheduledFuture<?> renewal;
+        private volatile boolean lost;
+
+        Claim(Job job, String task, String token) {
+            this.job = job;
+            this.task = task;
+            this.token = token;
+            long period = Math.max(1, config.getLease() / 3);
+            this.renewal = heartbeat.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        public Job getJob() {
+            return job;
+        }
+
+        public String getTask() {
+            return task;
+        }
+
+        /**
+         * 认领是否仍由本节点持有；发布结果前调用，返回 false 后不再更新认领
+         */
+        public boolean isHeld() {
+            if (!lost && !ownsFile()) {
+                lost = true;
+                renewal.cancel(false);
+                logger.warn(AppConfig.LogMessages.CLUSTER_CLAIM_LOST, job.getFileName(), task);
+            }
+            return !lost;
+        }
+
+        /**
+         * 先核对令牌再更新修改时间，不延长其他节点接管后的认领
+         */
+        void renew() {
+            if (!isHeld()) {
+                return;
+            }
+            try {
+                Files.setLastModifiedTime(job.claimFile(task), FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                // 任务已完成，或认领在核对后被接管
+                logger.debug("无法更新认领 {}/{}", job.getId(), task);
+            }
+        }
+
+        /**
+         * 释放认领；认领已被其他节点接管时保留对方的认领文件
+         */
+        @Override
+        public void close() {
+            renewal.cancel(false);
+            if (ownsFile()) {
+                try {
+                    Files.deleteIfExists(job.claimFile(task));
+                } catch (IOException e) {
+                    // 任务目录已被删除
+                }
+            }
+        }
+
+        private boolean ownsFile() {
+            try {
+                return token.equals(new String(Files.readAllBytes(job.claimFile(task)), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                // 认领文件已被重命名或任务目录已被删除
+                return false;
+            }
+        }
+    }
+}
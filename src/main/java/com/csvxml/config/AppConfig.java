@@ -2,6 +2,9 @@ package com.csvxml.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @Configuration
 @ConfigurationProperties(prefix = "app")
@@ -9,12 +12,704 @@ public class AppConfig {
     public static final String INPUT_DIR = "input";
     public static final String OUTPUT_DIR = "output";
     public static final String ERROR_DIR = "error";
+    public static final String REJECT_DIR = "reject";
+    public static final String REJECT_FILE_NAME = "${file:name.noext}_rejected_${date:now:yyyyMMddHHmmss}.csv";
+    public static final String OUTPUT_FILE_NAME = "${file:name.noext}_${date:now:yyyyMMddHHmmss}.xml";
+    // {company} 由处理器替换为公司名
+    // 指定模板名的消息头，优先于 app.templates.rules
+    public static final String TEMPLATE_HEADER = "CsvXmlTemplate";
+    public static final String SHARD_FILE_NAME = "${file:name.noext}_{company}_${date:now:yyyyMMddHHmmss}.xml";
+    // 逐行调试日志的日志器，不在 com.csvxml 之下，开启 com.csvxml 的 DEBUG 不会输出逐行日志
+    public static final String ROW_LOGGER = "csvxml.rows";
+
+    private final Streaming streaming = new Streaming();
+    private final Parallel parallel = new Parallel();
+    private final Ingest ingest = new Ingest();
+    private final Metrics metrics = new Metrics();
+    private final Output output = new Output();
+    private final Validation validation = new Validation();
+    private final Checkpoint checkpoint = new Checkpoint();
+    private final Csv csv = new Csv();
+    private final Templates templates = new Templates();
+    private final Mapping mapping = new Mapping();
+    private final Cluster cluster = new Cluster();
+    private final Logging logging = new Logging();
+    private final Dedup dedup = new Dedup();
+
+    public Streaming getStreaming() {
+        return streaming;
+    }
+
+    public Parallel getParallel() {
+        return parallel;
+    }
+
+    public Ingest getIngest() {
+        return ingest;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Output getOutput() {
+        return output;
+    }
+
+    public Validation getValidation() {
+        return validation;
+    }
+
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    public Csv getCsv() {
+        return csv;
+    }
+
+    public Templates getTemplates() {
+        return templates;
+    }
+
+    public Mapping getMapping() {
+        return mapping;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public Logging getLogging() {
+        return logging;
+    }
+
+    public Dedup getDedup() {
+        return dedup;
+    }
+
+    /**
+     * 流式转换配置：逐行读取CSV，按公司分桶写入临时文件后合并输出
+     */
+    public static class Streaming {
+        private boolean enabled = false;
+        private String workDir;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getWorkDir() {
+            return workDir;
+        }
+
+        public void setWorkDir(String workDir) {
+            this.workDir = workDir;
+        }
+    }
     
+    /**
+     * 并行渲染配置：记录按行分块，由工作线程渲染后按原顺序拼接
+     */
+    public static class Parallel {
+        private int workers = 1;
+        private int chunkSize = 10000;
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * 实际使用的线程数，配置为0时取CPU核数
+         */
+        public int getEffectiveWorkers() {
+            return workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        }
+
+        public boolean isEnabled() {
+            return getEffectiveWorkers() > 1;
+        }
+    }
+
+    /**
+     * 文件摄取配置：并发处理的文件数、等待队列容量以及读锁策略
+     */
+    public static class Ingest {
+        private int workers = 1;
+        private int queueCapacity = 100;
+        private long pollDelay = 5000;
+        private String readLock = "changed";
+        private long readLockCheckInterval = 1000;
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public long getPollDelay() {
+            return pollDelay;
+        }
+
+        public void setPollDelay(long pollDelay) {
+            this.pollDelay = pollDelay;
+        }
+
+        public String getReadLock() {
+            return readLock;
+        }
+
+        public void setReadLock(String readLock) {
+            this.readLock = readLock;
+        }
+
+        public long getReadLockCheckInterval() {
+            return readLockCheckInterval;
+        }
+
+        public void setReadLockCheckInterval(long readLockCheckInterval) {
+            this.readLockCheckInterval = readLockCheckInterval;
+        }
+
+        public boolean isConcurrent() {
+            return workers > 1;
+        }
+    }
+
+    /**
+     * 指标导出配置：Prometheus文本格式的指标文件及写入间隔
+     */
+    public static class Metrics {
+        private String file = "metrics/csvxml.prom";
+        private long dumpInterval = 15000;
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public long getDumpInterval() {
+            return dumpInterval;
+        }
+
+        public void setDumpInterval(long dumpInterval) {
+            this.dumpInterval = dumpInterval;
+        }
+    }
+
+    /**
+     * 输出配置：directWrite 为 true 时由处理器直接写出XML文件，不再经过 file 端点；
+     * sharded 为 true 时每个公司写出一个XML文件，同时打开的分片写入器不超过 maxOpenShards 个；
+     * indent 为 false 时元素之间不换行缩进，输出文件更小；compression 为 gzip 时输出文件以 .gz 结尾，
+     * 由单独的线程按 compressionLevel 压缩
+     */
+    public static class Output {
+        private boolean directWrite = false;
+        private boolean sharded = false;
+        private int maxOpenShards = 256;
+        private boolean indent = true;
+        private String compression = "none";
+        private int compressionLevel = 6;
+
+        public boolean isDirectWrite() {
+            return directWrite;
+        }
+
+        public void setDirectWrite(boolean directWrite) {
+            this.directWrite = directWrite;
+        }
+
+        public boolean isSharded() {
+            return sharded;
+        }
+
+        public void setSharded(boolean sharded) {
+            this.sharded = sharded;
+        }
+
+        public int getMaxOpenShards() {
+            return maxOpenShards;
+        }
+
+        public void setMaxOpenShards(int maxOpenShards) {
+            this.maxOpenShards = maxOpenShards;
+        }
+
+        public boolean isIndent() {
+            return indent;
+        }
+
+        public void setIndent(boolean indent) {
+            this.indent = indent;
+        }
+
+        public String getCompression() {
+            return compression;
+        }
+
+        public void setCompression(String compression) {
+            this.compression = compression;
+        }
+
+        public int getCompressionLevel() {
+            return compressionLevel;
+        }
+
+        public void setCompressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+        }
+
+        public boolean isCompressed() {
+            return !"none".equals(compression);
+        }
+
+        /**
+         * 是否由处理器直接写出：压缩输出时总是直接写出，压缩与渲染同时进行
+         */
+        public boolean isEffectiveDirectWrite() {
+            return directWrite || isCompressed();
+        }
+    }
+
+    /**
+     * 校验配置：lenient 为 true 时数据错误的行写入拒绝文件，其余行照常转换
+     */
+    public static class Validation {
+        private boolean lenient = false;
+
+        public boolean isLenient() {
+            return lenient;
+        }
+
+        public void setLenient(boolean lenient) {
+            this.lenient = lenient;
+        }
+    }
+
+    /**
+     * 断点配置：记录已完成的文件，流式模式下每处理 interval 行保存一次进度，重启后从断点继续
+     */
+    public static class Checkpoint {
+        private boolean enabled = false;
+        private String dir = "checkpoint";
+        private int interval = 100000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDir() {
+            return dir;
+        }
+
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+
+        public int getInterval() {
+            return interval;
+        }
+
+        public void setInterval(int interval) {
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * CSV读取配置：mapped 为 true 时以内存映射方式在原始字节上切分CSV，替代 Commons-CSV；
+     * fused 为 true 时非流式模式在一次遍历中完成读取、列数校验与记录转换，为 false 时依次执行各处理器
+     */
+    public static class Csv {
+        private boolean mapped = false;
+        private boolean fused = true;
+
+        public boolean isMapped() {
+            return mapped;
+        }
+
+        public void setMapped(boolean mapped) {
+            this.mapped = mapped;
+        }
+
+        public boolean isFused() {
+            return fused;
+        }
+
+        public void setFused(boolean fused) {
+            this.fused = fused;
+        }
+    }
+
+    /**
+     * 模板配置：类路径 templates 目录与 dir 目录下的每个XML文件都是一个模板，以文件名（不含扩展名）命名，
+     * dir 中的同名模板覆盖类路径中的模板；watch 为 true 时 dir 中的文件变化后自动重新加载。
+     * 文件按 rules 中第一个匹配文件名的规则选择模板，没有匹配时使用 defaultTemplate
+     */
+    public static class Templates {
+        private String dir = "templates";
+        private boolean watch = true;
+        private String defaultTemplate = "profile";
+        private List<Rule> rules = new ArrayList<>();
+
+        public String getDir() {
+            return dir;
+        }
+
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+
+        public boolean isWatch() {
+            return watch;
+        }
+
+        public void setWatch(boolean watch) {
+            this.watch = watch;
+        }
+
+        public String getDefaultTemplate() {
+            return defaultTemplate;
+        }
+
+        public void setDefaultTemplate(String defaultTemplate) {
+            this.defaultTemplate = defaultTemplate;
+        }
+
+        public List<Rule> getRules() {
+            return rules;
+        }
+
+        public void setRules(List<Rule> rules) {
+            this.rules = rules;
+        }
+
+        /**
+         * 文件名匹配 pattern（glob）的文件使用 template
+         */
+        public static class Rule {
+            private String pattern;
+            private String template;
+
+            public String getPattern() {
+                return pattern;
+            }
+
+            public void setPattern(String pattern) {
+                this.pattern = pattern;
+            }
+
+            public String getTemplate() {
+                return template;
+            }
+
+            public void setTemplate(String template) {
+                this.template = template;
+            }
+        }
+    }
+
+    /**
+     * 字段映射：columns 为CSV各列的名称，行的列数必须与之相同；company 为分组所用的列；
+     * fields 中每一项把 source 列经 transform 转换后填入模板的 target 占位符，
+     * 或在加载模板时把 xpath 选中的节点替换为该占位符。启动时编译为按列下标的访问器
+     */
+    public static class Mapping {
+        private List<String> columns = new ArrayList<>(Arrays.asList("company", "user_id", "full_name", "register_date"));
+        private String company = "company";
+        private List<Field> fields = new ArrayList<>(Arrays.asList(
+            new Field("userId", "user_id", "number"),
+            new Field("firstName", "full_name", "name.given"),
+            new Field("lastName", "full_name", "name.surname"),
+            new Field("registerDate", "register_date", "date")));
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public void setColumns(List<String> columns) {
+            this.columns = columns;
+        }
+
+        public String getCompany() {
+            return company;
+        }
+
+        public void setCompany(String company) {
+            this.company = company;
+        }
+
+        public List<Field> getFields() {
+            return fields;
+        }
+
+        public void setFields(List<Field> fields) {
+            this.fields = fields;
+        }
+
+        /**
+         * transform 可取 text、number、name.given、name.surname、date 或 date('输出格式', '时区')
+         */
+        public static class Field {
+            private String target;
+            private String xpath;
+            private String source;
+            private String transform = "text";
+
+            public Field() {
+            }
+
+            Field(String target, String source, String transform) {
+                this.target = target;
+                this.source = source;
+                this.transform = transform;
+            }
+
+            public String getTarget() {
+                return target;
+            }
+
+            public void setTarget(String target) {
+                this.target = target;
+            }
+
+            public String getXpath() {
+                return xpath;
+            }
+
+            public void setXpath(String xpath) {
+                this.xpath = xpath;
+            }
+
+            public String getSource() {
+                return source;
+            }
+
+            public void setSource(String source) {
+                this.source = source;
+            }
+
+            public String getTransform() {
+                return transform;
+            }
+
+            public void setTransform(String transform) {
+                this.transform = transform;
+            }
+        }
+    }
+
+    /**
+     * 集群配置：多个节点共享 input 与 dir 目录，输入文件由取得它的节点移入 dir 并按 shardBytes 切分，
+     * 各节点以 workers 个线程认领分片并转换，最后由一个节点合并输出。
+     * 认领文件超过 lease 毫秒未更新时视为节点已失效，分片由其他节点重新转换
+     */
+    public static class Cluster {
+        private boolean enabled = false;
+        private String dir = "queue";
+        private String nodeId;
+        private int workers = 1;
+        private long shardBytes = 64L * 1024 * 1024;
+        private long lease = 30000;
+        private long pollDelay = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDir() {
+            return dir;
+        }
+
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+
+        /**
+         * 节点标识，只用于日志与认领文件内容；未配置时为 进程号@主机名
+         */
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public long getShardBytes() {
+            return shardBytes;
+        }
+
+        public void setShardBytes(long shardBytes) {
+            this.shardBytes = shardBytes;
+        }
+
+        public long getLease() {
+            return lease;
+        }
+
+        public void setLease(long lease) {
+            this.lease = lease;
+        }
+
+        public long getPollDelay() {
+            return pollDelay;
+        }
+
+        public void setPollDelay(long pollDelay) {
+            this.pollDelay = pollDelay;
+        }
+    }
+
+    /**
+     * 日志配置：控制台日志经有界队列异步写出（asyncQueueSize、neverBlock 由 logback-spring.xml 读取）；
+     * 每个文件最多逐行输出 rowErrorLimit 条错误日志，其余计入文件汇总；
+     * {@link #ROW_LOGGER} 为 DEBUG 时只为文件名匹配 debugFiles 的文件输出逐行日志，debugFiles 为空时匹配所有文件
+     */
+    public static class Logging {
+        private int asyncQueueSize = 8192;
+        private boolean neverBlock = false;
+        private int rowErrorLimit = 20;
+        private List<String> debugFiles = new ArrayList<>();
+
+        public int getAsyncQueueSize() {
+            return asyncQueueSize;
+        }
+
+        public void setAsyncQueueSize(int asyncQueueSize) {
+            this.asyncQueueSize = asyncQueueSize;
+        }
+
+        public boolean isNeverBlock() {
+            return neverBlock;
+        }
+
+        public void setNeverBlock(boolean neverBlock) {
+            this.neverBlock = neverBlock;
+        }
+
+        public int getRowErrorLimit() {
+            return rowErrorLimit;
+        }
+
+        public void setRowErrorLimit(int rowErrorLimit) {
+            this.rowErrorLimit = rowErrorLimit;
+        }
+
+        public List<String> getDebugFiles() {
+            return debugFiles;
+        }
+
+        public void setDebugFiles(List<String> debugFiles) {
+            this.debugFiles = debugFiles;
+        }
+    }
+
+    /**
+     * 去重配置：按 (公司, column 列) 识别重复行，policy 为 first-wins（保留第一行）、last-wins（保留最后一行）
+     * 或 drop（重复的键全部丢弃）。acrossFiles 为 true 时 first-wins 与 drop 还丢弃之前的文件中已出现的键，
+     * 配置 indexFile 时跨文件的键保存在该文件中，重启后仍然有效
+     */
+    public static class Dedup {
+        private boolean enabled = false;
+        private String column = "user_id";
+        private String policy = "first-wins";
+        private boolean acrossFiles = false;
+        private String indexFile;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public void setColumn(String column) {
+            this.column = column;
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(String policy) {
+            this.policy = policy;
+        }
+
+        public boolean isAcrossFiles() {
+            return acrossFiles;
+        }
+
+        public void setAcrossFiles(boolean acrossFiles) {
+            this.acrossFiles = acrossFiles;
+        }
+
+        public String getIndexFile() {
+            return indexFile;
+        }
+
+        public void setIndexFile(String indexFile) {
+            this.indexFile = indexFile;
+        }
+    }
+
     public static final class LogMessages {
         // 文件处理相关
         public static final String FILE_FOUND = "发现新文件: {}";
         public static final String FILE_PROCESSING_START = "开始处理文件:";
         public static final String FILE_PROCESSING_COMPLETE = "文件处理完成: {}";
+        public static final String ROWS_REJECTED = "文件 {} 有 {} 行数据被拒绝，已写入 {}";
+        public static final String FILE_LATENCY = "文件 {} 处理结束，排队 {} ms，总耗时 {} ms，当前等待队列 {} 个文件";
+        public static final String FILE_SUMMARY = "文件 {} 汇总: {} 行，错误行 {}，省略逐行错误日志 {} 条，{} 个公司渲染共 {} ms，最慢 {}";
         
         // CSV解析相关
         public static final String CSV_PARSING_START = "开始解析CSV文件:";
@@ -25,14 +720,36 @@ public class AppConfig {
         // 数据验证相关
         public static final String VALIDATION_PASSED = "数据验证通过，开始转换处理， 包含 {} 行数据";
         public static final String VALIDATION_FAILED = "数据验证失败，原因: {}";
-        public static final String RECORD_PROCESSING = "正在处理记录 -> 公司: {}, 用户ID: {}, 姓名: {}";
+        public static final String RECORD_PROCESSING = "正在处理记录 -> 公司: {}, 行号: {}";
         
         // XML转换相关
         public static final String XML_CONVERSION_START = "开始XML转换处理";
         public static final String XML_TEMPLATE_LOADING = "正在加载XML模板: {}";
         public static final String XML_TEMPLATE_LOADED = "XML模板加载完成";
+        public static final String XML_TEMPLATE_RELOADED = "XML模板已重新加载: {}";
+        public static final String XML_TEMPLATE_INVALID = "XML模板 {} 无法加载，继续使用原模板";
         public static final String XML_NODE_PROCESSING = "正在处理XML节点: {}";
         
+        // 流式处理相关
+        public static final String STREAMING_START = "以流式模式处理文件: {}";
+        public static final String STREAMING_COMPLETE = "流式处理完成: {}, 共 {} 行数据, {} 个公司";
+        public static final String SHARDS_WRITTEN = "文件 {} 按公司写出 {} 个分片";
+        public static final String DUPLICATES_DROPPED = "文件 {} 去重: 文件内重复 {} 行，与之前的文件重复 {} 行，剩余 {} 行";
+        public static final String DEDUP_INDEX_LOADED = "去重索引 {} 已载入 {} 个键";
+        
+        // 断点相关
+        public static final String FILE_ALREADY_DONE = "文件 {} 已处理完成，跳过";
+        public static final String CHECKPOINT_RESUME = "文件 {} 从断点继续处理，已完成 {} 行";
+        public static final String CHECKPOINT_INVALID = "文件 {} 的断点数据不完整，重新开始处理";
+        
+        // 集群相关
+        public static final String CLUSTER_JOB_CREATED = "文件 {} 已加入工作队列: {}, 共 {} 个分片";
+        public static final String CLUSTER_SHARD_CLAIMED = "节点 {} 认领 {} 的分片 {}";
+        public static final String CLUSTER_SHARD_DONE = "{} 的分片 {} 转换完成, 共 {} 行";
+        public static final String CLUSTER_CLAIM_EXPIRED = "{} 的认领 {} 已超时，由本节点接管";
+        public static final String CLUSTER_CLAIM_LOST = "{} 的认领 {} 已被其他节点接管，停止本节点的工作";
+        public static final String CLUSTER_MERGE_START = "合并 {} 的 {} 个分片";
+        
         // 错误处理相关
         public static final String ERROR_OCCURRED = "处理文件 {} 时发生错误";
         public static final String ERROR_RETRY = "第 {} 次重试处理";
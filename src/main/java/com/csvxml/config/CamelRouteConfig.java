@@ -1,17 +1,33 @@
 package com.csvxml.config;
 
+import com.csvxml.cluster.ClusterIntake;
+import com.csvxml.cluster.ClusterMerge;
 import com.csvxml.converter.CsvRecordConverterImpl;
+import com.csvxml.csv.CsvReaders;
+import com.csvxml.csv.MappedCsvDataFormat;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.processor.CheckpointGate;
+import com.csvxml.processor.Deduplicator;
+import com.csvxml.processor.FusedCsvConverter;
+import com.csvxml.processor.IngestTracker;
+import com.csvxml.processor.StreamingXmlProcessor;
 import com.csvxml.processor.StrictColumnValidator;
 import com.csvxml.processor.TemplateEnricher;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.dataformat.csv.CsvDataFormat;
 import org.apache.camel.Exchange;
 import org.apache.camel.TypeConversionException;
+import org.apache.camel.model.RouteDefinition;
+import org.apache.camel.spi.DataFormat;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class CamelRouteConfig extends RouteBuilder {
@@ -20,14 +36,44 @@ public class CamelRouteConfig extends RouteBuilder {
     private final StrictColumnValidator columnValidator;
     private final TemplateEnricher templateEnricher;
     private final CsvRecordConverterImpl csvRecordConverter;
+    private final FusedCsvConverter fusedCsvConverter;
+    private final Deduplicator deduplicator;
+    private final StreamingXmlProcessor streamingXmlProcessor;
+    private final IngestTracker ingestTracker;
+    private final CheckpointGate checkpointGate;
+    private final ThreadPoolExecutor ingestExecutor;
+    private final PipelineMetrics metrics;
+    private final ClusterIntake clusterIntake;
+    private final ClusterMerge clusterMerge;
+    private final AppConfig appConfig;
     
     public CamelRouteConfig(
             StrictColumnValidator columnValidator,
             TemplateEnricher templateEnricher,
-            CsvRecordConverterImpl csvRecordConverter) {
+            CsvRecordConverterImpl csvRecordConverter,
+            FusedCsvConverter fusedCsvConverter,
+            Deduplicator deduplicator,
+            StreamingXmlProcessor streamingXmlProcessor,
+            IngestTracker ingestTracker,
+            CheckpointGate checkpointGate,
+            ThreadPoolExecutor ingestExecutor,
+            PipelineMetrics metrics,
+            ClusterIntake clusterIntake,
+            ClusterMerge clusterMerge,
+            AppConfig appConfig) {
         this.columnValidator = columnValidator;
         this.templateEnricher = templateEnricher;
         this.csvRecordConverter = csvRecordConverter;
+        this.fusedCsvConverter = fusedCsvConverter;
+        this.deduplicator = deduplicator;
+        this.streamingXmlProcessor = streamingXmlProcessor;
+        this.ingestTracker = ingestTracker;
+        this.checkpointGate = checkpointGate;
+        this.ingestExecutor = ingestExecutor;
+        this.metrics = metrics;
+        this.clusterIntake = clusterIntake;
+        this.clusterMerge = clusterMerge;
+        this.appConfig = appConfig;
     }
     
     @Bean
@@ -41,16 +87,15 @@ public class CamelRouteConfig extends RouteBuilder {
     
     @Override
     public void configure() throws Exception {
-        // CSV格式相关异常处理
+        // CSV格式相关异常处理：数据错误重试也不会成功，不重试
         onException(IllegalArgumentException.class)
             .handled(true)
-            .maximumRedeliveries(2)
-            .redeliveryDelay(1000)
-            .logRetryAttempted(true)
+            .maximumRedeliveries(0)
             .process(exchange -> {
                 // 获取异常信息
                 Exception cause = exchange.getProperty(Exchange.EXCEPTION_CAUGHT, Exception.class);
                 String fileName = exchange.getIn().getHeader("CamelFileName", String.class);
+                metrics.recordError(cause);
                 
                 // 记录详细日志
                 logger.error("CSV处理错误 - 文件: {}, 错误: {}", fileName, cause.getMessage());
@@ -73,19 +118,18 @@ public class CamelRouteConfig extends RouteBuilder {
                 
                 exchange.getIn().setBody(errorOutput.toString());
             })
-            .log("CSV处理错误 - 第${header.CamelRedeliveryCounter}次重试")
+            .log("CSV处理错误 - 文件: ${header.CamelFileName}")
             .to("file://" + AppConfig.ERROR_DIR + "?fileName=${file:name.noext}_csv_error_${date:now:yyyyMMddHHmmss}.txt");
         
         // 数据转换异常处理
         onException(TypeConversionException.class)
             .handled(true)
-            .maximumRedeliveries(2)
-            .redeliveryDelay(1000)
-            .logRetryAttempted(true)
+            .maximumRedeliveries(0)
             .process(exchange -> {
                 // 获取异常信息
                 Exception cause = exchange.getProperty(Exchange.EXCEPTION_CAUGHT, Exception.class);
                 String fileName = exchange.getIn().getHeader("CamelFileName", String.class);
+                metrics.recordError(cause);
                 
                 // 记录详细日志
                 logger.error("数据转换错误 - 文件: {}, 错误: {}", fileName, cause.getMessage());
@@ -106,50 +150,161 @@ public class CamelRouteConfig extends RouteBuilder {
             .log("数据转换错误 - 文件: ${header.CamelFileName}")
             .to("file://" + AppConfig.ERROR_DIR + "?fileName=${file:name.noext}_conversion_error_${date:now:yyyyMMddHHmmss}.txt");
         
-        // 系统或运行时异常处理
-        onException(Exception.class)
+        // 读写文件的I/O异常可能是暂时的，重试两次
+        onException(IOException.class)
             .handled(true)
-            .maximumRedeliveries(1)
+            .maximumRedeliveries(2)
             .redeliveryDelay(1000)
             .logRetryAttempted(true)
-            .process(exchange -> {
-                // 获取异常信息
-                Exception cause = exchange.getProperty(Exchange.EXCEPTION_CAUGHT, Exception.class);
-                String fileName = exchange.getIn().getHeader("CamelFileName", String.class);
-                
-                // 记录详细日志
-                logger.error("系统错误 - 文件: {}, 错误类型: {}, 错误信息: {}", 
-                    fileName, cause.getClass().getName(), cause.getMessage());
-                
-                // 设置错误输出内容
-                StringBuilder errorOutput = new StringBuilder();
-                errorOutput.append("系统错误: ").append(cause.getMessage()).append("\n");
-                errorOutput.append("异常类型: ").append(cause.getClass().getName()).append("\n");
-                
-                // 添加堆栈跟踪
-                errorOutput.append("\n堆栈跟踪:\n");
-                for (StackTraceElement element : cause.getStackTrace()) {
-                    errorOutput.append(element.toString()).append("\n");
-                }
-                
-                exchange.getIn().setBody(errorOutput.toString());
-            })
+            .onRedelivery(metrics.retryCounter("io"))
+            .process(this::writeSystemError)
+            .log("I/O错误 - 文件: ${header.CamelFileName}")
+            .to("file://" + AppConfig.ERROR_DIR + "?fileName=${file:name.noext}_io_error_${date:now:yyyyMMddHHmmss}.txt");
+        
+        // 系统或运行时异常处理
+        onException(Exception.class)
+            .handled(true)
+            .maximumRedeliveries(0)
+            .process(this::writeSystemError)
             .log("系统错误 - 文件: ${header.CamelFileName}")
             .to("file://" + AppConfig.ERROR_DIR + "?fileName=${file:name.noext}_system_error_${date:now:yyyyMMddHHmmss}.txt");
 
-        from("file://" + AppConfig.INPUT_DIR + "?initialDelay=1000&delay=5000&readLock=none&delete=false&include=.*\\.csv")
-            .routeId("csvToXmlRoute")
-            .log(AppConfig.LogMessages.FILE_PROCESSING_START + " ${header.CamelFileName}")
-            .log(AppConfig.LogMessages.CSV_PARSING_START + " ${header.CamelFileName}")
-            .unmarshal(csvFormat())
-            .process(columnValidator)
-            .process(csvRecordConverter)
-            .log(AppConfig.LogMessages.XML_CONVERSION_START)
-            .process(templateEnricher)
-            .to("file://" + AppConfig.OUTPUT_DIR + "?fileName=${file:name.noext}_${date:now:yyyyMMddHHmmss}.xml")
-            .log(AppConfig.LogMessages.PROCESSING_COMPLETED + " ${header.CamelFileName}");
+        RouteDefinition route = from(inputUri())
+            .routeId("csvToXmlRoute");
+
+        if (appConfig.getIngest().isConcurrent()) {
+            // 多个文件并发处理；线程池队列满时由轮询线程处理文件，轮询随之暂停
+            route.threads().executorService(ingestExecutor);
+        }
+
+        if (appConfig.getCluster().isEnabled()) {
+            // 集群模式：输入文件移入工作队列后由各节点的工作线程转换，取得合并认领的节点经合并路由输出结果
+            route.log(AppConfig.LogMessages.FILE_PROCESSING_START + " ${header.CamelFileName}")
+                .process(clusterIntake);
+            route = from(ClusterMerge.ENDPOINT)
+                .routeId("clusterMergeRoute")
+                .process(ingestTracker)
+                .process(metrics.timed("merge", clusterMerge));
+        } else {
+            configureConversion(route);
+        }
+
+        if (!appConfig.getOutput().isEffectiveDirectWrite() && !appConfig.getOutput().isSharded()) {
+            route.process(metrics.startStage("write"))
+                .to("file://" + AppConfig.OUTPUT_DIR + "?fileName=" + AppConfig.OUTPUT_FILE_NAME)
+                .process(metrics.stopStage("write"));
+        }
+        // 直接写出模式下处理器已把结果写入输出目录，body为输出文件；分片模式下body为各分片文件
+        route.log(AppConfig.LogMessages.PROCESSING_COMPLETED + " ${header.CamelFileName}");
 
         // 启动时的日志
         logger.info("Camel路由配置完成，开始监听{}目录", AppConfig.INPUT_DIR);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 单节点的转换步骤
+     */
+    private void configureConversion(RouteDefinition route) {
+        route.process(ingestTracker)
+            .log(AppConfig.LogMessages.FILE_PROCESSING_START + " ${header.CamelFileName}");
+
+        if (appConfig.getCheckpoint().isEnabled()) {
+            // 已完成的文件不再转换，直接结束交换
+            route.process(checkpointGate)
+                .filter(exchangeProperty(CheckpointGate.ALREADY_DONE).isEqualTo(true))
+                    .stop()
+                .end();
+        }
+
+        if (appConfig.getStreaming().isEnabled()) {
+            // 流式模式：逐行转换，body为生成的临时XML文件
+            route.process(metrics.timed("stream", streamingXmlProcessor));
+            return;
+        }
+        if (appConfig.getCsv().isFused()) {
+            // 一次遍历完成读取、列数校验与记录转换，convert 阶段包括解析与校验
+            route.log(AppConfig.LogMessages.CSV_PARSING_START + " ${header.CamelFileName}")
+                .process(metrics.timed("convert", fusedCsvConverter));
+        } else {
+            // 内存映射读取器在原始字节上切分CSV，结果与 camel-csv 相同
+            DataFormat csv = appConfig.getCsv().isMapped() ? new MappedCsvDataFormat() : csvFormat();
+            route.log(AppConfig.LogMessages.CSV_PARSING_START + " ${header.CamelFileName}")
+                .process(metrics.startStage("parse"))
+                .process(this::decompressInput)
+                .unmarshal(csv)
+                .process(metrics.stopStage("parse"))
+                .process(metrics.timed("validate", columnValidator))
+                .process(metrics.timed("convert", csvRecordConverter));
+        }
+        if (appConfig.getDedup().isEnabled()) {
+            // 重复行在渲染之前删除
+            route.process(metrics.timed("dedup", deduplicator));
+        }
+        route.log(AppConfig.LogMessages.XML_CONVERSION_START)
+            .process(metrics.timed("render", templateEnricher));
+    }
+    
+    /**
+     * 压缩的输入文件替换为解压后的输入流，unmarshal 读取解压后的内容
+     */
+    private void decompressInput(Exchange exchange) throws IOException {
+        Path input = exchange.getIn().getBody(File.class).toPath();
+        if (CsvReaders.isCompressed(input)) {
+            exchange.getIn().setBody(CsvReaders.newInputStream(input));
+        }
+    }
+
+    /**
+     * 系统错误与I/O错误的错误文件内容：异常信息与堆栈
+     */
+    private void writeSystemError(Exchange exchange) {
+        // 获取异常信息
+        Exception cause = exchange.getProperty(Exchange.EXCEPTION_CAUGHT, Exception.class);
+        String fileName = exchange.getIn().getHeader("CamelFileName", String.class);
+        metrics.recordError(cause);
+        
+        // 记录详细日志
+        logger.error("系统错误 - 文件: {}, 错误类型: {}, 错误信息: {}", 
+            fileName, cause.getClass().getName(), cause.getMessage());
+        
+        // 设置错误输出内容
+        StringBuilder errorOutput = new StringBuilder();
+        errorOutput.append("系统错误: ").append(cause.getMessage()).append("\n");
+        errorOutput.append("异常类型: ").append(cause.getClass().getName()).append("\n");
+        
+        // 添加堆栈跟踪
+        errorOutput.append("\n堆栈跟踪:\n");
+        for (StackTraceElement element : cause.getStackTrace()) {
+            errorOutput.append(element.toString()).append("\n");
+        }
+        
+        exchange.getIn().setBody(errorOutput.toString());
+    }
+    
+    /**
+     * 输入目录端点：读锁确保只读取已写完的文件；处理中的文件由端点的 inProgress 仓库排除，
+     * 处理完成后移入 .camel 目录，因此同一文件不会被重复处理
+     */
+    private String inputUri() {
+        AppConfig.Ingest ingest = appConfig.getIngest();
+        StringBuilder uri = new StringBuilder("file://").append(AppConfig.INPUT_DIR)
+            .append("?initialDelay=1000&delay=").append(ingest.getPollDelay())
+            .append("&readLock=").append(ingest.getReadLock())
+            .append("&delete=false&include=.*\\.csv(\\.gz)?");
+        if ("changed".equals(ingest.getReadLock())) {
+            // 修改时间早于检查间隔的文件可直接获取，无需等待一个检查周期
+            uri.append("&readLockCheckInterval=").append(ingest.getReadLockCheckInterval())
+                .append("&readLockMinAge=").append(ingest.getReadLockCheckInterval());
+        }
+        if (appConfig.getCluster().isEnabled()) {
+            // 输入文件由 ClusterIntake 移入工作队列，端点不再移动文件；
+            // 移入失败（已被其他节点取走）的文件按名称、大小与修改时间只处理一次
+            uri.append("&noop=true&idempotentKey=${file:name}-${file:size}-${file:modified}");
+        }
+        if (ingest.isConcurrent()) {
+            // 单次轮询的文件数不超过线程池与队列的容量
+            uri.append("&maxMessagesPerPoll=").append(ingest.getWorkers() + ingest.getQueueCapacity());
+        }
+        return uri.toString();
+    }
+}
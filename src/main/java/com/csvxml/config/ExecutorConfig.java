@@ -0,0 +1,68 @@
+package com.csvxml.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableScheduling
+public class ExecutorConfig {
+    /**
+     * 分块渲染线程池，线程数由 app.parallel.workers 决定
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService renderExecutor(AppConfig appConfig) {
+        return newRenderExecutor(appConfig);
+    }
+
+    /**
+     * 创建渲染线程池，也用于不启动 Spring 上下文的批处理入口
+     */
+    public static ExecutorService newRenderExecutor(AppConfig appConfig) {
+        return Executors.newFixedThreadPool(appConfig.getParallel().getEffectiveWorkers(), daemonThreads("csvxml-render-"));
+    }
+
+    /**
+     * 输出压缩线程池：每个正在写出的压缩文件占用一个线程，与渲染同时进行
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService compressExecutor() {
+        return newCompressExecutor();
+    }
+
+    /**
+     * 创建输出压缩线程池，也用于不启动 Spring 上下文的批处理入口
+     */
+    public static ExecutorService newCompressExecutor() {
+        return Executors.newCachedThreadPool(daemonThreads("csvxml-compress-"));
+    }
+
+    /**
+     * 文件处理线程池：线程数固定，等待队列有界；队列满时由轮询线程自己处理文件，
+     * 从而暂停轮询形成背压
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor ingestExecutor(AppConfig appConfig) {
+        AppConfig.Ingest ingest = appConfig.getIngest();
+        int workers = Math.max(1, ingest.getWorkers());
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, ingest.getQueueCapacity())),
+            daemonThreads("csvxml-ingest-"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
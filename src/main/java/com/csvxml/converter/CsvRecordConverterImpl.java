@@ -1,6 +1,11 @@
 package com.csvxml.converter;
 
+import com.csvxml.csv.CsvRow;
+import com.csvxml.metrics.PipelineMetrics;
 import com.csvxml.model.CsvRecord;
+import com.csvxml.model.RecordBatch;
+import com.csvxml.service.RejectLog;
+import com.csvxml.service.RowQuarantine;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.springframework.stereotype.Component;
@@ -10,24 +15,74 @@ import java.util.List;
 @Component
 public class CsvRecordConverterImpl implements RecordConverter<CsvRecord>, Processor {
     
+    private final RowQuarantine quarantine;
+    private final RecordMapping mapping;
+    // CsvRecord 各属性对应的列，映射中没有该列时为 -1
+    private final int userIdColumn;
+    private final int fullNameColumn;
+    private final int registerDateColumn;
+    
+    public CsvRecordConverterImpl(RowQuarantine quarantine, RecordMapping mapping) {
+        this.quarantine = quarantine;
+        this.mapping = mapping;
+        this.userIdColumn = mapping.columnIndex("user_id");
+        this.fullNameColumn = mapping.columnIndex("full_name");
+        this.registerDateColumn = mapping.columnIndex("register_date");
+    }
+    
     @Override
     public List<CsvRecord> convert(List<List<String>> rows) {
         List<CsvRecord> records = new ArrayList<>();
+        int lineNumber = 0;
         for (List<String> row : rows) {
+            lineNumber++;
             records.add(new CsvRecord(
-                row.get(0),  //company
-                row.get(1),  // userId
-                row.get(2),   // fullName
-                row.get(3)  // registerDate
+                row.get(mapping.getCompanyColumn()),
+                value(row, userIdColumn),
+                value(row, fullNameColumn),
+                value(row, registerDateColumn),
+                lineNumber
             ));
         }
         return records;
     }
     
+    private static String value(List<String> row, int column) {
+        return column >= 0 ? row.get(column) : null;
+    }
+    
+    @Override
+    public RecordBatch convertBatch(List<List<String>> rows) {
+        return convertBatch(rows, null, false);
+    }
+    
+    /**
+     * 按字段映射转换所有行，跳过已被拒绝的行，校验与拒绝见 {@link RecordMapping#add}。
+     * release 为 true 时转换后逐行释放原始行，转换期间不同时保留两份完整数据
+     */
+    public RecordBatch convertBatch(List<List<String>> rows, RejectLog rejects, boolean release) {
+        RecordBatch batch = mapping.newBatch(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            int lineNumber = i + 1;
+            List<String> row = rows.get(i);
+            if (release) {
+                rows.set(i, null);
+            }
+            if (rejects != null && rejects.isRejected(lineNumber)) {
+                continue;
+            }
+            mapping.add(batch, CsvRow.of(row), lineNumber, rejects);
+        }
+        return batch;
+    }
+    
     @Override
     public void process(Exchange exchange) {
         @SuppressWarnings("unchecked")
         List<List<String>> rows = exchange.getIn().getBody(List.class);
-        exchange.getIn().setBody(convert(rows));
+        // 消息体中的行列表只由本交换持有，转换后即可释放
+        RecordBatch batch = convertBatch(rows, quarantine.forExchange(exchange), rows instanceof ArrayList);
+        exchange.getIn().setBody(batch);
+        exchange.setProperty(PipelineMetrics.ROW_COUNT, batch.size());
     }
-} 
\ No newline at end of file
+}
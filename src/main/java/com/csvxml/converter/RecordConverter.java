@@ -1,7 +1,13 @@
 package com.csvxml.converter;
 
+import com.csvxml.model.RecordBatch;
 import java.util.List;
 
 public interface RecordConverter<T> {
     List<T> convert(List<List<String>> rows);
-} 
\ No newline at end of file
+
+    /**
+     * 按列转换为记录批，不为每行创建对象
+     */
+    RecordBatch convertBatch(List<List<String>> rows);
+}
@@ -0,0 +1,361 @@
+package com.csvxml.converter;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.csv.CsvRow;
+import com.csvxml.model.NameParts;
+import com.csvxml.model.RecordBatch;
+import com.csvxml.service.DateParser;
+import com.csvxml.service.NameProcessor;
+import com.csvxml.service.RejectLog;
+import com.csvxml.util.TransformException;
+import org.springframework.stereotype.Component;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 编译后的字段映射：启动时把 app.mapping 中的列名与转换解析为列下标和转换类型，
+ * 每行只按数组顺序取列、转换并填入模板槽位，不做名称查找。
+ * 每个被引用的CSV列在记录批中占一列，存放类型由引用它的转换决定：
+ * 只用于 number 的列存为 long，只用于 date 的列存为纪元日，其余存为字符串。
+ * 日期字段格式化后的文本按纪元日缓存，同一天只格式化一次。线程安全。
+ */
+@Component
+public class RecordMapping {
+    private static final Pattern DATE_FORMAT = Pattern.compile(
+        "date\\(\\s*'([^']*)'\\s*(?:,\\s*'([^']*)'\\s*)?\\)");
+
+    /**
+     * 字段的转换方式
+     */
+    enum Transform {
+        TEXT, NUMBER, GIVEN_NAME, SURNAME, DATE
+    }
+
+    private final NameProcessor nameProcessor;
+    private final DateParser dateParser;
+    private final List<String> columnNames;
+    private final int companyColumn;
+    // 记录批中各列的存放类型与对应的CSV列下标
+    private final RecordBatch.ColumnType[] batchTypes;
+    private final int[] batchSources;
+    private final Field[] fields;
+
+    public RecordMapping(AppConfig appConfig, NameProcessor nameProcessor, DateParser dateParser) {
+        this.nameProcessor = nameProcessor;
+        this.dateParser = dateParser;
+        AppConfig.Mapping config = appConfig.getMapping();
+        this.columnNames = Collections.unmodifiableList(new ArrayList<>(config.getColumns()));
+        if (columnNames.isEmpty()) {
+            throw new IllegalStateException("app.mapping.columns must not be empty");
+        }
+        this.companyColumn = column(config.getCompany());
+
+        List<AppConfig.Mapping.Field> configured = config.getFields();
+        int[] batchColumnOf = new int[columnNames.size()];
+        Arrays.fill(batchColumnOf, -1);
+        List<RecordBatch.ColumnType> types = new ArrayList<>();
+        List<Integer> sources = new ArrayList<>();
+        fields = new Field[configured.size()];
+        for (int i = 0; i < fields.length; i++) {
+            AppConfig.Mapping.Field field = configured.get(i);
+            int source = column(field.getSource());
+            String transform = field.getTransform() != null ? field.getTransform().trim() : "text";
+            Transform kind = transformOf(transform);
+            RecordBatch.ColumnType type = kind == Transform.NUMBER ? RecordBatch.ColumnType.NUMBER
+                : kind == Transform.DATE ? RecordBatch.ColumnType.DATE : RecordBatch.ColumnType.TEXT;
+            int column = batchColumnOf[source];
+            if (column < 0) {
+                column = types.size();
+                batchColumnOf[source] = column;
+                types.add(type);
+                sources.add(source);
+            } else if (types.get(column) != type) {
+                // 同一列有不同用途时按字符串存放，日期在渲染时再解析
+                types.set(column, RecordBatch.ColumnType.TEXT);
+            }
+            fields[i] = new Field(targetOf(field, i), field.getXpath(), source, column, kind, dateFormat(transform));
+        }
+        this.batchTypes = types.toArray(new RecordBatch.ColumnType[0]);
+        this.batchSources = new int[sources.size()];
+        for (int column = 0; column < batchSources.length; column++) {
+            batchSources[column] = sources.get(column);
+        }
+    }
+
+    /**
+     * 每行应有的列数
+     */
+    public int getExpectedColumns() {
+        return columnNames.size();
+    }
+
+    public int getCompanyColumn() {
+        return companyColumn;
+    }
+
+    /**
+     * 列名对应的下标，不存在时返回 -1
+     */
+    public int columnIndex(String name) {
+        return columnNames.indexOf(name);
+    }
+
+    /**
+     * 记录批中存放该CSV列原文（字符串或数值）的列；映射未使用该列或按日期存放时返回 -1
+     */
+    public int batchColumn(String name) {
+        int source = columnNames.indexOf(name);
+        for (int column = 0; column < batchSources.length; column++) {
+            if (batchSources[column] == source) {
+                return batchTypes[column] != RecordBatch.ColumnType.DATE ? column : -1;
+            }
+        }
+        return -1;
+    }
+
+    public List<Field> getFields() {
+        return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    /**
+     * 创建与本映射对应的记录批
+     */
+    public RecordBatch newBatch(int capacity) {
+        return new RecordBatch(capacity, batchTypes);
+    }
+
+    /**
+     * 把列数正确的一行追加到记录批。宽松模式（rejects 不为 null）下在此按字段顺序校验姓名与日期，
+     * 错误的行连同原始各列写入拒绝文件并返回 false，不登记其公司，输出中的公司顺序与只按其余行分组时相同；
+     * 严格模式下日期解析失败的行保留原文，渲染到该行时再报错，错误顺序与逐行渲染时相同
+     */
+    public boolean add(RecordBatch batch, CsvRow row, int lineNumber, RejectLog rejects) {
+        String company = row.get(companyColumn);
+        if (rejects != null) {
+            try {
+                validate(row);
+            } catch (TransformException e) {
+                rejects.reject(lineNumber, e.getError(), e.getMessage(), row);
+                return false;
+            }
+        }
+        int r = batch.addRow(company, lineNumber);
+        for (int column = 0; column < batchTypes.length; column++) {
+            String value = row.get(batchSources[column]);
+            if (batchTypes[column] != RecordBatch.ColumnType.DATE) {
+                batch.setText(column, r, value);
+                continue;
+            }
+            LocalDate date;
+            try {
+                date = dateParser.parseDate(value);
+            } catch (TransformException e) {
+                date = null;
+            }
+            batch.setDate(column, r, value, date);
+        }
+        return true;
+    }
+
+    private void validate(CsvRow row) {
+        for (Field field : fields) {
+            switch (field.transform) {
+                case GIVEN_NAME:
+                case SURNAME:
+                    nameProcessor.parse(row.get(field.source));
+                    break;
+                case DATE:
+                    dateParser.parseDate(row.get(field.source));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 按字段顺序转换一行并填入模板槽位，slots 与 {@link #getFields()} 一一对应，为 -1 的字段不输出；
+     * 同一列的姓名只拆分一次
+     */
+    public void fill(RecordBatch batch, int row, int[] slots, String[] values) {
+        int nameColumn = -1;
+        NameParts name = null;
+        for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            String value;
+            switch (field.transform) {
+                case GIVEN_NAME:
+                case SURNAME:
+                    if (field.column != nameColumn) {
+                        name = nameProcessor.parse(batch.getText(field.column, row));
+                        nameColumn = field.column;
+                    }
+                    value = field.transform == Transform.GIVEN_NAME ? name.getGiven() : name.getSurname();
+                    break;
+                case DATE:
+                    value = dateText(field, batch, row);
+                    break;
+                default:
+                    value = batch.getText(field.column, row);
+                    break;
+            }
+            if (slots[i] >= 0) {
+                values[slots[i]] = value;
+            }
+        }
+    }
+
+    private String dateText(Field field, RecordBatch batch, int row) {
+        if (batchTypes[field.column] != RecordBatch.ColumnType.DATE || !batch.hasDate(field.column, row)) {
+            return formatDate(field, dateOf(batch, field.column, row));
+        }
+        int day = batch.getEpochDay(field.column, row);
+        String text = field.dateTexts.get(day);
+        if (text == null) {
+            text = formatDate(field, LocalDate.ofEpochDay(day));
+            field.dateTexts.put(day, text);
+        }
+        return text;
+    }
+
+    private LocalDate dateOf(RecordBatch batch, int column, int row) {
+        if (batchTypes[column] != RecordBatch.ColumnType.DATE) {
+            return dateParser.parseDate(batch.getText(column, row));
+        }
+        // 未能解析的日期按原文再解析一次，抛出与逐行处理相同的错误
+        return batch.hasDate(column, row) ? batch.getDate(column, row) : dateParser.parseDate(batch.getRawDate(column, row));
+    }
+
+    private String formatDate(Field field, LocalDate date) {
+        if (field.dateFormat == null) {
+            return dateParser.toInstant(date).toString();
+        }
+        return field.dateFormat.format(date.atStartOfDay(field.dateFormat.getZone()));
+    }
+
+    private int column(String name) {
+        int index = columnNames.indexOf(name);
+        if (index < 0) {
+            throw new IllegalStateException("Unknown mapping column: " + name);
+        }
+        return index;
+    }
+
+    private static String targetOf(AppConfig.Mapping.Field field, int index) {
+        if (field.getTarget() != null && !field.getTarget().isEmpty()) {
+            return field.getTarget();
+        }
+        if (field.getXpath() == null) {
+            throw new IllegalStateException("Mapping field " + (index + 1) + " needs a target or an xpath");
+        }
+        // 只指定 xpath 的字段使用生成的占位符名
+        return "mapping." + (index + 1);
+    }
+
+    private static Transform transformOf(String transform) {
+        switch (transform) {
+            case "text":
+                return Transform.TEXT;
+            case "number":
+                return Transform.NUMBER;
+            case "name.given":
+            case "name.first":
+                return Transform.GIVEN_NAME;
+            case "name.surname":
+            case "name.last":
+                return Transform.SURNAME;
+            case "date":
+                return Transform.DATE;
+            default:
+                if (DATE_FORMAT.matcher(transform).matches()) {
+                    return Transform.DATE;
+                }
+                throw new IllegalStateException("Unknown mapping transform: " + transform);
+        }
+    }
+
+    /**
+     * date('格式', '时区') 对应的格式化器；默认的 date 与原输出一致，为 null
+     */
+    private static DateTimeFormatter dateFormat(String transform) {
+        Matcher matcher = DATE_FORMAT.matcher(transform);
+        if (!matcher.matches()) {
+            return null;
+        }
+        ZoneId zone = matcher.group(2) != null ? ZoneId.of(matcher.group(2)) : ZoneId.systemDefault();
+        return DateTimeFormatter.ofPattern(matcher.group(1)).withZone(zone);
+    }
+
+    /**
+     * 编译后的一个字段
+     */
+    public static final class Field {
+        private final String target;
+        private final String xpath;
+        private final int source;
+        private final int column;
+        private final Transform transform;
+        private final DateTimeFormatter dateFormat;
+        private final DateTexts dateTexts;
+
+        private Field(String target, String xpath, int source, int column, Transform transform,
+                      DateTimeFormatter dateFormat) {
+            this.target = target;
+            this.xpath = xpath;
+            this.source = source;
+            this.column = column;
+            this.transform = transform;
+            this.dateFormat = dateFormat;
+            this.dateTexts = transform == Transform.DATE ? new DateTexts() : null;
+        }
+
+        /**
+         * 模板中的占位符名
+         */
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * 加载模板时替换为占位符的节点，未配置时为 null
+         */
+        public String getXpath() {
+            return xpath;
+        }
+    }
+
+    /**
+     * 按纪元日缓存的日期文本：直接映射，冲突时覆盖。条目不可变，渲染线程无需加锁即可读写
+     */
+    private static final class DateTexts {
+        private static final int SIZE = 4096;
+
+        private final Entry[] entries = new Entry[SIZE];
+
+        String get(int day) {
+            Entry entry = entries[day & (SIZE - 1)];
+            return entry != null && entry.day == day ? entry.text : null;
+        }
+
+        void put(int day, String text) {
+            entries[day & (SIZE - 1)] = new Entry(day, text);
+        }
+
+        private static final class Entry {
+            private final int day;
+            private final String text;
+
+            Entry(int day, String text) {
+                this.day = day;
+                this.text = text;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.csvxml.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 基于 Commons-CSV 的读取器，用于内存映射读取器不支持的字符集；位置为字符位置
+ */
+public final class CommonsCsvReader implements CsvRowReader {
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.withDelimiter(',');
+
+    private final CSVParser parser;
+    private final Iterator<CSVRecord> records;
+    private final Row row = new Row();
+
+    /**
+     * @param reader 已跳过 offset 个字符的输入
+     * @param offset 输入开头对应的字符位置
+     * @param recordNumber 第一行的行号
+     */
+    public CommonsCsvReader(Reader reader, long offset, long recordNumber) throws IOException {
+        this.parser = new CSVParser(reader, CSV_FORMAT, offset, recordNumber);
+        this.records = parser.iterator();
+    }
+
+    @Override
+    public CsvRow next() throws IOException {
+        try {
+            if (!records.hasNext()) {
+                return null;
+            }
+            row.record = records.next();
+        } catch (IllegalStateException e) {
+            // 迭代器把读取与格式错误包装为 IllegalStateException，还原为 CSVParser 抛出的 IOException
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private static final class Row implements CsvRow {
+        private CSVRecord record;
+
+        @Override
+        public int size() {
+            return record.size();
+        }
+
+        @Override
+        public String get(int index) {
+            return record.get(index);
+        }
+
+        @Override
+        public List<String> toList() {
+            List<String> values = new ArrayList<>(record.size());
+            record.forEach(values::add);
+            return values;
+        }
+
+        @Override
+        public long getPosition() {
+            return record.getCharacterPosition();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.csvxml.csv;
+
+import java.io.IOException;
+
+/**
+ * CSV格式错误，例如引号未闭合；与 Commons-CSV 相同是 IOException，但可与读取失败区分
+ */
+public class CsvFormatException extends IOException {
+
+    public CsvFormatException(String message) {
+        super(message);
+    }
+}
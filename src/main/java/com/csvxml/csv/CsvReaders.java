@@ -0,0 +1,178 @@
+package com.csvxml.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 按配置与字符集选择CSV读取器；gzip 压缩的文件按文件头识别，读取时流式解压
+ */
+public final class CsvReaders {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CsvReaders() {
+    }
+
+    /**
+     * 是否使用内存映射读取器；此时行位置为字节位置，否则为字符位置
+     */
+    public static boolean isMapped(boolean mappedEnabled, Charset charset) {
+        return mappedEnabled && MappedCsvReader.supports(charset);
+    }
+
+    /**
+     * 该文件是否使用内存映射读取器；压缩文件总是按字符流读取
+     */
+    public static boolean isMapped(Path file, boolean mappedEnabled, Charset charset) throws IOException {
+        return isMapped(mappedEnabled, charset) && !isCompressed(file);
+    }
+
+    /**
+     * 文件是否以 gzip 文件头开始
+     */
+    public static boolean isCompressed(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    /**
+     * 读取文件内容的输入流，压缩文件返回解压后的内容
+     */
+    public static InputStream newInputStream(Path file) throws IOException {
+        return isCompressed(file) ? gzip(file) : new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+    }
+
+    private static InputStream gzip(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        try {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 从 offset 处打开文件，offset 的单位由 {@link #isMapped(Path, boolean, Charset)} 决定
+     *
+     * @param recordNumber 第一行的行号
+     */
+    public static CsvRowReader open(Path file, Charset charset, boolean mappedEnabled,
+                                    long offset, long recordNumber) throws IOException {
+        boolean compressed = isCompressed(file);
+        if (!compressed && isMapped(mappedEnabled, charset)) {
+            return MappedCsvReader.open(file, charset, offset);
+        }
+        // 与 Files.newBufferedReader 相同，遇到无法解码的字节时报错
+        Reader reader = compressed
+            ? new BufferedReader(new InputStreamReader(gzip(file), charset.newDecoder()), BUFFER_SIZE)
+            : Files.newBufferedReader(file, charset);
+        try {
+            long remaining = offset;
+            while (remaining > 0) {
+                long skipped = reader.skip(remaining);
+                if (skipped <= 0) {
+                    throw new IOException("输入文件短于断点位置: " + file);
+                }
+                remaining -= skipped;
+            }
+            return new CommonsCsvReader(reader, offset, recordNumber);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 只读取文件中从字节位置 start 到 end 的行，start 与 end 必须是一行的开头；
+     * 行位置只在内存映射读取时为文件中的字节位置，不能用于断点。压缩文件不能切分，只能读取整个文件
+     *
+     * @param recordNumber 第一行的行号
+     */
+    public static CsvRowReader openRange(Path file, Charset charset, boolean mappedEnabled,
+                                         long start, long end, long recordNumber) throws IOException {
+        if (isCompressed(file)) {
+            if (start != 0 || end != Files.size(file)) {
+                throw new IllegalArgumentException("压缩文件只能整体读取: " + file);
+            }
+            return open(file, charset, false, 0, recordNumber);
+        }
+        if (isMapped(mappedEnabled, charset)) {
+            return MappedCsvReader.open(file, charset, start, end);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            channel.position(start);
+            InputStream in = new RangeInputStream(Channels.newInputStream(channel), end - start);
+            return new CommonsCsvReader(new BufferedReader(new InputStreamReader(in, charset)), 0, recordNumber);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 最多读取 remaining 个字节的输入流
+     */
+    private static final class RangeInputStream extends FilterInputStream {
+        private long remaining;
+
+        RangeInputStream(InputStream in, long remaining) {
+            super(in);
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.csvxml.csv;
+
+import java.util.List;
+
+/**
+ * CSV中的一行。读取器可能复用同一个对象，内容只在读取下一行之前有效
+ */
+public interface CsvRow {
+
+    int size();
+
+    /**
+     * 第 index 列的值，调用时才解码为字符串
+     */
+    String get(int index);
+
+    /**
+     * 所有列的值，返回的列表不随读取器变化
+     */
+    List<String> toList();
+
+    /**
+     * 本行在输入中的起始位置，可用于从该行重新开始读取
+     */
+    long getPosition();
+
+    /**
+     * 由已读出的列值构成的行，位置为 -1
+     */
+    static CsvRow of(List<String> values) {
+        return new ListRow(values);
+    }
+}
@@ -0,0 +1,15 @@
+package com.csvxml.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 逐行读取CSV，格式与 CSVFormat.DEFAULT 相同：逗号分隔、双引号包围、忽略空行
+ */
+public interface CsvRowReader extends Closeable {
+
+    /**
+     * 读取下一行，输入结束时返回 null；格式错误时与 Commons-CSV 相同抛出 {@link IOException}
+     */
+    CsvRow next() throws IOException;
+}
@@ -0,0 +1,34 @@
+package com.csvxml.csv;
+
+import java.util.List;
+
+/**
+ * 包装列值列表的行，用于 unmarshal 得到的 List&lt;List&lt;String&gt;&gt;
+ */
+final class ListRow implements CsvRow {
+    private final List<String> values;
+
+    ListRow(List<String> values) {
+        this.values = values;
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public String get(int index) {
+        return values.get(index);
+    }
+
+    @Override
+    public List<String> toList() {
+        return values;
+    }
+
+    @Override
+    public long getPosition() {
+        return -1;
+    }
+}
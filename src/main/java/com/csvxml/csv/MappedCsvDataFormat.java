@@ -0,0 +1,100 @@
+package com.csvxml.csv;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.component.file.GenericFile;
+import org.apache.camel.spi.DataFormat;
+import org.apache.camel.spi.DataFormatName;
+import org.apache.camel.support.ObjectHelper;
+import org.apache.camel.support.service.ServiceSupport;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 使用 {@link MappedCsvReader} 的CSV数据格式，可替代 camel-csv 的 marshal 与 unmarshal，unmarshal 的结果同为 List&lt;List&lt;String&gt;&gt;。
+ * 消息体为文件时直接映射文件，不经过输入流；字符集不受支持时使用 Commons-CSV 读取。
+ */
+public class MappedCsvDataFormat extends ServiceSupport implements DataFormat, DataFormatName {
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT;
+
+    @Override
+    public String getDataFormatName() {
+        return "mapped-csv";
+    }
+
+    /**
+     * 与 camel-csv 相同按 CSVFormat.DEFAULT 输出：消息体的每个元素为一行，元素为 Map 时取其值
+     */
+    @Override
+    public void marshal(Exchange exchange, Object graph, OutputStream stream) throws Exception {
+        CSVPrinter printer = CSV_FORMAT.print(new OutputStreamWriter(stream, charsetOf(exchange)));
+        for (Object row : ObjectHelper.createIterable(graph, null)) {
+            Object values = row instanceof Map ? ((Map<?, ?>) row).values() : row;
+            printer.printRecord(ObjectHelper.createIterable(values, null));
+        }
+        printer.flush();
+    }
+
+    @Override
+    public Object unmarshal(Exchange exchange, InputStream stream) throws Exception {
+        Charset charset = charsetOf(exchange);
+        File file = fileOf(exchange.getIn().getBody());
+        try (CsvRowReader reader = open(file, stream, charset)) {
+            List<List<String>> rows = new ArrayList<>();
+            for (CsvRow row = reader.next(); row != null; row = reader.next()) {
+                rows.add(row.toList());
+            }
+            return rows;
+        }
+    }
+
+    private static CsvRowReader open(File file, InputStream stream, Charset charset) throws Exception {
+        if (!MappedCsvReader.supports(charset)) {
+            return new CommonsCsvReader(new InputStreamReader(stream, charset), 0, 1);
+        }
+        if (file != null) {
+            return MappedCsvReader.open(file.toPath(), charset, 0);
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            content.write(buffer, 0, read);
+        }
+        return MappedCsvReader.wrap(content.toByteArray(), charset);
+    }
+
+    /**
+     * 文件端点的消息体对应的本地文件，其他消息体返回 null
+     */
+    private static File fileOf(Object body) {
+        if (body instanceof GenericFile && ((GenericFile<?>) body).getFile() instanceof File) {
+            return (File) ((GenericFile<?>) body).getFile();
+        }
+        return body instanceof File ? (File) body : null;
+    }
+
+    private static Charset charsetOf(Exchange exchange) {
+        String charsetName = exchange.getProperty(Exchange.CHARSET_NAME, String.class);
+        return charsetName != null ? Charset.forName(charsetName) : Charset.defaultCharset();
+    }
+
+    @Override
+    protected void doStart() {
+        // 无状态，无需启动
+    }
+
+    @Override
+    protected void doStop() {
+        // 无状态，无需停止
+    }
+}
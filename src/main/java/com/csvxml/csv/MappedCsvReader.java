@@ -0,0 +1,409 @@
+package com.csvxml.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 在原始字节上切分CSV的读取器：文件按窗口内存映射，只扫描分隔符、引号与换行，
+ * 列值在 {@link CsvRow#get} 时才解码为字符串。扫描时每次读取8个字节，用位运算查找特殊字符。
+ * 位置为字节位置，可直接从断点处映射。
+ * 只支持逗号、引号与换行均为单字节ASCII且不会出现在多字节字符中的字符集。
+ */
+public final class MappedCsvReader implements CsvRowReader {
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    // 8个字节中同时查找某个字节值所用的常量
+    private static final long DELIMITERS = 0x2C2C2C2C2C2C2C2CL;
+    private static final long QUOTES = 0x2222222222222222L;
+    private static final long CRS = 0x0D0D0D0D0D0D0D0DL;
+    private static final long LFS = 0x0A0A0A0A0A0A0A0AL;
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    // 结果：读到一行 / 输入结束 / 当前窗口不够，需要重新映射
+    private static final int RECORD = 0;
+    private static final int END = 1;
+    private static final int MORE = 2;
+
+    private final FileChannel channel;
+    private final long inputSize;
+    private final Charset charset;
+    private final Row row = new Row();
+
+    private ByteBuffer window;
+    private long windowStart;
+    private int windowSize = WINDOW_SIZE;
+    private int pos;
+    private byte[] scratch = new byte[256];
+
+    private MappedCsvReader(FileChannel channel, long inputSize, Charset charset, ByteBuffer window, long windowStart) {
+        this.channel = channel;
+        this.inputSize = inputSize;
+        this.charset = charset;
+        this.window = window;
+        this.windowStart = windowStart;
+    }
+
+    /**
+     * 从字节位置 offset 开始读取文件
+     */
+    public static MappedCsvReader open(Path file, Charset charset, long offset) throws IOException {
+        return open(file, charset, offset, Long.MAX_VALUE);
+    }
+
+    /**
+     * 读取文件中从字节位置 offset 到 end 的内容，end 之后的内容视为不存在；end 应为一行的开头
+     */
+    public static MappedCsvReader open(Path file, Charset charset, long offset, long end) throws IOException {
+        return open(file, charset, offset, end, WINDOW_SIZE);
+    }
+
+    /**
+     * 指定初始窗口大小，测试中用小窗口检查跨窗口的行
+     */
+    static MappedCsvReader open(Path file, Charset charset, long offset, long end, int windowSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = Math.min(channel.size(), end);
+            if (offset > size) {
+                throw new IOException("输入文件短于断点位置: " + file);
+            }
+            MappedCsvReader reader = new MappedCsvReader(channel, size, charset, null, offset);
+            reader.windowSize = windowSize;
+            reader.map(offset);
+            return reader;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 读取内存中的内容，例如非文件的消息体
+     */
+    public static MappedCsvReader wrap(byte[] content, Charset charset) {
+        return new MappedCsvReader(null, content.length, charset,
+            ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN), 0);
+    }
+
+    /**
+     * 逗号、引号与换行在该字符集中按ASCII单字节编码，且不会出现在多字节字符内部
+     */
+    public static boolean supports(Charset charset) {
+        String name = charset.name();
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+            || charset.equals(StandardCharsets.ISO_8859_1) || "GBK".equals(name) || "GB18030".equals(name);
+    }
+
+    @Override
+    public CsvRow next() throws IOException {
+        while (true) {
+            int result = parse();
+            if (result == RECORD) {
+                return row;
+            }
+            if (result == END) {
+                return null;
+            }
+            remap();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // 映射区域在缓冲区被回收时释放
+        window = null;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * 从 pos 开始解析一行；行跨越窗口末尾且输入未结束时返回 MORE，由调用方从行首重新映射
+     */
+    private int parse() throws CsvFormatException {
+        ByteBuffer buf = window;
+        int limit = buf.limit();
+        boolean last = windowStart + limit >= inputSize;
+        int p = pos;
+
+        // 空行
+        while (p < limit && isLineEnd(buf.get(p))) {
+            p++;
+        }
+        pos = p;
+        if (p == limit) {
+            return last ? END : MORE;
+        }
+
+        row.start(windowStart + p);
+        while (true) {
+            if (p == limit) {
+                if (!last) {
+                    return MORE;
+                }
+                // 分隔符后直接结束，最后一列为空
+                row.add(p, p, false);
+                break;
+            }
+            if (buf.get(p) == QUOTE) {
+                int q = p + 1;
+                boolean escaped = false;
+                while (true) {
+                    q = skipTo(buf, q, limit, true);
+                    if (q == limit) {
+                        if (!last) {
+                            return MORE;
+                        }
+                        throw new CsvFormatException(
+                            "(position " + row.getPosition() + ") EOF reached before encapsulated token finished");
+                    }
+                    if (buf.get(q) == QUOTE) {
+                        if (q + 1 == limit && !last) {
+                            return MORE;
+                        }
+                        if (q + 1 < limit && buf.get(q + 1) == QUOTE) {
+                            escaped = true;
+                            q += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    q++;
+                }
+                row.add(p + 1, q, escaped);
+                p = q + 1;
+                // 与 Commons-CSV 一致，结束引号与分隔符之间允许 Character.isWhitespace 的空白
+                while (p < limit && isBlank(buf.get(p))) {
+                    p++;
+                }
+                if (p < limit && buf.get(p) < 0) {
+                    // 非ASCII字符：解码到分隔符或行尾，全部为空白（如全角空格）时跳过
+                    int end = p;
+                    while (end < limit && buf.get(end) != DELIMITER && !isLineEnd(buf.get(end))) {
+                        end++;
+                    }
+                    if (end == limit && !last) {
+                        return MORE;
+                    }
+                    if (!isWhitespace(buf, p, end)) {
+                        throw invalidChar(windowStart + p);
+                    }
+                    p = end;
+                }
+                if (p == limit) {
+                    if (!last) {
+                        return MORE;
+                    }
+                    break;
+                }
+                byte b = buf.get(p);
+                if (b == DELIMITER) {
+                    p++;
+                    continue;
+                }
+                if (isLineEnd(b)) {
+                    p++;
+                    break;
+                }
+                throw invalidChar(windowStart + p);
+            }
+
+            int q = skipTo(buf, p, limit, false);
+            byte b = 0;
+            while (q < limit) {
+                b = buf.get(q);
+                if (b == DELIMITER || isLineEnd(b)) {
+                    break;
+                }
+                q++;
+            }
+            if (q == limit && !last) {
+                return MORE;
+            }
+            row.add(p, q, false);
+            if (q == limit) {
+                p = q;
+                break;
+            }
+            p = q + 1;
+            if (b != DELIMITER) {
+                // CRLF 中的 LF 作为空行在下一行开头跳过
+                break;
+            }
+        }
+        pos = p;
+        return RECORD;
+    }
+
+    /**
+     * 从当前行首重新映射；一行大于窗口时扩大窗口
+     */
+    private void remap() throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("内存中的内容已全部读取");
+        }
+        if (pos == 0) {
+            windowSize = (int) Math.min(MAX_WINDOW_SIZE, (long) windowSize * 2);
+        }
+        map(windowStart + pos);
+    }
+
+    private void map(long start) throws IOException {
+        long length = Math.min(windowSize, inputSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = start;
+        pos = 0;
+    }
+
+    /**
+     * 按8字节跳过不含目标字符的部分，返回第一个可能是目标字符的位置：
+     * quoted 为 true 时查找引号，否则查找逗号与换行。剩余不足8字节时原样返回
+     */
+    private static int skipTo(ByteBuffer buf, int from, int limit, boolean quoted) {
+        int q = from;
+        while (q + 8 <= limit) {
+            long word = buf.getLong(q);
+            long found = quoted ? matches(word, QUOTES)
+                : matches(word, DELIMITERS) | matches(word, CRS) | matches(word, LFS);
+            if (found != 0) {
+                // 小端序下最低的命中位对应最靠前的字节；更高位可能误报，但不影响最低位
+                return q + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+            q += 8;
+        }
+        return q;
+    }
+
+    /**
+     * 等于 pattern 中字节值的字节，其最高位置1
+     */
+    private static long matches(long word, long pattern) {
+        long x = word ^ pattern;
+        return (x - ONES) & ~x & HIGH_BITS;
+    }
+
+    private static boolean isLineEnd(byte b) {
+        return b == LF || b == CR;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == 0x0B || b == '\f' || (b >= 0x1C && b <= 0x1F);
+    }
+
+    /**
+     * from 到 to 的字节解码后是否全部为空白；无法解码的字节替换为 U+FFFD，不是空白
+     */
+    private boolean isWhitespace(ByteBuffer buf, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = buf.get(i);
+        }
+        String text = new String(bytes, charset);
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static CsvFormatException invalidChar(long position) {
+        return new CsvFormatException("(position " + position + ") invalid char between encapsulated token and delimiter");
+    }
+
+    /**
+     * 复用的行对象，记录各列在当前窗口中的字节范围
+     */
+    private final class Row implements CsvRow {
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private boolean[] escaped = new boolean[8];
+        private int size;
+        private long position;
+
+        void start(long position) {
+            this.position = position;
+            this.size = 0;
+        }
+
+        void add(int start, int end, boolean hasEscapedQuotes) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                escaped = Arrays.copyOf(escaped, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            escaped[size] = hasEscapedQuotes;
+            size++;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index >= size) {
+                throw new ArrayIndexOutOfBoundsException(index);
+            }
+            int length = ends[index] - starts[index];
+            if (length == 0) {
+                return "";
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.position(starts[index]);
+            window.get(scratch, 0, length);
+            if (escaped[index]) {
+                length = unescape(scratch, length);
+            }
+            return new String(scratch, 0, length, charset);
+        }
+
+        @Override
+        public List<String> toList() {
+            String[] values = new String[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = get(i);
+            }
+            return Arrays.asList(values);
+        }
+
+        @Override
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * 把成对的引号还原为一个
+         */
+        private int unescape(byte[] bytes, int length) {
+            int out = 0;
+            for (int i = 0; i < length; i++) {
+                bytes[out++] = bytes[i];
+                if (bytes[i] == QUOTE) {
+                    i++;
+                }
+            }
+            return out;
+        }
+    }
+}
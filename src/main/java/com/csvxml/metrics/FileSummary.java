@@ -0,0 +1,123 @@
+package com.csvxml.metrics;
+
+import com.csvxml.util.TransformError;
+import org.apache.camel.Exchange;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 单个文件的日志汇总：按类别统计的错误行数、各公司的渲染耗时，以及逐行错误日志的限流。
+ * 文件处理结束时输出为一行汇总日志，代替逐行日志。可被多个渲染线程同时调用。
+ */
+public final class FileSummary {
+    /** 交换属性：当前文件的日志汇总 */
+    public static final String PROPERTY = "CsvXmlFileSummary";
+    // 汇总中列出的耗时最长的公司数
+    private static final int SLOWEST_COMPANIES = 10;
+
+    private final String fileName;
+    private final int rowErrorLimit;
+    private final boolean rowDetail;
+    private final AtomicInteger rowErrors = new AtomicInteger();
+    private final Map<TransformError, Integer> errors = new EnumMap<>(TransformError.class);
+    private final Map<String, CompanyTime> companies = new HashMap<>();
+
+    /**
+     * @param rowErrorLimit 最多逐行输出的错误日志条数，其余只计数
+     * @param rowDetail     是否输出逐行的调试日志
+     */
+    public FileSummary(String fileName, int rowErrorLimit, boolean rowDetail) {
+        this.fileName = fileName;
+        this.rowErrorLimit = rowErrorLimit;
+        this.rowDetail = rowDetail;
+    }
+
+    /**
+     * 交换中的日志汇总；未经过 IngestTracker 的交换（如基准测试）返回不限流、不输出的汇总
+     */
+    public static FileSummary of(Exchange exchange) {
+        FileSummary summary = exchange.getProperty(PROPERTY, FileSummary.class);
+        if (summary == null) {
+            summary = new FileSummary(exchange.getIn().getHeader(Exchange.FILE_NAME, String.class), Integer.MAX_VALUE, false);
+            exchange.setProperty(PROPERTY, summary);
+        }
+        return summary;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public boolean isRowDetail() {
+        return rowDetail;
+    }
+
+    /**
+     * 遇到一行错误时调用，返回是否仍应逐行输出该错误的日志；错误行数另由 {@link #addErrors} 统计
+     */
+    public boolean logRowError() {
+        return rowErrors.incrementAndGet() <= rowErrorLimit;
+    }
+
+    /**
+     * 按类别累加错误行数：严格模式下由校验器在文件失败时记录，宽松模式下来自拒绝记录
+     */
+    public synchronized void addErrors(TransformError error, int rows) {
+        errors.merge(error, rows, Integer::sum);
+    }
+
+    /**
+     * 累加一个公司（或其中一块）的渲染耗时
+     */
+    public synchronized void company(String company, int rows, long nanos) {
+        CompanyTime time = companies.computeIfAbsent(company, key -> new CompanyTime());
+        time.rows += rows;
+        time.nanos += nanos;
+    }
+
+    public synchronized Map<TransformError, Integer> getErrors() {
+        return new EnumMap<>(errors);
+    }
+
+    /**
+     * 未逐行输出日志的错误行数
+     */
+    public int getSuppressedErrors() {
+        return Math.max(0, rowErrors.get() - rowErrorLimit);
+    }
+
+    public synchronized int getCompanyCount() {
+        return companies.size();
+    }
+
+    public synchronized long getRenderMillis() {
+        long nanos = 0;
+        for (CompanyTime time : companies.values()) {
+            nanos += time.nanos;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * 耗时最长的若干公司，格式为 公司=耗时ms/行数
+     */
+    public synchronized String slowestCompanies() {
+        List<Map.Entry<String, CompanyTime>> entries = new ArrayList<>(companies.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().nanos, a.getValue().nanos));
+        return entries.stream().limit(SLOWEST_COMPANIES)
+            .map(entry -> entry.getKey() + "=" + TimeUnit.NANOSECONDS.toMillis(entry.getValue().nanos)
+                + "ms/" + entry.getValue().rows)
+            .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private static final class CompanyTime {
+        private int rows;
+        private long nanos;
+    }
+}
@@ -0,0 +1,57 @@
+package com.csvxml.metrics;
+
+import com.csvxml.config.AppConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 应用没有Web端点，定期把Prometheus文本格式的指标写入文件，
+ * 可由 node_exporter 的 textfile collector 采集。先写临时文件再原子替换，避免读到半个文件。
+ */
+@Component
+public class MetricsFileExporter {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsFileExporter.class);
+
+    private final PrometheusMeterRegistry registry;
+    private final AppConfig.Metrics config;
+
+    public MetricsFileExporter(PrometheusMeterRegistry registry, AppConfig appConfig) {
+        this.registry = registry;
+        this.config = appConfig.getMetrics();
+    }
+
+    @Scheduled(fixedDelayString = "${app.metrics.dump-interval:15000}", initialDelayString = "${app.metrics.dump-interval:15000}")
+    public void export() {
+        String file = config.getFile();
+        if (file == null || file.isEmpty()) {
+            return;
+        }
+        Path target = Paths.get(file).toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.write(temp, registry.scrape().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("写入指标文件失败: {}", target, e);
+        }
+    }
+
+    /**
+     * 停止前再写一次，保留最后的统计
+     */
+    @PreDestroy
+    public void exportOnShutdown() {
+        export();
+    }
+}
@@ -0,0 +1,140 @@
+package com.csvxml.metrics;
+
+import com.csvxml.util.TransformError;
+import com.csvxml.util.TransformException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.camel.Processor;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 路由指标：各阶段耗时、每个文件的耗时分布、行数与字节数、按类别的错误数以及重试次数
+ */
+@Component
+public class PipelineMetrics {
+    /** 交换属性：本文件转换的数据行数 */
+    public static final String ROW_COUNT = "CsvXmlRowCount";
+    /** 交换属性：写出多个输出文件时的总字节数；未设置时按 CamelFileNameProduced 计算 */
+    public static final String OUTPUT_BYTES = "CsvXmlOutputBytes";
+
+    static final String STAGE_DURATION = "csvxml.stage.duration";
+    static final String FILE_DURATION = "csvxml.file.duration";
+    static final String FILE_QUEUE_WAIT = "csvxml.file.queue.wait";
+    static final String ROWS = "csvxml.rows";
+    static final String BYTES_IN = "csvxml.bytes.in";
+    static final String BYTES_OUT = "csvxml.bytes.out";
+    static final String ERRORS = "csvxml.errors";
+    static final String RETRIES = "csvxml.retries";
+    static final String REJECTS = "csvxml.rejects";
+    static final String DUPLICATES = "csvxml.duplicates";
+    private static final String STAGE_SAMPLE_PREFIX = "CsvXmlStageStart.";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Timer fileSucceeded;
+    private final Timer fileFailed;
+    private final Timer queueWait;
+    private final Counter rows;
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.fileSucceeded = fileTimer("success");
+        this.fileFailed = fileTimer("failure");
+        this.queueWait = Timer.builder(FILE_QUEUE_WAIT)
+            .description("文件被轮询后等待处理线程的时间")
+            .register(registry);
+        this.rows = Counter.builder(ROWS).description("已转换的数据行数").register(registry);
+        this.bytesIn = Counter.builder(BYTES_IN).baseUnit("bytes").description("读取的CSV字节数").register(registry);
+        this.bytesOut = Counter.builder(BYTES_OUT).baseUnit("bytes").description("写出的XML字节数").register(registry);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * 包装处理器，按阶段名记录耗时
+     */
+    public Processor timed(String stage, Processor processor) {
+        return new TimedProcessor(stageTimer(stage), processor);
+    }
+
+    /**
+     * 用于无法包装的路由步骤（unmarshal、to）：与 {@link #stopStage} 成对放在步骤前后
+     */
+    public Processor startStage(String stage) {
+        return exchange -> exchange.setProperty(STAGE_SAMPLE_PREFIX + stage, System.nanoTime());
+    }
+
+    public Processor stopStage(String stage) {
+        Timer timer = stageTimer(stage);
+        return exchange -> {
+            Long start = exchange.getProperty(STAGE_SAMPLE_PREFIX + stage, Long.class);
+            if (start != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    /**
+     * onException 重试计数，配合 onRedelivery 使用
+     */
+    public Processor retryCounter(String handler) {
+        Counter counter = Counter.builder(RETRIES).tag("handler", handler)
+            .description("异常处理器的重试次数").register(registry);
+        return exchange -> counter.increment();
+    }
+
+    /**
+     * 按 {@link TransformError} 类别记录失败的文件，其他异常按异常类型记录
+     */
+    public void recordError(Throwable cause) {
+        TransformError error = TransformException.errorOf(cause);
+        String category = error != null ? error.name() : cause.getClass().getSimpleName();
+        registry.counter(ERRORS, "category", category).increment();
+    }
+
+    /**
+     * 宽松模式下按类别记录被拒绝的行数
+     */
+    public void recordRejects(TransformError error, int rows) {
+        registry.counter(REJECTS, "category", error.name()).increment(rows);
+    }
+
+    /**
+     * 去重丢弃的行数，scope 为 file（文件内重复）或 index（与之前的文件重复）
+     */
+    public void recordDuplicates(String scope, int rows) {
+        registry.counter(DUPLICATES, "scope", scope).increment(rows);
+    }
+
+    public void recordFile(boolean succeeded, long queueWaitMillis, long latencyMillis,
+                           long rowCount, long inputBytes, long outputBytes) {
+        queueWait.record(queueWaitMillis, TimeUnit.MILLISECONDS);
+        (succeeded ? fileSucceeded : fileFailed).record(latencyMillis, TimeUnit.MILLISECONDS);
+        rows.increment(rowCount);
+        bytesIn.increment(inputBytes);
+        bytesOut.increment(outputBytes);
+    }
+
+    private Timer stageTimer(String stage) {
+        return stageTimers.computeIfAbsent(stage, name -> Timer.builder(STAGE_DURATION)
+            .tag("stage", name)
+            .description("路由各阶段的处理耗时")
+            .register(registry));
+    }
+
+    private Timer fileTimer(String outcome) {
+        return Timer.builder(FILE_DURATION)
+            .tag("outcome", outcome)
+            .description("单个文件从被轮询到处理结束的耗时")
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+}
@@ -0,0 +1,29 @@
+package com.csvxml.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录被包装处理器的执行耗时，失败的调用同样计入
+ */
+public class TimedProcessor implements Processor {
+    private final Timer timer;
+    private final Processor delegate;
+
+    public TimedProcessor(Timer timer, Processor delegate) {
+        this.timer = timer;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        long start = System.nanoTime();
+        try {
+            delegate.process(exchange);
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
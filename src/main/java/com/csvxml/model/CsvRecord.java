@@ -14,4 +14,6 @@ public class CsvRecord {
     private String userId;
     private String fullName;
     private String registerDate;
+    // CSV中的行号，从1开始
+    private int lineNumber;
 } 
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.csvxml.model;
+
+import lombok.Value;
+
+@Value
+public class NameParts {
+    private String given;
+    private String surname;
+}
@@ -0,0 +1,383 @@
+package com.csvxml.model;
+
+import com.csvxml.util.StringDictionary;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列存放的记录批：公司按字典编码为 int，其余各列按字段映射确定的类型存放——
+ * 数值列为规范十进制数时存为 long，日期列存为纪元日 int，其他列存为字符串。
+ * 无法按基本类型存放的值（如带前导零的ID、解析失败的日期）保留原文。
+ * 字符串列的重复值经字典合并为同一实例，记录批中不再为每行保留一份。
+ */
+public final class RecordBatch {
+    private static final long NOT_NUMERIC = Long.MIN_VALUE;
+    private static final int NOT_PARSED = Integer.MIN_VALUE;
+    private static final int DICTIONARY_SIZE = 4096;
+
+    /**
+     * 列的存放类型
+     */
+    public enum ColumnType {
+        TEXT, NUMBER, DATE
+    }
+
+    private final ColumnType[] types;
+    // 以 computeIfAbsent 按首次出现顺序放入，迭代顺序与 Collectors.groupingBy 一致
+    private final Map<String, Integer> companyCodes = new HashMap<>();
+    private final List<String> companies = new ArrayList<>();
+    private int[] companyCode;
+    private int[] lineNumber;
+    // 按列类型分别为 String[]、long[] 或 int[]
+    private final Object[] columns;
+    // 数值列与日期列中不能按基本类型存放的原文，首次需要时创建
+    private final String[][] texts;
+    // 清空记录批时保留，流式模式下各块共用
+    private final StringDictionary dictionary = new StringDictionary(DICTIONARY_SIZE);
+    private int size;
+
+    public RecordBatch(int capacity, ColumnType... types) {
+        int initial = Math.max(capacity, 16);
+        this.types = types.clone();
+        companyCode = new int[initial];
+        lineNumber = new int[initial];
+        columns = new Object[types.length];
+        texts = new String[types.length][];
+        for (int column = 0; column < types.length; column++) {
+            columns[column] = newColumn(types[column], initial);
+        }
+    }
+
+    /**
+     * 公司的编码，首次出现时分配
+     */
+    public int companyCode(String company) {
+        return companyCodes.computeIfAbsent(company, key -> {
+            companies.add(key);
+            return companies.size() - 1;
+        });
+    }
+
+    /**
+     * 追加一行并返回行下标，各列的值随后用 set 方法填入
+     */
+    public int addRow(String company, int lineNumber) {
+        ensureCapacity();
+        int row = size++;
+        this.companyCode[row] = companyCode(company);
+        this.lineNumber[row] = lineNumber;
+        return row;
+    }
+
+    /**
+     * 填入字符串列或数值列
+     */
+    public void setText(int column, int row, String value) {
+        if (types[column] == ColumnType.TEXT) {
+            ((String[]) columns[column])[row] = dictionary.canonical(value);
+            return;
+        }
+        long number = parseCanonicalLong(value);
+        ((long[]) columns[column])[row] = number;
+        if (number == NOT_NUMERIC) {
+            text(column)[row] = value;
+        }
+    }
+
+    /**
+     * 填入日期列
+     *
+     * @param date 解析后的日期，解析失败时为 null，渲染时再按原文报错
+     */
+    public void setDate(int column, int row, String raw, LocalDate date) {
+        long day = date != null ? date.toEpochDay() : NOT_PARSED;
+        int[] days = (int[]) columns[column];
+        if (day > NOT_PARSED && day <= Integer.MAX_VALUE) {
+            days[row] = (int) day;
+        } else {
+            days[row] = NOT_PARSED;
+            text(column)[row] = raw;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getCompany(int row) {
+        return companies.get(companyCode[row]);
+    }
+
+    /**
+     * 该行公司的编码，即 {@link #companyName} 的下标
+     */
+    public int getCompanyCode(int row) {
+        return companyCode[row];
+    }
+
+    /**
+     * 字符串列或数值列的值
+     */
+    public String getText(int column, int row) {
+        if (types[column] == ColumnType.TEXT) {
+            return ((String[]) columns[column])[row];
+        }
+        long number = ((long[]) columns[column])[row];
+        return number != NOT_NUMERIC ? Long.toString(number) : texts[column][row];
+    }
+
+    /**
+     * 日期是否已解析；为 false 时 {@link #getRawDate} 返回原文
+     */
+    public boolean hasDate(int column, int row) {
+        return ((int[]) columns[column])[row] != NOT_PARSED;
+    }
+
+    public LocalDate getDate(int column, int row) {
+        return LocalDate.ofEpochDay(getEpochDay(column, row));
+    }
+
+    /**
+     * 已解析日期的纪元日，不创建 LocalDate
+     */
+    public int getEpochDay(int column, int row) {
+        return ((int[]) columns[column])[row];
+    }
+
+    public String getRawDate(int column, int row) {
+        return texts[column][row];
+    }
+
+    public int getLineNumber(int row) {
+        return lineNumber[row];
+    }
+
+    /**
+     * 已登记的公司数
+     */
+    public int companyCount() {
+        return companies.size();
+    }
+
+    /**
+     * 按首次出现顺序的第 code 个公司
+     */
+    public String companyName(int code) {
+        return companies.get(code);
+    }
+
+    /**
+     * 删除 rows 中的行，其余行保持原顺序。公司按其余行中的首次出现重新登记，
+     * 行全部被删除的公司不再输出，分组顺序与只按其余行分组时相同
+     */
+    public void removeRows(BitSet rows) {
+        int target = 0;
+        for (int row = 0; row < size; row++) {
+            if (rows.get(row)) {
+                continue;
+            }
+            if (target != row) {
+                moveRow(row, target);
+            }
+            target++;
+        }
+        // 释放删除后不再使用的字符串
+        for (int column = 0; column < types.length; column++) {
+            if (types[column] == ColumnType.TEXT) {
+                Arrays.fill((String[]) columns[column], target, size, null);
+            }
+            if (texts[column] != null) {
+                Arrays.fill(texts[column], target, size, null);
+            }
+        }
+        size = target;
+        reregisterCompanies();
+    }
+
+    private void reregisterCompanies() {
+        String[] names = companies.toArray(new String[0]);
+        int[] codes = new int[names.length];
+        Arrays.fill(codes, -1);
+        companyCodes.clear();
+        companies.clear();
+        for (int row = 0; row < size; row++) {
+            int code = companyCode[row];
+            if (codes[code] < 0) {
+                codes[code] = companyCode(names[code]);
+            }
+            companyCode[row] = codes[code];
+        }
+    }
+
+    /**
+     * 清空所有行与公司，保留已分配的数组以便复用
+     */
+    public void clear() {
+        companyCodes.clear();
+        companies.clear();
+        size = 0;
+    }
+
+    /**
+     * 按公司分组：公司顺序与 Collectors.groupingBy 的迭代顺序相同，组内保持文件顺序，没有行的公司不成组。
+     * 对公司编码做计数排序，不比较字符串
+     */
+    public CompanyGroups groupByCompany() {
+        int companyCount = companies.size();
+        int[] counts = new int[companyCount];
+        for (int row = 0; row < size; row++) {
+            counts[companyCode[row]]++;
+        }
+        int[] order = new int[companyCount];
+        int groupCount = 0;
+        for (Integer code : companyCodes.values()) {
+            if (counts[code] > 0) {
+                order[groupCount++] = code;
+            }
+        }
+        // 各公司在结果中的起始位置，按分组顺序累加
+        int[] starts = new int[groupCount + 1];
+        int[] next = new int[companyCount];
+        for (int g = 0; g < groupCount; g++) {
+            starts[g + 1] = starts[g] + counts[order[g]];
+            next[order[g]] = starts[g];
+        }
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[next[companyCode[row]]++] = row;
+        }
+        String[] names = new String[groupCount];
+        for (int g = 0; g < groupCount; g++) {
+            names[g] = companies.get(order[g]);
+        }
+        return new CompanyGroups(names, starts, rows);
+    }
+
+    private void ensureCapacity() {
+        if (size < companyCode.length) {
+            return;
+        }
+        int capacity = companyCode.length * 2;
+        companyCode = Arrays.copyOf(companyCode, capacity);
+        lineNumber = Arrays.copyOf(lineNumber, capacity);
+        for (int column = 0; column < types.length; column++) {
+            Object values = columns[column];
+            switch (types[column]) {
+                case TEXT:
+                    columns[column] = Arrays.copyOf((String[]) values, capacity);
+                    break;
+                case NUMBER:
+                    columns[column] = Arrays.copyOf((long[]) values, capacity);
+                    break;
+                default:
+                    columns[column] = Arrays.copyOf((int[]) values, capacity);
+                    break;
+            }
+            if (texts[column] != null) {
+                texts[column] = Arrays.copyOf(texts[column], capacity);
+            }
+        }
+    }
+
+    private void moveRow(int from, int to) {
+        companyCode[to] = companyCode[from];
+        lineNumber[to] = lineNumber[from];
+        for (int column = 0; column < types.length; column++) {
+            Object values = columns[column];
+            switch (types[column]) {
+                case TEXT:
+                    ((String[]) values)[to] = ((String[]) values)[from];
+                    break;
+                case NUMBER:
+                    ((long[]) values)[to] = ((long[]) values)[from];
+                    break;
+                default:
+                    ((int[]) values)[to] = ((int[]) values)[from];
+                    break;
+            }
+            if (texts[column] != null) {
+                texts[column][to] = texts[column][from];
+            }
+        }
+    }
+
+    private String[] text(int column) {
+        if (texts[column] == null) {
+            texts[column] = new String[companyCode.length];
+        }
+        return texts[column];
+    }
+
+    private static Object newColumn(ColumnType type, int capacity) {
+        switch (type) {
+            case TEXT:
+                return new String[capacity];
+            case NUMBER:
+                return new long[capacity];
+            default:
+                return new int[capacity];
+        }
+    }
+
+    /**
+     * 转换回原文不变的十进制数：无符号、无前导零、不超出 long；否则返回 NOT_NUMERIC
+     */
+    private static long parseCanonicalLong(String value) {
+        int length = value.length();
+        if (length == 0 || length > 19 || (value.charAt(0) == '0' && length > 1)) {
+            return NOT_NUMERIC;
+        }
+        long result = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_NUMERIC;
+            }
+            result = result * 10 + (c - '0');
+            if (result < 0) {
+                return NOT_NUMERIC;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 分组结果：第 g 个公司的行下标为 rows[start(g)] 到 rows[end(g) - 1]
+     */
+    public static final class CompanyGroups {
+        private final String[] companies;
+        private final int[] starts;
+        private final int[] rows;
+
+        private CompanyGroups(String[] companies, int[] starts, int[] rows) {
+            this.companies = companies;
+            this.starts = starts;
+            this.rows = rows;
+        }
+
+        public int size() {
+            return companies.length;
+        }
+
+        public String getCompany(int group) {
+            return companies[group];
+        }
+
+        public int start(int group) {
+            return starts[group];
+        }
+
+        public int end(int group) {
+            return starts[group + 1];
+        }
+
+        public int row(int index) {
+            return rows[index];
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.service.CheckpointStore;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 断点入口：已完成的文件标记为跳过；其余文件计算断点键，成功完成后记入已完成列表，
+ * 失败后删除断点目录。JVM异常退出时断点目录保留，重启后流式处理从断点继续。
+ */
+@Component
+public class CheckpointGate implements Processor {
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointGate.class);
+
+    public static final String KEY = "CsvXmlCheckpointKey";
+    public static final String ALREADY_DONE = "CsvXmlAlreadyDone";
+
+    private final CheckpointStore checkpointStore;
+
+    public CheckpointGate(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws IOException {
+        String fileName = exchange.getIn().getHeader("CamelFileName", String.class);
+        File file = exchange.getIn().getBody(File.class);
+        long size = file.length();
+        long lastModified = file.lastModified();
+        if (checkpointStore.isCompleted(fileName, size, lastModified)) {
+            skip(exchange, fileName);
+            return;
+        }
+        String key = checkpointStore.keyOf(fileName, file.toPath());
+        if (checkpointStore.isCompleted(key)) {
+            skip(exchange, fileName);
+            return;
+        }
+        exchange.setProperty(KEY, key);
+        exchange.adapt(ExtendedExchange.class).addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange completed) {
+                // 异常被 onException 处理后交换不再标记为失败，需同时检查捕获的异常
+                if (completed.isFailed() || completed.getProperty(Exchange.EXCEPTION_CAUGHT) != null) {
+                    checkpointStore.discard(key);
+                    return;
+                }
+                try {
+                    checkpointStore.complete(key, fileName, size, lastModified);
+                } catch (IOException e) {
+                    logger.warn("记录已完成文件失败: {}", fileName, e);
+                }
+            }
+        });
+    }
+
+    private static void skip(Exchange exchange, String fileName) {
+        logger.info(AppConfig.LogMessages.FILE_ALREADY_DONE, fileName);
+        exchange.setProperty(ALREADY_DONE, true);
+    }
+}
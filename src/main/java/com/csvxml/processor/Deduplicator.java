@@ -0,0 +1,210 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.model.RecordBatch;
+import com.csvxml.service.DedupIndex;
+import com.csvxml.util.LongHashSet;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import java.util.BitSet;
+
+/**
+ * 去重：在记录转换之后、渲染之前按 (公司, app.dedup.column 列) 的64位哈希找出重复行并从记录批中删除，
+ * 重复行不再解析姓名与渲染。跨文件去重时，文件成功输出后其键才加入 {@link DedupIndex}；
+ * 同时处理的文件之间不去重。
+ */
+@Component
+public class Deduplicator implements Processor {
+    private static final Logger logger = LoggerFactory.getLogger(Deduplicator.class);
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * 重复行的处理方式
+     */
+    enum Policy {
+        FIRST_WINS, LAST_WINS, DROP
+    }
+
+    private final DedupIndex index;
+    private final PipelineMetrics metrics;
+    private final Policy policy;
+    private final int keyColumn;
+    // last-wins 总是输出较新文件中的行，不使用跨文件索引
+    private final boolean acrossFiles;
+
+    public Deduplicator(DedupIndex index, RecordMapping mapping, PipelineMetrics metrics, AppConfig appConfig) {
+        this.index = index;
+        this.metrics = metrics;
+        AppConfig.Dedup config = appConfig.getDedup();
+        this.policy = policyOf(config.getPolicy());
+        this.acrossFiles = config.isAcrossFiles() && policy != Policy.LAST_WINS;
+        int column = mapping.batchColumn(config.getColumn());
+        if (config.isEnabled() && column < 0) {
+            throw new IllegalStateException("app.dedup.column must be a mapped text or number column: " + config.getColumn());
+        }
+        if (config.isEnabled() && (appConfig.getStreaming().isEnabled() || appConfig.getCluster().isEnabled())) {
+            // 流式模式与集群模式不经过整个文件的记录批，无法去重
+            throw new IllegalStateException("app.dedup cannot be combined with app.streaming or app.cluster");
+        }
+        this.keyColumn = column;
+    }
+
+    @Override
+    public void process(Exchange exchange) {
+        RecordBatch batch = exchange.getIn().getBody(RecordBatch.class);
+        // 吞吐量仍按读入的行数统计
+        Result result = deduplicate(exchange.getIn().getHeader(Exchange.FILE_NAME, String.class), batch);
+        if (!acrossFiles) {
+            return;
+        }
+        exchange.adapt(ExtendedExchange.class).addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onComplete(Exchange completed) {
+                // 异常被 onException 处理后交换仍算完成，只有成功输出的文件才加入索引
+                if (completed.getProperty(Exchange.EXCEPTION_CAUGHT) == null) {
+                    commit(result);
+                }
+            }
+        });
+    }
+
+    /**
+     * 删除记录批中的重复行并统计；跨文件去重时返回的结果须在文件成功输出后交给 {@link #commit}
+     */
+    public Result deduplicate(String fileName, RecordBatch batch) {
+        int size = batch.size();
+        long[] keys = keys(batch);
+        LongHashSet seen = new LongHashSet(size);
+        BitSet drop = new BitSet(size);
+        int fileDuplicates = 0;
+        int indexDuplicates = 0;
+        switch (policy) {
+            case LAST_WINS:
+                for (int row = size - 1; row >= 0; row--) {
+                    if (!seen.add(keys[row])) {
+                        drop.set(row);
+                        fileDuplicates++;
+                    }
+                }
+                break;
+            case DROP:
+                LongHashSet repeated = new LongHashSet(0);
+                for (int row = 0; row < size; row++) {
+                    if (!seen.add(keys[row])) {
+                        repeated.add(keys[row]);
+                    }
+                }
+                for (int row = 0; row < size; row++) {
+                    if (repeated.contains(keys[row])) {
+                        drop.set(row);
+                        fileDuplicates++;
+                    } else if (acrossFiles && index.contains(keys[row])) {
+                        drop.set(row);
+                        indexDuplicates++;
+                    }
+                }
+                break;
+            default:
+                for (int row = 0; row < size; row++) {
+                    if (!seen.add(keys[row])) {
+                        drop.set(row);
+                        fileDuplicates++;
+                    } else if (acrossFiles && index.contains(keys[row])) {
+                        drop.set(row);
+                        indexDuplicates++;
+                    }
+                }
+                break;
+        }
+        if (!drop.isEmpty()) {
+            batch.removeRows(drop);
+        }
+        metrics.recordDuplicates("file", fileDuplicates);
+        metrics.recordDuplicates("index", indexDuplicates);
+        logger.info(AppConfig.LogMessages.DUPLICATES_DROPPED, fileName, fileDuplicates, indexDuplicates, batch.size());
+        return new Result(seen, fileDuplicates, indexDuplicates);
+    }
+
+    /**
+     * 把已成功输出的文件的键加入跨文件索引
+     */
+    public void commit(Result result) {
+        if (acrossFiles) {
+            index.addAll(result.keys);
+        }
+    }
+
+    /**
+     * 各行的 (公司, 键列) 哈希：FNV-1a 逐字符累加后再做一次混合；公司的哈希每个公司只计算一次
+     */
+    private long[] keys(RecordBatch batch) {
+        long[] companyHashes = new long[batch.companyCount()];
+        for (int code = 0; code < companyHashes.length; code++) {
+            // 分隔符使 ("ab", "c") 与 ("a", "bc") 的哈希不同
+            companyHashes[code] = (fnv(FNV_OFFSET, batch.companyName(code)) ^ 0xff) * FNV_PRIME;
+        }
+        long[] keys = new long[batch.size()];
+        for (int row = 0; row < keys.length; row++) {
+            keys[row] = mix(fnv(companyHashes[batch.getCompanyCode(row)], batch.getText(keyColumn, row)));
+        }
+        return keys;
+    }
+
+    private static long fnv(long hash, String value) {
+        long h = hash;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static Policy policyOf(String policy) {
+        switch (policy) {
+            case "first-wins":
+                return Policy.FIRST_WINS;
+            case "last-wins":
+                return Policy.LAST_WINS;
+            case "drop":
+                return Policy.DROP;
+            default:
+                throw new IllegalStateException("Unknown dedup policy: " + policy);
+        }
+    }
+
+    /**
+     * 一个文件的去重结果
+     */
+    public static final class Result {
+        private final LongHashSet keys;
+        private final int fileDuplicates;
+        private final int indexDuplicates;
+
+        private Result(LongHashSet keys, int fileDuplicates, int indexDuplicates) {
+            this.keys = keys;
+            this.fileDuplicates = fileDuplicates;
+            this.indexDuplicates = indexDuplicates;
+        }
+
+        public int getFileDuplicates() {
+            return fileDuplicates;
+        }
+
+        public int getIndexDuplicates() {
+            return indexDuplicates;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.csv.CsvReaders;
+import com.csvxml.csv.CsvRow;
+import com.csvxml.csv.CsvRowReader;
+import com.csvxml.metrics.FileSummary;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.model.RecordBatch;
+import com.csvxml.service.RejectLog;
+import com.csvxml.service.RowQuarantine;
+import com.csvxml.util.LearnedRatio;
+import com.csvxml.util.TransformError;
+import com.csvxml.util.TransformException;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单遍读取与转换：直接从输入文件逐行读取，在同一次遍历中校验列数、按字段映射追加到记录批并登记公司编码，
+ * 代替 unmarshal、{@link StrictColumnValidator} 与 {@link com.csvxml.converter.CsvRecordConverterImpl} 三个步骤，
+ * 不再生成整个文件的行列表。错误信息与列数校验器相同，严格模式下同样收集所有列数错误后一并抛出；
+ * 宽松模式下拒绝文件按行号顺序写入，与流式模式相同。
+ * 记录批按文件大小与已处理文件的平均行长预先分配，避免逐次扩容复制各列数组。
+ */
+@Component
+public class FusedCsvConverter implements Processor {
+    private static final Logger logger = LoggerFactory.getLogger(FusedCsvConverter.class);
+    // 尚未处理过文件时假定的每行字节数
+    private static final int ESTIMATED_ROW_BYTES = 40;
+
+    private final RowQuarantine quarantine;
+    private final RecordMapping mapping;
+    private final boolean mapped;
+    // 行字节数越小预分配的行数越多，下限避免只有短行的文件使之后的大文件预分配过多
+    private final LearnedRatio rowBytes = new LearnedRatio(ESTIMATED_ROW_BYTES,
+        ESTIMATED_ROW_BYTES / 4.0, ESTIMATED_ROW_BYTES * 64.0);
+
+    public FusedCsvConverter(RowQuarantine quarantine, RecordMapping mapping, AppConfig appConfig) {
+        this.quarantine = quarantine;
+        this.mapping = mapping;
+        this.mapped = appConfig.getCsv().isMapped();
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        File input = exchange.getIn().getBody(File.class);
+        RecordBatch batch = convert(input.toPath(), charsetOf(exchange), quarantine.forExchange(exchange),
+            FileSummary.of(exchange));
+        exchange.getIn().setBody(batch);
+        exchange.setProperty(PipelineMetrics.ROW_COUNT, batch.size());
+    }
+
+    /**
+     * 读取并转换整个文件；rejects 为 null 时为严格模式，逐行错误日志按 summary 限流
+     */
+    public RecordBatch convert(Path input, Charset charset, RejectLog rejects, FileSummary summary) throws IOException {
+        logger.info(AppConfig.LogMessages.CSV_VALIDATION_START);
+        int expectedColumns = mapping.getExpectedColumns();
+        List<String> errors = new ArrayList<>();
+        // 压缩文件的大小不反映行数
+        long inputBytes = CsvReaders.isCompressed(input) ? 0 : Files.size(input);
+        RecordBatch batch = mapping.newBatch(rowBytes.divide(inputBytes));
+        int rowNum = 0;
+        try (CsvRowReader reader = CsvReaders.open(input, charset, mapped, 0, 1)) {
+            for (CsvRow row = reader.next(); row != null; row = reader.next()) {
+                rowNum++;
+                if (row.size() != expectedColumns) {
+                    String error = String.format(StrictColumnValidator.ERROR_MESSAGE, rowNum, expectedColumns, row.size());
+                    if (summary.logRowError()) {
+                        logger.error(AppConfig.LogMessages.VALIDATION_FAILED, error);
+                    }
+                    if (rejects != null) {
+                        rejects.reject(rowNum, TransformError.COLUMN_MISMATCH, error, row);
+                    } else {
+                        errors.add(error);
+                    }
+                } else if (errors.isEmpty()) {
+                    // 已有列数错误时文件不会输出，之后只继续收集列数错误
+                    mapping.add(batch, row, rowNum, rejects);
+                }
+            }
+        }
+
+        if (rowNum == 0) {
+            logger.error(AppConfig.LogMessages.VALIDATION_FAILED, "Empty CSV file");
+            throw new IllegalArgumentException("Empty CSV file");
+        }
+        if (!errors.isEmpty()) {
+            summary.addErrors(TransformError.COLUMN_MISMATCH, errors.size());
+            String combinedError = String.join("\n", errors);
+            logger.error(AppConfig.LogMessages.VALIDATION_FAILED, "发现以下列数错误：\n" + combinedError);
+            throw new TransformException(TransformError.COLUMN_MISMATCH, combinedError);
+        }
+        logger.info(AppConfig.LogMessages.CSV_ROW_COUNT, rowNum);
+        rowBytes.record(inputBytes, rowNum);
+        return batch;
+    }
+
+    private static Charset charsetOf(Exchange exchange) {
+        String charsetName = exchange.getProperty(Exchange.CHARSET_NAME, String.class);
+        return charsetName != null ? Charset.forName(charsetName) : Charset.defaultCharset();
+    }
+}
@@ -0,0 +1,139 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.metrics.FileSummary;
+import com.csvxml.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.Gauge;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.Ordered;
+import org.apache.camel.Processor;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 文件摄取统计：记录每个文件的排队时间、总耗时、行数与字节数，并暴露处理线程池的队列深度；
+ * 为每个文件创建 {@link FileSummary}，处理结束后输出一行汇总日志
+ */
+@Component
+public class IngestTracker implements Processor {
+    private static final Logger logger = LoggerFactory.getLogger(IngestTracker.class);
+    private static final Logger rowLogger = LoggerFactory.getLogger(AppConfig.ROW_LOGGER);
+
+    private final ThreadPoolExecutor ingestExecutor;
+    private final PipelineMetrics metrics;
+    private final int rowErrorLimit;
+    private final List<PathMatcher> debugFiles = new ArrayList<>();
+
+    public IngestTracker(ThreadPoolExecutor ingestExecutor, PipelineMetrics metrics, AppConfig appConfig) {
+        this.ingestExecutor = ingestExecutor;
+        this.metrics = metrics;
+        this.rowErrorLimit = appConfig.getLogging().getRowErrorLimit();
+        for (String pattern : appConfig.getLogging().getDebugFiles()) {
+            debugFiles.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+        }
+        Gauge.builder("csvxml.ingest.queue.depth", this, IngestTracker::getQueueDepth)
+            .description("已被轮询、等待处理线程的文件数")
+            .register(metrics.getRegistry());
+        Gauge.builder("csvxml.ingest.active", this, IngestTracker::getActiveFiles)
+            .description("正在处理的文件数")
+            .register(metrics.getRegistry());
+    }
+
+    /**
+     * 在处理线程开始处理文件时调用，交换完成（成功或失败）后记录耗时
+     */
+    @Override
+    public void process(Exchange exchange) {
+        long startedAt = System.currentTimeMillis();
+        long polledAt = exchange.getCreated();
+        long inputBytes = exchange.getIn().getHeader(Exchange.FILE_LENGTH, 0L, Long.class);
+        String fileName = exchange.getIn().getHeader(Exchange.FILE_NAME, String.class);
+        FileSummary summary = new FileSummary(fileName, rowErrorLimit, isRowDetail(fileName));
+        exchange.setProperty(FileSummary.PROPERTY, summary);
+        exchange.adapt(ExtendedExchange.class).addOnCompletion(new OrderedSynchronization() {
+            @Override
+            public void onDone(Exchange completed) {
+                long latency = System.currentTimeMillis() - polledAt;
+                // 异常被 onException 处理后交换不再标记为失败，需同时检查捕获的异常
+                boolean failed = completed.isFailed() || completed.getProperty(Exchange.EXCEPTION_CAUGHT) != null;
+                long rows = completed.getProperty(PipelineMetrics.ROW_COUNT, 0, Integer.class);
+                metrics.recordFile(!failed, startedAt - polledAt, latency, rows, inputBytes,
+                    failed ? 0 : outputBytes(completed));
+                logger.info(AppConfig.LogMessages.FILE_LATENCY, completed.getIn().getHeader("CamelFileName"),
+                    startedAt - polledAt, latency, getQueueDepth());
+                logger.info(AppConfig.LogMessages.FILE_SUMMARY, fileName, rows, summary.getErrors(),
+                    summary.getSuppressedErrors(), summary.getCompanyCount(), summary.getRenderMillis(),
+                    summary.slowestCompanies());
+            }
+        });
+    }
+
+    /**
+     * 逐行调试日志只为匹配 app.logging.debug-files 的文件开启，其他文件不受影响
+     */
+    private boolean isRowDetail(String fileName) {
+        if (!rowLogger.isDebugEnabled() || fileName == null) {
+            return false;
+        }
+        if (debugFiles.isEmpty()) {
+            return true;
+        }
+        for (PathMatcher matcher : debugFiles) {
+            if (matcher.matches(Paths.get(fileName).getFileName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 已被轮询、等待处理线程的文件数
+     */
+    public int getQueueDepth() {
+        return ingestExecutor.getQueue().size();
+    }
+
+    /**
+     * 正在处理的文件数
+     */
+    public int getActiveFiles() {
+        return ingestExecutor.getActiveCount();
+    }
+
+    private static long outputBytes(Exchange exchange) {
+        Long bytes = exchange.getProperty(PipelineMetrics.OUTPUT_BYTES, Long.class);
+        if (bytes != null) {
+            return bytes;
+        }
+        String produced = exchange.getIn().getHeader(Exchange.FILE_NAME_PRODUCED, String.class);
+        if (produced == null) {
+            return 0;
+        }
+        try {
+            return Files.size(Paths.get(produced));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 在其他完成回调（如拒绝记录的统计）之后执行，汇总中包含这些回调记录的数据
+     */
+    private abstract static class OrderedSynchronization extends SynchronizationAdapter implements Ordered {
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST;
+        }
+    }
+}
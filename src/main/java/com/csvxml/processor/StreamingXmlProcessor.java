@@ -0,0 +1,654 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.csv.CsvReaders;
+import com.csvxml.csv.CsvRow;
+import com.csvxml.csv.CsvRowReader;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.metrics.FileSummary;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.model.RecordBatch;
+import com.csvxml.service.CheckpointStore;
+import com.csvxml.service.OutputFileWriter;
+import com.csvxml.service.RejectLog;
+import com.csvxml.service.RowQuarantine;
+import com.csvxml.util.OrderedTaskWindow;
+import com.csvxml.util.TransformError;
+import com.csvxml.util.TransformException;
+import com.csvxml.xml.ProfileTemplates;
+import com.csvxml.xml.XmlOutputBuffer;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * 流式CSV到XML转换：逐行读取、校验并转换记录，Profile节点按公司写入临时分桶文件，
+ * 最后按与 {@link TemplateEnricher} 相同的公司顺序合并为输出文件，分片模式下每个分桶写出为一个文件。
+ * 内存占用与文件行数无关；同时打开的分桶文件不超过 max-open-shards 个，超出时关闭最久未写入的分桶。
+ * 开启断点时分桶文件保存在断点目录中，并定期记录进度，重启后从最近的断点继续读取。
+ */
+@Component
+public class StreamingXmlProcessor implements Processor {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingXmlProcessor.class);
+    private static final String OUTPUT_FILE = "output.xml";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AppConfig appConfig;
+    private final TemplateEnricher templateEnricher;
+    private final ExecutorService renderExecutor;
+    private final OutputFileWriter outputFileWriter;
+    private final RowQuarantine quarantine;
+    private final CheckpointStore checkpointStore;
+    private final RecordMapping mapping;
+
+    public StreamingXmlProcessor(AppConfig appConfig, TemplateEnricher templateEnricher,
+                                 @Qualifier("renderExecutor") ExecutorService renderExecutor,
+                                 OutputFileWriter outputFileWriter,
+                                 RowQuarantine quarantine,
+                                 CheckpointStore checkpointStore,
+                                 RecordMapping mapping) {
+        this.appConfig = appConfig;
+        this.templateEnricher = templateEnricher;
+        this.mapping = mapping;
+        this.renderExecutor = renderExecutor;
+        this.outputFileWriter = outputFileWriter;
+        this.quarantine = quarantine;
+        this.checkpointStore = checkpointStore;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        String fileName = exchange.getIn().getHeader("CamelFileName", String.class);
+        File input = exchange.getIn().getBody(File.class);
+        logger.info(AppConfig.LogMessages.STREAMING_START, fileName);
+        ProfileTemplates templates = templateEnricher.templatesFor(exchange);
+
+        // 断点目录由 CheckpointGate 在交换结束后清理
+        String checkpointKey = exchange.getProperty(CheckpointGate.KEY, String.class);
+        Path workDir = checkpointKey != null ? checkpointStore.workDir(checkpointKey) : createWorkDir();
+        boolean keepWorkDir = checkpointKey != null;
+        try {
+            Charset charset = charsetOf(exchange);
+            boolean mapped = CsvReaders.isMapped(input.toPath(), appConfig.getCsv().isMapped(), charset);
+            FileConversion conversion = new FileConversion(templates, workDir, quarantine.forExchange(exchange),
+                FileSummary.of(exchange), checkpointKey);
+            conversion.resume(fileName, mapped);
+            convert(input.toPath(), charset, conversion);
+            exchange.setProperty(PipelineMetrics.ROW_COUNT, conversion.rowNum);
+            keepWorkDir |= writeOutput(exchange, templates, fileName, conversion.fragments(), workDir);
+            logger.info(AppConfig.LogMessages.STREAMING_COMPLETE, fileName, conversion.rowNum, conversion.buckets.size());
+        } finally {
+            if (!keepWorkDir) {
+                deleteQuietly(workDir);
+            }
+        }
+        if (!keepWorkDir || checkpointKey != null) {
+            return;
+        }
+
+        // 输出文件由后续的file端点复制，交换完成后再清理临时目录
+        exchange.adapt(ExtendedExchange.class).addOnCompletion(new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange completed) {
+                deleteQuietly(workDir);
+            }
+        });
+    }
+
+    private void convert(Path input, Charset charset, FileConversion conversion) throws Exception {
+        try (CsvRowReader reader = CsvReaders.open(input, charset, appConfig.getCsv().isMapped(),
+                conversion.offset, conversion.rowNum + 1L)) {
+            conversion.run(reader);
+        } finally {
+            conversion.close();
+        }
+
+        if (conversion.rowNum == 0) {
+            logger.error(AppConfig.LogMessages.VALIDATION_FAILED, "Empty CSV file");
+            throw new IllegalArgumentException("Empty CSV file");
+        }
+        if (!conversion.errors.isEmpty()) {
+            conversion.summary.addErrors(TransformError.COLUMN_MISMATCH, conversion.errors.size());
+            String combinedError = String.join("\n", conversion.errors);
+            logger.error(AppConfig.LogMessages.VALIDATION_FAILED, "发现以下列数错误：\n" + combinedError);
+            throw new TransformException(TransformError.COLUMN_MISMATCH, combinedError);
+        }
+        if (conversion.failure != null) {
+            throw conversion.failure;
+        }
+    }
+
+    /**
+     * 转换输入文件中从字节位置 start 到 end 的行，用于集群模式下的一个分片：各公司的Profile节点写入 workDir 中的分桶文件，
+     * 不合并输出；列数错误与首个渲染失败记录在结果中，不抛出
+     *
+     * @param firstRow 范围内第一行的行号
+     */
+    public RangeResult convertRange(Path input, Charset charset, long start, long end, int firstRow,
+                                    ProfileTemplates templates, Path workDir, RejectLog rejects) throws Exception {
+        FileSummary summary = new FileSummary(input.getFileName().toString(), appConfig.getLogging().getRowErrorLimit(), false);
+        FileConversion conversion = new FileConversion(templates, workDir, rejects, summary, null);
+        conversion.rowNum = firstRow - 1;
+        try (CsvRowReader reader = CsvReaders.openRange(input, charset, appConfig.getCsv().isMapped(), start, end, firstRow)) {
+            conversion.run(reader);
+        } finally {
+            conversion.close();
+        }
+        RangeResult result = new RangeResult(conversion.rowNum - (firstRow - 1), conversion.errors, conversion.failure);
+        for (CompanyBucket bucket : conversion.created) {
+            bucket.sync();
+            result.companies.add(bucket.company);
+            result.files.add(bucket.file);
+        }
+        return result;
+    }
+
+    /**
+     * 把按公司分组的Profile片段文件写出为转换结果：分片模式下每个公司写出一个文件，直接写出模式下写入输出目录，
+     * 否则合并为 workDir 中的临时文件并设为 body。fragments 的迭代顺序即输出中的公司顺序，每个公司的片段依次拼接
+     *
+     * @return body 是否为 workDir 中的文件，此时 workDir 需保留到交换结束
+     */
+    public boolean writeOutput(Exchange exchange, ProfileTemplates templates, String fileName,
+                               Map<String, List<Path>> fragments, Path workDir) throws Exception {
+        if (outputFileWriter.isSharded()) {
+            writeShards(templates, exchange, fileName, fragments);
+            return false;
+        }
+        if (outputFileWriter.isEnabled()) {
+            outputFileWriter.write(exchange, out -> writeDocument(templates, out, fragments));
+            return false;
+        }
+        Path output = workDir.resolve(OUTPUT_FILE);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), BUFFER_SIZE)) {
+            writeDocument(templates, out, fragments);
+        }
+        exchange.getIn().setBody(output.toFile());
+        return true;
+    }
+
+    private void writeDocument(ProfileTemplates templates, OutputStream out, Map<String, List<Path>> fragments) throws IOException {
+        XmlOutputBuffer buffer = new XmlOutputBuffer(BUFFER_SIZE);
+        if (fragments.isEmpty()) {
+            templateEnricher.writeEmptyDocument(buffer);
+            buffer.writeTo(out);
+            return;
+        }
+        templateEnricher.writeDocumentStart(buffer);
+        for (Map.Entry<String, List<Path>> entry : fragments.entrySet()) {
+            templateEnricher.writeCompany(templates, buffer, entry.getKey());
+            buffer.writeTo(out);
+            buffer.reset();
+            for (Path file : entry.getValue()) {
+                Files.copy(file, out);
+            }
+        }
+        templateEnricher.writeDocumentEnd(buffer);
+        buffer.writeTo(out);
+    }
+
+    /**
+     * 每个分桶写出为一个完整的XML文件；开启并行时由渲染线程同时写出
+     */
+    private void writeShards(ProfileTemplates templates, Exchange exchange, String fileName, Map<String, List<Path>> fragments) throws Exception {
+        OutputFileWriter.Shards shards = outputFileWriter.shards(exchange);
+        AppConfig.Parallel parallel = appConfig.getParallel();
+        try {
+            if (!parallel.isEnabled()) {
+                for (Map.Entry<String, List<Path>> entry : fragments.entrySet()) {
+                    writeShard(templates, shards, shards.target(entry.getKey()), entry.getKey(), entry.getValue());
+                }
+            } else {
+                int maxInFlight = Math.min(parallel.getEffectiveWorkers() * 2, outputFileWriter.getMaxOpenShards());
+                OrderedTaskWindow<Path> window = new OrderedTaskWindow<>(renderExecutor, maxInFlight, target -> { });
+                try {
+                    for (Map.Entry<String, List<Path>> entry : fragments.entrySet()) {
+                        String company = entry.getKey();
+                        Path target = shards.target(company);
+                        List<Path> files = entry.getValue();
+                        window.submit(() -> writeShard(templates, shards, target, company, files));
+                    }
+                    window.drainAll();
+                } finally {
+                    window.cancelAll();
+                }
+            }
+        } catch (Exception e) {
+            shards.discard();
+            throw e;
+        }
+        shards.finish(exchange);
+        logger.info(AppConfig.LogMessages.SHARDS_WRITTEN, fileName, shards.size());
+    }
+
+    private Path writeShard(ProfileTemplates templates, OutputFileWriter.Shards shards, Path target, String company, List<Path> files) throws Exception {
+        shards.write(target, out -> {
+            XmlOutputBuffer buffer = new XmlOutputBuffer(256);
+            templateEnricher.writeDocumentStart(buffer);
+            templateEnricher.writeCompany(templates, buffer, company);
+            buffer.writeTo(out);
+            buffer.reset();
+            for (Path file : files) {
+                Files.copy(file, out);
+            }
+            templateEnricher.writeDocumentEnd(buffer);
+            buffer.writeTo(out);
+        });
+        return target;
+    }
+
+    private Path createWorkDir() throws IOException {
+        String workDir = appConfig.getStreaming().getWorkDir();
+        if (workDir == null || workDir.isEmpty()) {
+            return Files.createTempDirectory("csvxml-");
+        }
+        Path base = Files.createDirectories(Paths.get(workDir));
+        return Files.createTempDirectory(base, "csvxml-");
+    }
+
+    private static Charset charsetOf(Exchange exchange) {
+        String charsetName = exchange.getProperty(Exchange.CHARSET_NAME, String.class);
+        return charsetName != null ? Charset.forName(charsetName) : Charset.defaultCharset();
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("清理临时目录失败: {}", dir, e);
+        }
+    }
+
+    /**
+     * 单个文件的转换状态：列数错误、首个渲染失败、各公司分桶以及断点进度
+     */
+    private final class FileConversion implements Closeable {
+        private final ProfileTemplates templates;
+        private final Path workDir;
+        // 宽松模式下的拒绝记录，严格模式为 null
+        private final RejectLog rejects;
+        private final FileSummary summary;
+        // 未开启断点时为 null
+        private final String checkpointKey;
+        // 使用HashMap并按首次出现顺序放入公司，迭代顺序与 Collectors.groupingBy 一致
+        private final Map<String, CompanyBucket> buckets = new HashMap<>();
+        // 按创建顺序排列的分桶，断点恢复时按同样顺序重新放入 buckets
+        private final List<CompanyBucket> created = new ArrayList<>();
+        // 已打开的分桶，按最近写入顺序排列
+        private final Map<CompanyBucket, Boolean> open = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxOpen = outputFileWriter.getMaxOpenShards();
+        private final List<String> errors = new ArrayList<>();
+        private RuntimeException failure;
+        private int rowNum;
+        // 下一行在输入中的位置，内存映射读取时为字节位置，否则为字符位置
+        private long offset;
+        private boolean byteOffset;
+        private long nextCheckpoint;
+
+        FileConversion(ProfileTemplates templates, Path workDir, RejectLog rejects, FileSummary summary, String checkpointKey) {
+            this.templates = templates;
+            this.workDir = workDir;
+            this.rejects = rejects;
+            this.summary = summary;
+            this.checkpointKey = checkpointKey;
+        }
+
+        /**
+         * 载入保存的进度：截断分桶文件到断点时的长度并恢复行号与读取位置
+         */
+        void resume(String fileName, boolean mapped) throws IOException {
+            byteOffset = mapped;
+            if (checkpointKey == null) {
+                return;
+            }
+            nextCheckpoint = checkpointStore.getInterval();
+            CheckpointStore.State state = checkpointStore.load(checkpointKey);
+            if (state == null) {
+                return;
+            }
+            if (state.isByteOffset() != byteOffset) {
+                // 读取方式变化后位置单位不同，无法续传
+                logger.warn(AppConfig.LogMessages.CHECKPOINT_INVALID, fileName);
+                return;
+            }
+            List<String> companies = state.getCompanies();
+            for (int i = 0; i < companies.size(); i++) {
+                Path file = bucketFile(i);
+                if (!Files.exists(file) || Files.size(file) < state.getLengths().get(i)) {
+                    logger.warn(AppConfig.LogMessages.CHECKPOINT_INVALID, fileName);
+                    close();
+                    buckets.clear();
+                    created.clear();
+                    return;
+                }
+                addBucket(companies.get(i), new CompanyBucket(companies.get(i), file, state.getLengths().get(i)));
+            }
+            rowNum = state.getRows();
+            offset = state.getOffset();
+            nextCheckpoint = rowNum + (long) checkpointStore.getInterval();
+            logger.info(AppConfig.LogMessages.CHECKPOINT_RESUME, fileName, rowNum);
+        }
+
+        void run(CsvRowReader reader) throws Exception {
+            AppConfig.Parallel parallel = appConfig.getParallel();
+            if (!parallel.isEnabled()) {
+                runSerial(reader);
+                return;
+            }
+            int chunkSize = Math.max(1, parallel.getChunkSize());
+            OrderedTaskWindow<RenderedPart> window = new OrderedTaskWindow<>(
+                renderExecutor, parallel.getEffectiveWorkers() * 2, this::append);
+            try {
+                RecordBatch chunk = mapping.newBatch(chunkSize);
+                for (CsvRow row = reader.next(); row != null; row = reader.next()) {
+                    if (chunk.size() == chunkSize) {
+                        // 读到下一行时才提交已满的分块，此时才知道分块结束处的断点位置
+                        submit(window, chunk, rowNum, row.getPosition());
+                        chunk = mapping.newBatch(chunkSize);
+                    }
+                    next(row, chunk);
+                }
+                if (chunk.companyCount() > 0 && canRender()) {
+                    submit(window, chunk, rowNum, -1);
+                }
+                window.drainAll();
+            } finally {
+                window.cancelAll();
+            }
+        }
+
+        private void submit(OrderedTaskWindow<RenderedPart> window, RecordBatch chunk,
+                            int rowsAfter, long offsetAfter) throws Exception {
+            window.submit(() -> new RenderedPart(templateEnricher.renderChunk(templates, chunk), rowsAfter, offsetAfter));
+        }
+
+        private void runSerial(CsvRowReader reader) throws IOException {
+            XmlOutputBuffer buffer = new XmlOutputBuffer(BUFFER_SIZE);
+            String[] values = templates.newProfileValues();
+            // 每次只存放当前一行，逐行复用
+            RecordBatch batch = mapping.newBatch(1);
+            for (CsvRow row = reader.next(); row != null; row = reader.next()) {
+                // 此前的行都已写入分桶
+                checkpoint(rowNum, row.getPosition());
+                batch.clear();
+                // 被拒绝行的公司不登记分桶，只出现在被拒绝行中的公司不输出
+                if (!next(row, batch)) {
+                    continue;
+                }
+                CompanyBucket bucket = bucket(batch.getCompany(0));
+                try {
+                    buffer.reset();
+                    templateEnricher.writeProfile(templates, buffer, batch, 0, values);
+                } catch (RuntimeException e) {
+                    failure = templateEnricher.companyFailure(batch.getCompany(0), e);
+                    continue;
+                }
+                buffer.writeTo(out(bucket));
+            }
+        }
+
+        /**
+         * 校验一行并按字段映射追加到记录批；列数错误、数据错误被拒绝或文件已确定失败时返回 false
+         */
+        private boolean next(CsvRow row, RecordBatch batch) {
+            rowNum++;
+            int expectedColumns = mapping.getExpectedColumns();
+            if (row.size() != expectedColumns) {
+                String error = String.format(StrictColumnValidator.ERROR_MESSAGE,
+                    rowNum, expectedColumns, row.size());
+                if (summary.logRowError()) {
+                    logger.error(AppConfig.LogMessages.VALIDATION_FAILED, error);
+                }
+                if (rejects != null) {
+                    rejects.reject(rowNum, TransformError.COLUMN_MISMATCH, error, row);
+                } else {
+                    errors.add(error);
+                }
+                return false;
+            }
+            // 已确定文件无法转换时只继续收集列数错误
+            if (!canRender()) {
+                return false;
+            }
+            return mapping.add(batch, row, rowNum, rejects);
+        }
+
+        private boolean canRender() {
+            return errors.isEmpty() && failure == null;
+        }
+
+        private void append(RenderedPart part) throws IOException {
+            if (failure != null) {
+                return;
+            }
+            for (Map.Entry<String, XmlOutputBuffer> entry : part.chunk.profilesByCompany.entrySet()) {
+                entry.getValue().writeTo(out(bucket(entry.getKey())));
+            }
+            failure = part.chunk.failure;
+            if (part.offsetAfter >= 0) {
+                checkpoint(part.rowsAfter, part.offsetAfter);
+            }
+        }
+
+        /**
+         * 已处理的行数达到间隔时把分桶刷到磁盘并保存进度；已确定失败的文件不保存
+         */
+        private void checkpoint(int rows, long nextOffset) throws IOException {
+            if (checkpointKey == null || rows < nextCheckpoint || !canRender()) {
+                return;
+            }
+            CheckpointStore.State state = new CheckpointStore.State(rows, nextOffset, byteOffset);
+            for (CompanyBucket bucket : created) {
+                state.addBucket(bucket.company, bucket.sync());
+            }
+            checkpointStore.save(checkpointKey, state);
+            nextCheckpoint = rows + (long) checkpointStore.getInterval();
+        }
+
+        private CompanyBucket bucket(String company) throws IOException {
+            CompanyBucket bucket = buckets.get(company);
+            if (bucket == null) {
+                bucket = new CompanyBucket(company, bucketFile(created.size()), 0);
+                addBucket(company, bucket);
+            }
+            return bucket;
+        }
+
+        /**
+         * 分桶的写入流；打开的分桶达到上限时先关闭最久未写入的分桶
+         */
+        private OutputStream out(CompanyBucket bucket) throws IOException {
+            if (!bucket.isOpen()) {
+                if (open.size() >= maxOpen) {
+                    Iterator<CompanyBucket> eldest = open.keySet().iterator();
+                    CompanyBucket evicted = eldest.next();
+                    eldest.remove();
+                    evicted.close();
+                }
+                bucket.open();
+            }
+            open.put(bucket, Boolean.TRUE);
+            return bucket.out;
+        }
+
+        private void addBucket(String company, CompanyBucket bucket) {
+            // 与 groupingBy 一样用 computeIfAbsent 插入：它把新键放在哈希桶链表头部，
+            // put 则追加到尾部，哈希冲突时两者的迭代顺序不同
+            buckets.computeIfAbsent(company, key -> bucket);
+            created.add(bucket);
+        }
+
+        private Path bucketFile(int index) {
+            return workDir.resolve("bucket-" + index + ".part");
+        }
+
+        /**
+         * 各公司的分桶文件，按创建顺序放入，迭代顺序与 buckets 相同
+         */
+        Map<String, List<Path>> fragments() {
+            Map<String, List<Path>> fragments = new HashMap<>();
+            for (CompanyBucket bucket : created) {
+                fragments.computeIfAbsent(bucket.company, key -> new ArrayList<>()).add(bucket.file);
+            }
+            return fragments;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (CompanyBucket bucket : created) {
+                bucket.close();
+            }
+            open.clear();
+        }
+    }
+
+    /**
+     * 一个字节范围的转换结果：各公司按首次出现顺序排列，与分桶文件一一对应
+     */
+    public static final class RangeResult {
+        private final int rows;
+        private final List<String> errors;
+        private final RuntimeException failure;
+        private final List<String> companies = new ArrayList<>();
+        private final List<Path> files = new ArrayList<>();
+
+        RangeResult(int rows, List<String> errors, RuntimeException failure) {
+            this.rows = rows;
+            this.errors = errors;
+            this.failure = failure;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * 严格模式下的列数错误信息
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        /**
+         * 首个渲染失败，没有时为 null
+         */
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        public List<String> getCompanies() {
+            return companies;
+        }
+
+        public List<Path> getFiles() {
+            return files;
+        }
+    }
+
+    /**
+     * 渲染完成的分块及其结束处的断点位置；最后一个分块的 offsetAfter 为 -1
+     */
+    private static final class RenderedPart {
+        private final TemplateEnricher.RenderedChunk chunk;
+        private final int rowsAfter;
+        private final long offsetAfter;
+
+        RenderedPart(TemplateEnricher.RenderedChunk chunk, int rowsAfter, long offsetAfter) {
+            this.chunk = chunk;
+            this.rowsAfter = rowsAfter;
+            this.offsetAfter = offsetAfter;
+        }
+    }
+
+    /**
+     * 单个公司的Profile片段临时文件，写入流按需打开，可关闭后从文件末尾重新打开
+     */
+    private static final class CompanyBucket implements Closeable {
+        private final String company;
+        private final Path file;
+        private FileChannel channel;
+        private OutputStream out;
+        // 写入流关闭时的文件长度
+        private long length;
+        // 关闭前写入的内容尚未刷到磁盘
+        private boolean unsynced;
+
+        /**
+         * 创建分桶文件或把已有文件截断到 length，之后的内容从该位置继续写入
+         */
+        CompanyBucket(String company, Path file, long length) throws IOException {
+            this.company = company;
+            this.file = file;
+            try (FileChannel created = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                created.truncate(length);
+            }
+            this.length = length;
+        }
+
+        boolean isOpen() {
+            return out != null;
+        }
+
+        void open() throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            channel.position(length);
+            out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        }
+
+        /**
+         * 把写入的内容刷到磁盘，返回当前文件长度
+         */
+        long sync() throws IOException {
+            if (out != null) {
+                out.flush();
+                channel.force(false);
+                length = channel.position();
+            } else if (unsynced) {
+                try (FileChannel reopened = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    reopened.force(false);
+                }
+            }
+            unsynced = false;
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out == null) {
+                return;
+            }
+            out.flush();
+            length = channel.position();
+            out.close();
+            out = null;
+            channel = null;
+            unsynced = true;
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package com.csvxml.processor;
 
 import com.csvxml.config.AppConfig;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.metrics.FileSummary;
+import com.csvxml.service.RejectLog;
+import com.csvxml.service.RowQuarantine;
+import com.csvxml.util.TransformError;
+import com.csvxml.util.TransformException;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.slf4j.Logger;
@@ -12,15 +18,30 @@ import java.util.List;
 @Component
 public class StrictColumnValidator implements Processor {
     private static final Logger logger = LoggerFactory.getLogger(StrictColumnValidator.class);
-    private static final int EXPECTED_COLUMNS = 4;
-    private static final String ERROR_MESSAGE = "第 %d 行列数不正确，期望 %d 列，实际 %d 列";
+    static final String ERROR_MESSAGE = "第 %d 行列数不正确，期望 %d 列，实际 %d 列";
+
+    private final RowQuarantine quarantine;
+    // 期望的列数，即 app.mapping.columns 的个数
+    private final int expectedColumns;
+
+    public StrictColumnValidator(RowQuarantine quarantine, RecordMapping mapping) {
+        this.quarantine = quarantine;
+        this.expectedColumns = mapping.getExpectedColumns();
+    }
 
     @Override
     public void process(Exchange exchange) throws Exception {
-        logger.info(AppConfig.LogMessages.CSV_VALIDATION_START);
-
         @SuppressWarnings("unchecked")
         List<List<String>> rows = exchange.getIn().getBody(List.class);
+        validate(rows, quarantine.forExchange(exchange), FileSummary.of(exchange));
+    }
+
+    /**
+     * 校验每行的列数：严格模式下收集所有错误后一并抛出，宽松模式（rejects 不为 null）下把错误行写入拒绝文件；
+     * 逐行错误日志按 summary 限流
+     */
+    public void validate(List<List<String>> rows, RejectLog rejects, FileSummary summary) {
+        logger.info(AppConfig.LogMessages.CSV_VALIDATION_START);
         List<String> errors = new ArrayList<>();
         
         if (rows == null || rows.isEmpty()) {
@@ -32,17 +53,25 @@ public class StrictColumnValidator implements Processor {
         int rowNum = 0;
         for (List<String> row : rows) {
             rowNum++;
-            if (row.size() != EXPECTED_COLUMNS) {
-                String error = String.format(ERROR_MESSAGE, rowNum, EXPECTED_COLUMNS, row.size());
-                logger.error(AppConfig.LogMessages.VALIDATION_FAILED, error);
-                errors.add(error);
+            if (row.size() != expectedColumns) {
+                String error = String.format(ERROR_MESSAGE, rowNum, expectedColumns, row.size());
+                if (summary.logRowError()) {
+                    logger.error(AppConfig.LogMessages.VALIDATION_FAILED, error);
+                }
+                if (rejects != null) {
+                    // 宽松模式：该行写入拒绝文件，由转换器跳过
+                    rejects.reject(rowNum, TransformError.COLUMN_MISMATCH, error, row);
+                } else {
+                    errors.add(error);
+                }
             }
         }
         
         if (!errors.isEmpty()) {
+            summary.addErrors(TransformError.COLUMN_MISMATCH, errors.size());
             String combinedError = String.join("\n", errors);
             logger.error(AppConfig.LogMessages.VALIDATION_FAILED, "发现以下列数错误：\n" + combinedError);
-            throw new IllegalArgumentException(combinedError);
+            throw new TransformException(TransformError.COLUMN_MISMATCH, combinedError);
         } else {
             logger.info(AppConfig.LogMessages.CSV_ROW_COUNT, rowNum);
         }
@@ -1,117 +1,333 @@
 package com.csvxml.processor;
 
-import com.csvxml.model.CsvRecord;
-import com.csvxml.service.NameProcessor;
-import com.csvxml.service.DateParser;
-import com.csvxml.xml.XmlTemplateProcessor;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.metrics.FileSummary;
+import com.csvxml.model.RecordBatch;
+import com.csvxml.service.OutputFileWriter;
+import com.csvxml.xml.ProfileTemplates;
+import com.csvxml.xml.TemplateRegistry;
+import com.csvxml.xml.XmlOutputBuffer;
 import com.csvxml.config.AppConfig;
+import com.csvxml.util.LearnedRatio;
+import com.csvxml.util.OrderedTaskWindow;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.DocumentBuilder;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
 
 @Component
 public class TemplateEnricher implements Processor {
     private static final Logger logger = LoggerFactory.getLogger(TemplateEnricher.class);
-    private static final String TEMPLATE_PATH = "/templates/profile.xml";
-    private static final String PROFILE_NODE = "Profile";
-    private static final String ROOT_NODE = "UserProfiles";
-    private static final String COMPANY_NODE = "Company";
-    
-    private final XmlTemplateProcessor xmlProcessor;
-    private final NameProcessor nameProcessor;
-    private final DateParser dateParser;
-    private final Document template;
+    private static final Logger rowLogger = LoggerFactory.getLogger(AppConfig.ROW_LOGGER);
+    static final String ROOT_NODE = "UserProfiles";
+    private static final int ESTIMATED_PROFILE_BYTES = 320;
+    private static final int FLUSH_BYTES = 64 * 1024;
+    
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+    
+    private final byte[] documentStart;
+    private final byte[] documentEnd;
+    private final byte[] emptyDocument;
+    private final RecordMapping mapping;
+    private final AppConfig.Parallel parallel;
+    private final ExecutorService renderExecutor;
+    private final OutputFileWriter outputFileWriter;
+    private final TemplateRegistry templateRegistry;
+    // 已生成文档的平均每行字节数，用于预先分配内存中的输出缓冲区
+    // 上限避免含很长的值的文件使之后的输出缓冲区按每个Profile数KB预分配
+    private final LearnedRatio profileBytes = new LearnedRatio(ESTIMATED_PROFILE_BYTES,
+        ESTIMATED_PROFILE_BYTES / 4.0, ESTIMATED_PROFILE_BYTES * 16.0);
 
     public TemplateEnricher(
-            XmlTemplateProcessor xmlProcessor,
-            NameProcessor nameProcessor,
-            DateParser dateParser) {
-        this.xmlProcessor = xmlProcessor;
-        this.nameProcessor = nameProcessor;
-        this.dateParser = dateParser;
-        logger.info(AppConfig.LogMessages.XML_TEMPLATE_LOADING, TEMPLATE_PATH);
-        this.template = xmlProcessor.loadTemplate(TEMPLATE_PATH);
-        logger.info(AppConfig.LogMessages.XML_TEMPLATE_LOADED);
+            TemplateRegistry templateRegistry,
+            RecordMapping mapping,
+            AppConfig appConfig,
+            @Qualifier("renderExecutor") ExecutorService renderExecutor,
+            OutputFileWriter outputFileWriter) {
+        this.templateRegistry = templateRegistry;
+        this.mapping = mapping;
+        this.parallel = appConfig.getParallel();
+        this.renderExecutor = renderExecutor;
+        this.outputFileWriter = outputFileWriter;
+        // 关闭缩进时根元素前后不换行
+        String lineSeparator = appConfig.getOutput().isIndent() ? XmlOutputBuffer.LINE_SEPARATOR : "";
+        this.documentStart = XmlOutputBuffer.utf8(XML_DECLARATION + lineSeparator + "<" + ROOT_NODE + ">");
+        this.documentEnd = XmlOutputBuffer.utf8(lineSeparator + "</" + ROOT_NODE + ">");
+        this.emptyDocument = XmlOutputBuffer.utf8(XML_DECLARATION + lineSeparator + "<" + ROOT_NODE + "/>");
+    }
+
+    /**
+     * 当前文件使用的模板，转换期间不随模板重新加载而变化
+     */
+    ProfileTemplates templatesFor(Exchange exchange) {
+        return templateRegistry.select(exchange);
     }
 
     @Override
     public void process(Exchange exchange) throws Exception {
         String fileName = exchange.getIn().getHeader("CamelFileName", String.class);
-        @SuppressWarnings("unchecked")
-        List<CsvRecord> records = exchange.getIn().getBody(List.class);
+        RecordBatch batch = exchange.getIn().getBody(RecordBatch.class);
+        ProfileTemplates templates = templatesFor(exchange);
+        FileSummary summary = FileSummary.of(exchange);
         
         // 按公司分组
-        Map<String, List<CsvRecord>> recordsByCompany = records.stream()
-            .collect(Collectors.groupingBy(CsvRecord::getCompany));
+        RecordBatch.CompanyGroups groups = batch.groupByCompany();
         
-        logger.info("处理文件: {}, 包含 {} 个公司的数据", fileName, recordsByCompany.size());
+        logger.info("处理文件: {}, 包含 {} 个公司的数据", fileName, groups.size());
         
-        // 创建新的空白文档
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-        Document finalDoc = dBuilder.newDocument();
-        
-        // 创建根元素
-        Node rootNode = finalDoc.createElement(ROOT_NODE);
-        finalDoc.appendChild(rootNode);
+        if (outputFileWriter.isSharded()) {
+            // 每个公司写出一个文件
+            OutputFileWriter.Shards shards = outputFileWriter.shards(exchange);
+            try {
+                writeShards(templates, batch, groups, shards, summary);
+            } catch (Exception e) {
+                shards.discard();
+                throw e;
+            }
+            shards.finish(exchange);
+            logger.info(AppConfig.LogMessages.SHARDS_WRITTEN, fileName, shards.size());
+            return;
+        }
+        if (outputFileWriter.isEnabled()) {
+            // 直接写出文件：缓冲区写满即落盘，内存中不保留整个文档
+            outputFileWriter.write(exchange, sink -> write(templates, batch, groups, sink, summary));
+        } else {
+            XmlOutputBuffer out = new XmlOutputBuffer(profileBytes.multiply(batch.size()));
+            writeDocument(templates, batch, groups, out, summary);
+            profileBytes.record(out.size(), batch.size());
+            exchange.getIn().setBody(out.toInputStream());
+        }
+        logger.info("完成文件 {} 的XML文档生成", fileName);
+    }
+    
+    /**
+     * 按公司分组渲染整个文档并写入输出流，不经过交换；各公司的渲染耗时记入 summary
+     */
+    public void write(ProfileTemplates templates, RecordBatch batch, OutputStream sink, FileSummary summary) throws Exception {
+        write(templates, batch, batch.groupByCompany(), sink, summary);
+    }
+    
+    private void write(ProfileTemplates templates, RecordBatch batch, RecordBatch.CompanyGroups groups, OutputStream sink,
+                       FileSummary summary) throws Exception {
+        XmlOutputBuffer out = XmlOutputBuffer.flushingTo(sink, FLUSH_BYTES);
+        writeDocument(templates, batch, groups, out, summary);
+        out.flush();
+    }
+    
+    private void writeDocument(ProfileTemplates templates, RecordBatch batch, RecordBatch.CompanyGroups groups, XmlOutputBuffer out,
+                               FileSummary summary) throws Exception {
+        if (groups.size() == 0) {
+            writeEmptyDocument(out);
+            return;
+        }
+        writeDocumentStart(out);
+        if (parallel.isEnabled()) {
+            renderParallel(templates, batch, groups, out, summary);
+        } else {
+            renderSerial(templates, batch, groups, out, summary);
+        }
+        writeDocumentEnd(out);
+    }
+    
+    private void renderSerial(ProfileTemplates templates, RecordBatch batch, RecordBatch.CompanyGroups groups, XmlOutputBuffer out,
+                              FileSummary summary) {
+        String[] values = templates.newProfileValues();
+        // 逐行调试日志只为 app.logging.debug-files 匹配的文件输出
+        boolean rowDetail = summary.isRowDetail();
         
         // 处理每个公司的数据
-        recordsByCompany.forEach((company, companyRecords) -> {
+        for (int group = 0; group < groups.size(); group++) {
+            String company = groups.getCompany(group);
             try {
-                logger.info("开始处理公司 {} 的数据，包含 {} 条记录", company, companyRecords.size());
+                long started = System.nanoTime();
+                logger.info("开始处理公司 {} 的数据，包含 {} 条记录", company, groups.end(group) - groups.start(group));
                 
-                // 创建公司节点
-                Node companyNode = finalDoc.createElement(COMPANY_NODE);
-                companyNode.setTextContent(company);
-                rootNode.appendChild(companyNode);
+                // 写入公司节点
+                writeCompany(templates, out, company);
                 
                 // 处理该公司的所有用户配置文件
-                for (CsvRecord record : companyRecords) {
-                    logger.debug(AppConfig.LogMessages.RECORD_PROCESSING, company, record.getUserId(), record.getFullName());
-                    Map<String, String> placeholders = createPlaceholderMap(record);
-                    
-                    logger.debug(AppConfig.LogMessages.XML_NODE_PROCESSING, PROFILE_NODE);
-                    Node profileTemplate = template.getElementsByTagName(PROFILE_NODE).item(0);
-                    Node profileNode = finalDoc.importNode(profileTemplate, true);
-                    xmlProcessor.fillPlaceholders(profileNode, placeholders);
-                    rootNode.appendChild(profileNode);
+                for (int i = groups.start(group); i < groups.end(group); i++) {
+                    int row = groups.row(i);
+                    if (rowDetail) {
+                        rowLogger.debug(AppConfig.LogMessages.RECORD_PROCESSING, company, batch.getLineNumber(row));
+                        rowLogger.debug(AppConfig.LogMessages.XML_NODE_PROCESSING, ProfileTemplates.PROFILE_NODE);
+                    }
+                    writeProfile(templates, out, batch, row, values);
                 }
                 
+                summary.company(company, groups.end(group) - groups.start(group), System.nanoTime() - started);
                 logger.info("完成公司 {} 的数据处理", company);
+            } catch (UncheckedIOException e) {
+                // 写出文件失败不属于公司数据错误
+                throw e;
             } catch (Exception e) {
-                logger.error("处理公司 {} 数据时发生错误: {}", company, e.getMessage());
-                throw new RuntimeException("Error processing company: " + company, e);
+                throw companyFailure(company, e);
+            }
+        }
+    }
+    
+    /**
+     * 每个公司的记录按 chunk-size 切块交给渲染线程，结果按公司顺序与块顺序拼接
+     */
+    private void renderParallel(ProfileTemplates templates, RecordBatch batch, RecordBatch.CompanyGroups groups, XmlOutputBuffer out,
+                                FileSummary summary) throws Exception {
+        OrderedTaskWindow<XmlOutputBuffer> window = new OrderedTaskWindow<>(
+            renderExecutor, parallel.getEffectiveWorkers() * 2, out::write);
+        int chunkSize = Math.max(1, parallel.getChunkSize());
+        try {
+            for (int group = 0; group < groups.size(); group++) {
+                String company = groups.getCompany(group);
+                int start = groups.start(group);
+                int end = groups.end(group);
+                logger.info("开始处理公司 {} 的数据，包含 {} 条记录", company, end - start);
+                
+                XmlOutputBuffer companyNode = new XmlOutputBuffer(128);
+                writeCompany(templates, companyNode, company);
+                window.add(companyNode);
+                
+                for (int from = start; from < end; from += chunkSize) {
+                    int chunkStart = from;
+                    int chunkEnd = Math.min(from + chunkSize, end);
+                    window.submit(() -> renderCompanyChunk(templates, company, batch, groups, chunkStart, chunkEnd, summary));
+                }
             }
+            window.drainAll();
+        } finally {
+            window.cancelAll();
+        }
+    }
+    
+    private XmlOutputBuffer renderCompanyChunk(ProfileTemplates templates, String company, RecordBatch batch, RecordBatch.CompanyGroups groups,
+                                               int from, int to, FileSummary summary) {
+        long started = System.nanoTime();
+        XmlOutputBuffer out = new XmlOutputBuffer(profileBytes.multiply(to - from));
+        String[] values = templates.newProfileValues();
+        for (int i = from; i < to; i++) {
+            try {
+                writeProfile(templates, out, batch, groups.row(i), values);
+            } catch (RuntimeException e) {
+                throw companyFailure(company, e);
+            }
+        }
+        // 各块的渲染时间累加为该公司的耗时
+        summary.company(company, to - from, System.nanoTime() - started);
+        return out;
+    }
+    
+    /**
+     * 开启并行时每个公司的分片由一个渲染线程渲染并写出，在途分片数不超过 max-open-shards
+     */
+    private void writeShards(ProfileTemplates templates, RecordBatch batch, RecordBatch.CompanyGroups groups,
+                             OutputFileWriter.Shards shards, FileSummary summary) throws Exception {
+        if (!parallel.isEnabled()) {
+            for (int group = 0; group < groups.size(); group++) {
+                writeShard(templates, batch, groups, group, shards, shards.target(groups.getCompany(group)), summary);
+            }
+            return;
+        }
+        int maxInFlight = Math.min(parallel.getEffectiveWorkers() * 2, outputFileWriter.getMaxOpenShards());
+        OrderedTaskWindow<Path> window = new OrderedTaskWindow<>(renderExecutor, maxInFlight, target -> { });
+        try {
+            for (int group = 0; group < groups.size(); group++) {
+                int shard = group;
+                Path target = shards.target(groups.getCompany(group));
+                window.submit(() -> writeShard(templates, batch, groups, shard, shards, target, summary));
+            }
+            window.drainAll();
+        } finally {
+            window.cancelAll();
+        }
+    }
+    
+    private Path writeShard(ProfileTemplates templates, RecordBatch batch, RecordBatch.CompanyGroups groups, int group,
+                            OutputFileWriter.Shards shards, Path target, FileSummary summary) throws Exception {
+        long started = System.nanoTime();
+        String company = groups.getCompany(group);
+        logger.info("开始处理公司 {} 的数据，包含 {} 条记录", company, groups.end(group) - groups.start(group));
+        shards.write(target, sink -> {
+            XmlOutputBuffer out = XmlOutputBuffer.flushingTo(sink, FLUSH_BYTES);
+            writeDocumentStart(out);
+            writeCompany(templates, out, company);
+            String[] values = templates.newProfileValues();
+            for (int i = groups.start(group); i < groups.end(group); i++) {
+                try {
+                    writeProfile(templates, out, batch, groups.row(i), values);
+                } catch (UncheckedIOException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    throw companyFailure(company, e);
+                }
+            }
+            writeDocumentEnd(out);
+            out.flush();
         });
-        
-        // 转换为字符串输出
-        exchange.getIn().setBody(xmlProcessor.documentToString(finalDoc));
-        logger.info("完成文件 {} 的XML文档生成", fileName);
+        summary.company(company, groups.end(group) - groups.start(group), System.nanoTime() - started);
+        return target;
     }
     
-    private Map<String, String> createPlaceholderMap(CsvRecord record) {
-        Map<String, String> placeholders = new HashMap<>();
-        
-        // 处理用户ID
-        placeholders.put("userId", record.getUserId());
-        
-        // 处理姓名
-        Map<String, String> nameParts = nameProcessor.parse(record.getFullName());
-        placeholders.put("firstName", nameParts.get("given"));
-        placeholders.put("lastName", nameParts.get("surname"));
-        
-        // 处理日期
-        String formattedDate = dateParser.parse(record.getRegisterDate()).toString();
-        placeholders.put("registerDate", formattedDate);
-        
-        return placeholders;
+    /**
+     * 渲染一个按文件顺序读取的记录块，Profile按记录块中登记的公司分组；
+     * 记录块只登记有输出行的公司，被拒绝或去重删除的行不登记公司。遇到第一条失败记录即停止，失败信息记录在结果中
+     */
+    RenderedChunk renderChunk(ProfileTemplates templates, RecordBatch records) {
+        RenderedChunk chunk = new RenderedChunk();
+        for (int code = 0; code < records.companyCount(); code++) {
+            chunk.profilesByCompany.put(records.companyName(code), new XmlOutputBuffer(ESTIMATED_PROFILE_BYTES * 16));
+        }
+        String[] values = templates.newProfileValues();
+        for (int row = 0; row < records.size(); row++) {
+            String company = records.getCompany(row);
+            try {
+                writeProfile(templates, chunk.profilesByCompany.get(company), records, row, values);
+            } catch (RuntimeException e) {
+                chunk.failure = companyFailure(company, e);
+                break;
+            }
+        }
+        return chunk;
+    }
+    
+    RuntimeException companyFailure(String company, Exception e) {
+        logger.error("处理公司 {} 数据时发生错误: {}", company, e.getMessage());
+        return new RuntimeException("Error processing company: " + company, e);
+    }
+    
+    void writeDocumentStart(XmlOutputBuffer out) {
+        out.write(documentStart);
+    }
+    
+    void writeDocumentEnd(XmlOutputBuffer out) {
+        out.write(documentEnd);
+    }
+    
+    void writeEmptyDocument(XmlOutputBuffer out) {
+        out.write(emptyDocument);
+    }
+    
+    void writeCompany(ProfileTemplates templates, XmlOutputBuffer out, String company) {
+        templates.renderCompany(company, out);
+    }
+    
+    /**
+     * 按字段映射填入占位符并渲染一个Profile节点
+     */
+    void writeProfile(ProfileTemplates templates, XmlOutputBuffer out, RecordBatch batch, int row, String[] values) {
+        mapping.fill(batch, row, templates.getFieldSlots(), values);
+        templates.renderProfile(values, out);
+    }
+    
+    /**
+     * 一个记录块的渲染结果
+     */
+    static final class RenderedChunk {
+        final Map<String, XmlOutputBuffer> profilesByCompany = new LinkedHashMap<>();
+        RuntimeException failure;
     }
-} 
\ No newline at end of file
+}
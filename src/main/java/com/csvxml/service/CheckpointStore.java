@@ -0,0 +1,286 @@
+package com.csvxml.service;
+
+import com.csvxml.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import javax.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 本地断点存储。已完成的文件追加到 completed.log，启动时载入内存，按文件名+大小+修改时间
+ * 或文件名+内容哈希判断是否已处理；处理中文件的进度与分桶文件保存在以键命名的子目录中。
+ */
+@Service
+public class CheckpointStore {
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointStore.class);
+    private static final String COMPLETED_LOG = "completed.log";
+    private static final String STATE_FILE = "state.properties";
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+    private static final String BYTE_OFFSET = "bytes";
+    private static final String CHAR_OFFSET = "chars";
+
+    private final AppConfig.Checkpoint config;
+    private final Set<String> completedKeys = ConcurrentHashMap.newKeySet();
+    private final Set<String> completedFingerprints = ConcurrentHashMap.newKeySet();
+
+    public CheckpointStore(AppConfig appConfig) {
+        this.config = appConfig.getCheckpoint();
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public int getInterval() {
+        return Math.max(1, config.getInterval());
+    }
+
+    /**
+     * 载入已完成文件列表，每行格式为：键 大小 修改时间 文件名。
+     * 追加时进程中断会留下不完整的最后一行，格式不正确的行记录警告后跳过
+     */
+    @PostConstruct
+    public void load() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        Path log = dir().resolve(COMPLETED_LOG);
+        if (!Files.exists(log)) {
+            return;
+        }
+        List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            String[] parts = line.split(" ", 4);
+            Long size = parts.length == 4 ? parseLong(parts[1]) : null;
+            Long lastModified = parts.length == 4 ? parseLong(parts[2]) : null;
+            if (size == null || lastModified == null) {
+                if (!line.isEmpty()) {
+                    logger.warn("跳过断点记录 {} 中格式不正确的第 {} 行: {}", log, i + 1, line);
+                }
+                continue;
+            }
+            completedKeys.add(parts[0]);
+            completedFingerprints.add(fingerprint(parts[3], size, lastModified));
+        }
+        logger.info("已载入 {} 个已完成文件的断点记录", completedKeys.size());
+    }
+
+    /**
+     * 文件名、大小与修改时间都相同的文件已处理过，无需读取内容
+     */
+    public boolean isCompleted(String fileName, long size, long lastModified) {
+        return completedFingerprints.contains(fingerprint(fileName, size, lastModified));
+    }
+
+    public boolean isCompleted(String key) {
+        return completedKeys.contains(key);
+    }
+
+    /**
+     * 文件名与内容的SHA-256，作为断点键
+     */
+    public String keyOf(String fileName, Path file) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(fileName.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * 记录文件已完成，并删除其断点目录
+     */
+    public synchronized void complete(String key, String fileName, long size, long lastModified) throws IOException {
+        Path dir = Files.createDirectories(dir());
+        try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(COMPLETED_LOG), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(key + " " + size + " " + lastModified + " " + fileName);
+            writer.newLine();
+        }
+        completedKeys.add(key);
+        completedFingerprints.add(fingerprint(fileName, size, lastModified));
+        discard(key);
+    }
+
+    /**
+     * 删除文件的断点目录，下次处理时从头开始
+     */
+    public void discard(String key) {
+        Path workDir = dir().resolve(key);
+        if (!Files.exists(workDir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("清理断点目录失败: {}", workDir, e);
+        }
+    }
+
+    /**
+     * 文件的断点目录，用于保存分桶文件与进度
+     */
+    public Path workDir(String key) throws IOException {
+        return Files.createDirectories(dir().resolve(key));
+    }
+
+    /**
+     * 读取保存的进度，不存在或内容不完整时返回 null
+     */
+    public State load(String key) throws IOException {
+        Path file = dir().resolve(key).resolve(STATE_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        try {
+            return parseState(properties);
+        } catch (NumberFormatException e) {
+            // 缺少的属性同样在此报告：Integer.parseInt(null) 抛出 NumberFormatException
+            logger.warn("忽略格式不正确的断点进度 {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static State parseState(Properties properties) {
+        State state = new State(Integer.parseInt(properties.getProperty("rows")),
+            Long.parseLong(properties.getProperty("offset")),
+            BYTE_OFFSET.equals(properties.getProperty("offset.unit")));
+        int buckets = Integer.parseInt(properties.getProperty("buckets"));
+        for (int i = 0; i < buckets; i++) {
+            String company = properties.getProperty("bucket." + i + ".company");
+            if (company == null) {
+                throw new NumberFormatException("bucket." + i + ".company is missing");
+            }
+            state.addBucket(company, Long.parseLong(properties.getProperty("bucket." + i + ".length")));
+        }
+        return state;
+    }
+
+    /**
+     * 原子替换保存的进度；调用前分桶文件须已刷到磁盘
+     */
+    public void save(String key, State state) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("rows", String.valueOf(state.rows));
+        properties.setProperty("offset", String.valueOf(state.offset));
+        properties.setProperty("offset.unit", state.byteOffset ? BYTE_OFFSET : CHAR_OFFSET);
+        properties.setProperty("buckets", String.valueOf(state.companies.size()));
+        for (int i = 0; i < state.companies.size(); i++) {
+            properties.setProperty("bucket." + i + ".company", state.companies.get(i));
+            properties.setProperty("bucket." + i + ".length", String.valueOf(state.lengths.get(i)));
+        }
+        Path target = workDir(key).resolve(STATE_FILE);
+        Path temp = target.resolveSibling(STATE_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            properties.store(out, null);
+            channel.force(false);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path dir() {
+        return Paths.get(config.getDir());
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String fingerprint(String fileName, long size, long lastModified) {
+        return size + "/" + lastModified + "/" + fileName;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 文件的处理进度：已完成的行数、下一行在输入中的位置（字节或字符），以及按创建顺序排列的各公司分桶长度
+     */
+    public static final class State {
+        private final int rows;
+        private final long offset;
+        private final boolean byteOffset;
+        private final List<String> companies = new ArrayList<>();
+        private final List<Long> lengths = new ArrayList<>();
+
+        public State(int rows, long offset, boolean byteOffset) {
+            this.rows = rows;
+            this.offset = offset;
+            this.byteOffset = byteOffset;
+        }
+
+        public void addBucket(String company, long length) {
+            companies.add(company);
+            lengths.add(length);
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public boolean isByteOffset() {
+            return byteOffset;
+        }
+
+        public List<String> getCompanies() {
+            return companies;
+        }
+
+        public List<Long> getLengths() {
+            return lengths;
+        }
+    }
+}
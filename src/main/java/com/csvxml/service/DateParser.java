@@ -1,31 +1,229 @@
 package com.csvxml.service;
 
+import com.csvxml.util.LruCache;
+import com.csvxml.util.TransformError;
+import com.csvxml.util.TransformException;
 import org.springframework.stereotype.Service;
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
 import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
 
+/**
+ * 日期解析：支持 yyyy-MM-dd、dd/MM/yyyy、MMM dd, yyyy 与 MM/dd/yyyy。
+ * 根据字符串形态直接选择格式，不再依次尝试；形态不符或解析失败时再按原顺序用 SimpleDateFormat 依次尝试，
+ * 因此多余空格、多位补零的字段等原来接受的写法仍然接受。解析结果按原始字符串缓存。
+ * 结果与原实现相同，是默认时区当天零点按 {@link GregorianCalendar} 换算的时刻：1582年10月之前按儒略历，
+ * 时区最早的规则之前使用标准偏移而不是地方平时。
+ * 只有儒略历才有的闰日（例如 1500-02-29）无法表示为 {@link LocalDate}，视为无法解析。线程安全。
+ */
 @Service
 public class DateParser {
-    private static final List<String> DATE_FORMATS = Arrays.asList(
+    private static final int CACHE_SIZE = 4096;
+
+    private static final DateTimeFormatter ISO_DATE = numericFormat('-', ChronoField.YEAR_OF_ERA,
+        ChronoField.MONTH_OF_YEAR, ChronoField.DAY_OF_MONTH);
+    private static final DateTimeFormatter DAY_FIRST = numericFormat('/', ChronoField.DAY_OF_MONTH,
+        ChronoField.MONTH_OF_YEAR, ChronoField.YEAR_OF_ERA);
+    private static final DateTimeFormatter MONTH_FIRST = numericFormat('/', ChronoField.MONTH_OF_YEAR,
+        ChronoField.DAY_OF_MONTH, ChronoField.YEAR_OF_ERA);
+    private static final DateTimeFormatter MONTH_NAME = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive()
+        .optionalStart().appendText(ChronoField.MONTH_OF_YEAR, TextStyle.FULL).optionalEnd()
+        .optionalStart().appendText(ChronoField.MONTH_OF_YEAR, TextStyle.SHORT).optionalEnd()
+        .appendLiteral(' ')
+        .appendValue(ChronoField.DAY_OF_MONTH, 1, 9, SignStyle.NEVER)
+        .appendLiteral(", ")
+        .appendValue(ChronoField.YEAR_OF_ERA, 1, 9, SignStyle.NEVER)
+        .parseDefaulting(ChronoField.ERA, 1)
+        .toFormatter(Locale.getDefault(Locale.Category.FORMAT))
+        .withResolverStyle(ResolverStyle.STRICT);
+    // 改历时跳过的日期 1582-10-05 至 1582-10-14 在 GregorianCalendar 中不存在，原实现不接受
+    private static final LocalDate CUTOVER_GAP_START = LocalDate.of(1582, 10, 5);
+    private static final LocalDate CUTOVER_GAP_END = LocalDate.of(1582, 10, 15);
+    // 原实现依次尝试的格式
+    private static final List<String> LEGACY_FORMATS = Arrays.asList(
         "yyyy-MM-dd",
         "dd/MM/yyyy",
         "MMM dd, yyyy",
         "MM/dd/yyyy"
     );
-    
+
+    private final TimeZone timeZone;
+    private final LruCache<String, LocalDate> cache = new LruCache<>(CACHE_SIZE);
+
+    public DateParser() {
+        this(ZoneId.systemDefault());
+    }
+
+    DateParser(ZoneId zone) {
+        this.timeZone = TimeZone.getTimeZone(zone);
+    }
+
     public Instant parse(String rawDate) {
-        for (String format : DATE_FORMATS) {
+        return toInstant(parseDate(rawDate));
+    }
+
+    /**
+     * 只解析出日期，不换算为时刻
+     */
+    public LocalDate parseDate(String rawDate) {
+        LocalDate cached = cache.get(rawDate);
+        if (cached != null) {
+            return cached;
+        }
+        LocalDate date = parseFast(rawDate);
+        if (date == null) {
+            date = parseLegacy(rawDate);
+        }
+        if (date == null) {
+            throw new TransformException(TransformError.DATE_PARSE_FAIL, "Unsupported date format: " + rawDate);
+        }
+        cache.put(rawDate, date);
+        return date;
+    }
+
+    /**
+     * 默认时区当天零点对应的时刻，与原 SimpleDateFormat 的换算相同
+     */
+    public Instant toInstant(LocalDate date) {
+        GregorianCalendar calendar = new GregorianCalendar(timeZone);
+        calendar.clear();
+        calendar.set(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth());
+        return Instant.ofEpochMilli(calendar.getTimeInMillis());
+    }
+
+    private static LocalDate parseFast(String rawDate) {
+        DateTimeFormatter format = formatOf(rawDate);
+        if (format == null) {
+            return null;
+        }
+        LocalDate date;
+        try {
+            // 与原 SimpleDateFormat 一致，忽略日期之后的多余内容
+            date = LocalDate.from(format.parse(rawDate, new ParsePosition(start(rawDate))));
+        } catch (DateTimeException e) {
+            return null;
+        }
+        // 改历跳过的日期交给原实现，按下一个格式解释或拒绝
+        return date.isBefore(CUTOVER_GAP_START) || !date.isBefore(CUTOVER_GAP_END) ? date : null;
+    }
+
+    /**
+     * 与原实现相同，按顺序用不宽松的 SimpleDateFormat 逐个尝试，取解析结果在默认时区中的年月日
+     */
+    private LocalDate parseLegacy(String rawDate) {
+        for (String format : LEGACY_FORMATS) {
+            SimpleDateFormat sdf = new SimpleDateFormat(format);
+            sdf.setLenient(false);
+            sdf.setTimeZone(timeZone);
+            Date parsed;
             try {
-                SimpleDateFormat sdf = new SimpleDateFormat(format);
-                sdf.setLenient(false);
-                return sdf.parse(rawDate).toInstant();
+                parsed = sdf.parse(rawDate);
             } catch (ParseException ignored) {
                 // 继续尝试下一个格式
+                continue;
             }
+            Calendar calendar = new GregorianCalendar(timeZone);
+            calendar.setTime(parsed);
+            try {
+                return LocalDate.of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                    calendar.get(Calendar.DAY_OF_MONTH));
+            } catch (DateTimeException e) {
+                // 只有儒略历才有的闰日
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据分隔符与首字符选择格式；斜杠格式优先按日/月解释，首个字段超过12或第二个字段
+     * 不超过12时使用日/月，否则使用月/日
+     */
+    private static DateTimeFormatter formatOf(String rawDate) {
+        int start = start(rawDate);
+        if (start == rawDate.length()) {
+            return null;
+        }
+        char first = rawDate.charAt(start);
+        if (Character.isLetter(first)) {
+            return MONTH_NAME;
+        }
+        if (first < '0' || first > '9') {
+            return null;
+        }
+        int end = skipDigits(rawDate, start);
+        if (end == rawDate.length()) {
+            return null;
+        }
+        char separator = rawDate.charAt(end);
+        if (separator == '-') {
+            return ISO_DATE;
+        }
+        if (separator != '/') {
+            return null;
+        }
+        int firstField = number(rawDate, start, end);
+        int secondEnd = skipDigits(rawDate, end + 1);
+        int secondField = number(rawDate, end + 1, secondEnd);
+        return firstField > 12 || secondField <= 12 ? DAY_FIRST : MONTH_FIRST;
+    }
+
+    /**
+     * 与 SimpleDateFormat 一样，每个字段读入所有连续数字，补零的位数不限
+     */
+    private static DateTimeFormatter numericFormat(char separator, ChronoField first, ChronoField second, ChronoField third) {
+        return new DateTimeFormatterBuilder()
+            .appendValue(first, 1, 9, SignStyle.NEVER)
+            .appendLiteral(separator)
+            .appendValue(second, 1, 9, SignStyle.NEVER)
+            .appendLiteral(separator)
+            .appendValue(third, 1, 9, SignStyle.NEVER)
+            .parseDefaulting(ChronoField.ERA, 1)
+            .toFormatter(Locale.ROOT)
+            .withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    /**
+     * 跳过开头的空格与制表符
+     */
+    private static int start(String value) {
+        int i = 0;
+        while (i < value.length() && (value.charAt(i) == ' ' || value.charAt(i) == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipDigits(String value, int from) {
+        int i = from;
+        while (i < value.length() && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int number(String value, int from, int to) {
+        if (from == to || to - from > 9) {
+            return Integer.MAX_VALUE;
         }
-        throw new IllegalArgumentException("Unsupported date format: " + rawDate);
+        return Integer.parseInt(value.substring(from, to));
     }
-} 
\ No newline at end of file
+}
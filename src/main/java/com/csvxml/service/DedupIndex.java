@@ -0,0 +1,110 @@
+package com.csvxml.service;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.util.LongHashSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 跨文件的去重索引：已成功输出的文件中出现过的 (公司, 键) 哈希。
+ * 配置了 app.dedup.index-file 时键依次追加写入该文件，启动时映射读入内存中的 {@link LongHashSet}；
+ * 未配置时只在本进程内有效。可被多个处理线程同时调用。
+ */
+@Service
+public class DedupIndex implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DedupIndex.class);
+
+    private final LongHashSet keys = new LongHashSet(0);
+    private final FileChannel log;
+
+    public DedupIndex(AppConfig appConfig) throws IOException {
+        AppConfig.Dedup config = appConfig.getDedup();
+        String indexFile = config.getIndexFile();
+        if (!config.isEnabled() || !config.isAcrossFiles() || indexFile == null || indexFile.isEmpty()) {
+            this.log = null;
+            return;
+        }
+        Path file = Paths.get(indexFile);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            load(file);
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    private void load(Path file) throws IOException {
+        // 进程在写入一个键的途中退出时丢弃不完整的部分
+        long length = log.size() / Long.BYTES * Long.BYTES;
+        log.truncate(length);
+        long position = 0;
+        while (position < length) {
+            long window = Math.min(length - position, (long) Integer.MAX_VALUE / Long.BYTES * Long.BYTES);
+            MappedByteBuffer mapped = log.map(FileChannel.MapMode.READ_ONLY, position, window);
+            LongBuffer values = mapped.asLongBuffer();
+            while (values.hasRemaining()) {
+                keys.add(values.get());
+            }
+            position += window;
+        }
+        log.position(length);
+        logger.info(AppConfig.LogMessages.DEDUP_INDEX_LOADED, file, keys.size());
+    }
+
+    public synchronized boolean contains(long key) {
+        return keys.contains(key);
+    }
+
+    /**
+     * 加入一个文件的所有键，持久化时新键写入索引文件后才返回
+     */
+    public synchronized void addAll(LongHashSet fileKeys) {
+        ByteBuffer added = log != null ? ByteBuffer.allocate(fileKeys.size() * Long.BYTES) : null;
+        fileKeys.forEach(key -> {
+            if (keys.add(key) && added != null) {
+                added.putLong(key);
+            }
+        });
+        if (added == null || added.position() == 0) {
+            return;
+        }
+        added.flip();
+        try {
+            while (added.hasRemaining()) {
+                log.write(added);
+            }
+            log.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    @PreDestroy
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+}
@@ -1,38 +1,64 @@
 package com.csvxml.service;
 
+import com.csvxml.model.NameParts;
+import com.csvxml.util.TransformError;
+import com.csvxml.util.TransformException;
 import org.springframework.stereotype.Service;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Pattern;
 
 @Service
 public class NameProcessor {
-    private static final Pattern CHINESE_PATTERN = Pattern.compile("[\u4e00-\u9fa5]+");
+    private static final char CJK_FIRST = '\u4e00';
+    private static final char CJK_LAST = '\u9fa5';
     
-    public Map<String, String> parse(String fullName) {
-        Map<String, String> result = new HashMap<>();
-        
+    public NameParts parse(String fullName) {
         if (isChineseName(fullName)) {
             // 处理中文名
             if (fullName.length() < 2) {
-                throw new IllegalArgumentException("Invalid Chinese name length");
-            }
-            result.put("surname", fullName.substring(0, 1));
-            result.put("given", fullName.substring(1));
-        } else {
-            // 处理西方名
-            String[] parts = fullName.trim().split("\\s+");
-            if (parts.length < 2) {
-                throw new IllegalArgumentException("Western name must contain both given name and surname");
+                throw new TransformException(TransformError.NAME_FORMAT_ERR, "Invalid Chinese name length");
             }
-            result.put("given", parts[0]);
-            result.put("surname", parts[parts.length - 1]);
+            return new NameParts(fullName.substring(1), fullName.substring(0, 1));
         }
         
-        return result;
+        // 处理西方名：去掉首尾空白后取第一个和最后一个以空白分隔的词
+        int start = 0;
+        int end = fullName.length();
+        while (start < end && fullName.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && fullName.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int givenEnd = start;
+        while (givenEnd < end && !isWhitespace(fullName.charAt(givenEnd))) {
+            givenEnd++;
+        }
+        if (givenEnd == end) {
+            throw new TransformException(TransformError.NAME_FORMAT_ERR, "Western name must contain both given name and surname");
+        }
+        int surnameStart = end;
+        while (!isWhitespace(fullName.charAt(surnameStart - 1))) {
+            surnameStart--;
+        }
+        return new NameParts(fullName.substring(start, givenEnd), fullName.substring(surnameStart, end));
     }
     
     private boolean isChineseName(String name) {
-        return CHINESE_PATTERN.matcher(name).matches();
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < CJK_FIRST || c > CJK_LAST) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 与正则 \s 相同的空白字符集合
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
-} 
\ No newline at end of file
+}
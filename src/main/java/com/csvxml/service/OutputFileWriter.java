@@ -0,0 +1,237 @@
+package com.csvxml.service;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.util.PipelinedGzipOutputStream;
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+
+/**
+ * 直接写出XML文件：内容先写入输出目录中的临时文件，完成后原子重命名为最终文件名，
+ * 读取输出目录的下游程序不会看到写了一半的文件。文件名与路由中 file 端点的命名规则相同。
+ * 分片模式下每个公司写出一个文件，各分片可由不同线程同时写出。
+ * 压缩输出时文件名追加 .gz，写入的数据由压缩线程池中的线程压缩后写入临时文件。
+ */
+@Service
+public class OutputFileWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String COMPANY_TOKEN = "{company}";
+    private static final int MAX_COMPANY_LENGTH = 100;
+    // 文件名中只保留字母、数字与 . _ -
+    private static final Pattern UNSAFE_CHARS = Pattern.compile("[^\\p{L}\\p{N}._-]");
+    private static final String GZIP = "gzip";
+    private static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * 向输出流写入文件内容
+     */
+    public interface ContentWriter {
+        void write(OutputStream out) throws Exception;
+    }
+
+    private final AppConfig.Output config;
+    private final ExecutorService compressExecutor;
+
+    public OutputFileWriter(AppConfig appConfig, @Qualifier("compressExecutor") ExecutorService compressExecutor) {
+        this.config = appConfig.getOutput();
+        this.compressExecutor = compressExecutor;
+        if (config.isCompressed() && !GZIP.equals(config.getCompression())) {
+            throw new IllegalStateException("Unsupported output compression: " + config.getCompression());
+        }
+    }
+
+    /**
+     * 是否直接写出；压缩输出时总是直接写出
+     */
+    public boolean isEnabled() {
+        return config.isEffectiveDirectWrite();
+    }
+
+    public boolean isSharded() {
+        return config.isSharded();
+    }
+
+    public int getMaxOpenShards() {
+        return Math.max(1, config.getMaxOpenShards());
+    }
+
+    /**
+     * 写出文件并把 body 设为最终文件；失败时删除临时文件
+     */
+    public Path write(Exchange exchange, ContentWriter content) throws Exception {
+        Path dir = Files.createDirectories(Paths.get(AppConfig.OUTPUT_DIR));
+        Path target = dir.resolve(fileName(exchange, AppConfig.OUTPUT_FILE_NAME));
+        writeFile(target, content);
+        exchange.getIn().setHeader(Exchange.FILE_NAME_PRODUCED, target.toAbsolutePath().toString());
+        exchange.getIn().setBody(target.toFile());
+        return target;
+    }
+
+    /**
+     * 开始按公司分片写出一个输入文件
+     */
+    public Shards shards(Exchange exchange) throws IOException {
+        Path dir = Files.createDirectories(Paths.get(AppConfig.OUTPUT_DIR));
+        return new Shards(this, dir, fileName(exchange, AppConfig.SHARD_FILE_NAME));
+    }
+
+    /**
+     * 写出到 target 的缓冲输出流；压缩输出时为在另一个线程中压缩的流，关闭时写出 gzip 尾部
+     */
+    private OutputStream open(OutputStream target) {
+        if (config.isCompressed()) {
+            return new PipelinedGzipOutputStream(target, config.getCompressionLevel(), BUFFER_SIZE, compressExecutor);
+        }
+        return new BufferedOutputStream(target, BUFFER_SIZE);
+    }
+
+    private void writeFile(Path target, ContentWriter content) throws Exception {
+        Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = open(Channels.newOutputStream(channel));
+                try {
+                    content.write(out);
+                    finish(out);
+                } catch (Exception e) {
+                    // 结束压缩线程；临时文件随后删除
+                    try {
+                        finish(out);
+                    } catch (IOException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                    throw e;
+                }
+                channel.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * 写出缓冲的数据；压缩流还写出 gzip 尾部并等待压缩线程结束。不关闭文件，以便随后落盘
+     */
+    private static void finish(OutputStream out) throws IOException {
+        if (out instanceof PipelinedGzipOutputStream) {
+            ((PipelinedGzipOutputStream) out).finish();
+        } else {
+            out.flush();
+        }
+    }
+
+    private String fileName(Exchange exchange, String pattern) {
+        Expression expression = exchange.getContext().resolveLanguage("simple")
+            .createExpression(pattern);
+        String fileName = expression.evaluate(exchange, String.class);
+        return config.isCompressed() ? fileName + GZIP_SUFFIX : fileName;
+    }
+
+    /**
+     * 一个输入文件的分片：先在提交线程中按公司顺序分配文件名，再由任意线程写出
+     */
+    public static final class Shards {
+        private final OutputFileWriter writer;
+        private final Path dir;
+        private final String fileName;
+        private final Set<String> names = new HashSet<>();
+        // 按公司顺序分配的文件与其中已写完的文件
+        private final List<Path> targets = new ArrayList<>();
+        private final Set<Path> written = new HashSet<>();
+        private long bytes;
+        private boolean discarded;
+
+        private Shards(OutputFileWriter writer, Path dir, String fileName) {
+            this.writer = writer;
+            this.dir = dir;
+            this.fileName = fileName;
+        }
+
+        /**
+         * 公司的分片文件；公司名中的特殊字符替换为下划线，替换后重名时追加序号
+         */
+        public synchronized Path target(String company) {
+            String safe = UNSAFE_CHARS.matcher(company).replaceAll("_");
+            if (safe.length() > MAX_COMPANY_LENGTH) {
+                safe = safe.substring(0, MAX_COMPANY_LENGTH);
+            }
+            String name = fileName.replace(COMPANY_TOKEN, safe.isEmpty() ? "_" : safe);
+            for (int i = 2; !names.add(name); i++) {
+                name = fileName.replace(COMPANY_TOKEN, safe + "_" + i);
+            }
+            Path target = dir.resolve(name);
+            targets.add(target);
+            return target;
+        }
+
+        /**
+         * 写出一个分片；可由多个线程同时调用
+         */
+        public void write(Path target, ContentWriter content) throws Exception {
+            writer.writeFile(target, content);
+            long size = Files.size(target);
+            synchronized (this) {
+                if (discarded) {
+                    // 其他分片已失败，取消后仍在运行的任务写完的文件同样删除
+                    Files.deleteIfExists(target);
+                    return;
+                }
+                written.add(target);
+                bytes += size;
+            }
+        }
+
+        /**
+         * 转换失败时删除已写出的分片，下游不会看到不完整的结果
+         */
+        public synchronized void discard() {
+            discarded = true;
+            for (Path target : written) {
+                target.toFile().delete();
+            }
+            written.clear();
+        }
+
+        /**
+         * 所有分片写完后调用：body 设为按公司顺序排列的分片文件，写出的总字节数记入交换属性
+         */
+        public synchronized void finish(Exchange exchange) {
+            List<File> files = new ArrayList<>(written.size());
+            for (Path target : targets) {
+                if (written.contains(target)) {
+                    files.add(target.toFile());
+                }
+            }
+            exchange.getIn().setBody(files);
+            exchange.setProperty(PipelineMetrics.OUTPUT_BYTES, bytes);
+        }
+
+        public synchronized int size() {
+            return written.size();
+        }
+    }
+}
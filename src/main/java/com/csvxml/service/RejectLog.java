@@ -0,0 +1,84 @@
+package com.csvxml.service;
+
+import com.csvxml.csv.CsvRow;
+import com.csvxml.util.TransformError;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个输入文件的拒绝记录：每条被拒绝的行写为一行CSV（行号、错误类别、错误信息、原始各列）。
+ * 文件在第一次拒绝时才创建。可被多个渲染线程同时调用。
+ */
+public final class RejectLog implements Closeable {
+    private final Path file;
+    private final BitSet rejectedLines = new BitSet();
+    private final Map<TransformError, Integer> counts = new EnumMap<>(TransformError.class);
+    private CSVPrinter printer;
+
+    RejectLog(Path file) {
+        this.file = file;
+    }
+
+    public void reject(int lineNumber, TransformError error, String message, List<String> row) {
+        reject(lineNumber, error, message, CsvRow.of(row));
+    }
+
+    /**
+     * 读取器返回的行在此按列取值，不先复制为列表
+     */
+    public synchronized void reject(int lineNumber, TransformError error, String message, CsvRow row) {
+        rejectedLines.set(lineNumber);
+        counts.merge(error, 1, Integer::sum);
+        List<Object> values = new ArrayList<>(row.size() + 3);
+        values.add(lineNumber);
+        values.add(error.name());
+        values.add(message);
+        for (int i = 0; i < row.size(); i++) {
+            values.add(row.get(i));
+        }
+        try {
+            if (printer == null) {
+                Files.createDirectories(file.getParent());
+                printer = CSVFormat.DEFAULT.print(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+            }
+            printer.printRecord(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized boolean isRejected(int lineNumber) {
+        return rejectedLines.get(lineNumber);
+    }
+
+    public synchronized int size() {
+        return rejectedLines.cardinality();
+    }
+
+    synchronized Map<TransformError, Integer> counts() {
+        return new EnumMap<>(counts);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (printer != null) {
+            printer.close();
+            printer = null;
+        }
+    }
+}
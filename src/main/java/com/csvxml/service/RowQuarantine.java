@@ -0,0 +1,91 @@
+package com.csvxml.service;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.metrics.FileSummary;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.util.TransformError;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * 宽松模式下的行级隔离：数据错误的行写入该文件的拒绝记录，其余行照常输出。
+ * 严格模式下 {@link #forExchange} 返回 null，错误仍使整个文件失败。
+ */
+@Service
+public class RowQuarantine {
+    private static final Logger logger = LoggerFactory.getLogger(RowQuarantine.class);
+    private static final String REJECT_LOG_PROPERTY = "CsvXmlRejectLog";
+
+    private final AppConfig.Validation config;
+    private final PipelineMetrics metrics;
+
+    public RowQuarantine(AppConfig appConfig, PipelineMetrics metrics) {
+        this.config = appConfig.getValidation();
+        this.metrics = metrics;
+    }
+
+    public boolean isEnabled() {
+        return config.isLenient();
+    }
+
+    /**
+     * 当前文件的拒绝记录，首次调用时创建并在交换结束时关闭；只应在路由线程中调用
+     */
+    public RejectLog forExchange(Exchange exchange) {
+        if (!isEnabled()) {
+            return null;
+        }
+        RejectLog rejects = exchange.getProperty(REJECT_LOG_PROPERTY, RejectLog.class);
+        if (rejects == null) {
+            String fileName = exchange.getContext().resolveLanguage("simple")
+                .createExpression(AppConfig.REJECT_FILE_NAME).evaluate(exchange, String.class);
+            rejects = new RejectLog(Paths.get(AppConfig.REJECT_DIR, fileName));
+            exchange.setProperty(REJECT_LOG_PROPERTY, rejects);
+            RejectLog created = rejects;
+            exchange.adapt(ExtendedExchange.class).addOnCompletion(new SynchronizationAdapter() {
+                @Override
+                public void onDone(Exchange completed) {
+                    Map<TransformError, Integer> counts = finish(completed.getIn().getHeader("CamelFileName", String.class), created);
+                    FileSummary summary = completed.getProperty(FileSummary.PROPERTY, FileSummary.class);
+                    if (summary != null) {
+                        counts.forEach(summary::addErrors);
+                    }
+                }
+            });
+        }
+        return rejects;
+    }
+
+    /**
+     * 不在路由中转换时的拒绝记录，例如集群模式下的一个分片；严格模式返回 null，由调用方关闭
+     */
+    public RejectLog open(Path file) {
+        return isEnabled() ? new RejectLog(file) : null;
+    }
+
+    /**
+     * 关闭拒绝记录并统计拒绝行数，返回按类别的拒绝行数
+     */
+    public Map<TransformError, Integer> finish(String fileName, RejectLog rejects) {
+        try {
+            rejects.close();
+        } catch (IOException e) {
+            logger.warn("关闭拒绝记录文件失败: {}", rejects.getFile(), e);
+        }
+        Map<TransformError, Integer> counts = rejects.counts();
+        if (counts.isEmpty()) {
+            return counts;
+        }
+        counts.forEach(metrics::recordRejects);
+        logger.warn(AppConfig.LogMessages.ROWS_REJECTED, fileName, rejects.size(), rejects.getFile());
+        return counts;
+    }
+}
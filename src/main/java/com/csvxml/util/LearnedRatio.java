@@ -0,0 +1,64 @@
+package com.csvxml.util;
+
+/**
+ * 从已处理的文件中学习的比值（如每行的字节数），用于预先分配容量。
+ * 每个文件结束后记录一次观测值，按指数加权平均更新；并发更新时可能丢失个别观测值。线程安全。
+ * 观测值截断到 [min, max]，个别异常的文件（如只有一行很长的值）不会使之后的预分配接近零或过大。
+ */
+public final class LearnedRatio {
+    // 新观测值的权重
+    private static final double WEIGHT = 0.25;
+
+    private final double min;
+    private final double max;
+    private volatile double ratio;
+    private volatile boolean observed;
+
+    /**
+     * @param initial 尚无观测值时使用的比值
+     * @param min     观测值的下限
+     * @param max     观测值的上限
+     */
+    public LearnedRatio(double initial, double min, double max) {
+        if (!(min > 0 && min <= initial && initial <= max)) {
+            throw new IllegalArgumentException("Expected 0 < min <= initial <= max: " + min + ", " + initial + ", " + max);
+        }
+        this.min = min;
+        this.max = max;
+        this.ratio = initial;
+    }
+
+    public double get() {
+        return ratio;
+    }
+
+    /**
+     * 记录一次观测值 numerator / denominator，非正数忽略；第一次观测值直接取代初始值，超出范围时取边界值
+     */
+    public void record(long numerator, long denominator) {
+        if (numerator <= 0 || denominator <= 0) {
+            return;
+        }
+        double value = Math.max(min, Math.min(max, (double) numerator / denominator));
+        ratio = observed ? ratio + (value - ratio) * WEIGHT : value;
+        observed = true;
+    }
+
+    /**
+     * base × 比值，作为容量时留出八分之一余量
+     */
+    public int multiply(long base) {
+        return capacity(base * ratio);
+    }
+
+    /**
+     * base ÷ 比值，作为容量时留出八分之一余量
+     */
+    public int divide(long base) {
+        return capacity(base / ratio);
+    }
+
+    private static int capacity(double estimate) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, estimate * 1.125);
+    }
+}
@@ -0,0 +1,103 @@
+package com.csvxml.util;
+
+import java.util.function.LongConsumer;
+
+/**
+ * long 的开放寻址哈希集合（线性探测），元素不装箱，每个元素只占 8 字节槽位。
+ * 0 用作空槽标记，集合中的 0 单独记录。非线程安全。
+ */
+public final class LongHashSet {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    /**
+     * @param expected 预计的元素个数，装载因子不超过 0.75
+     */
+    public LongHashSet(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 1 << 30 && capacity * 3L < expected * 4L) {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 加入元素，返回集合是否因此改变
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int index = slot(key, mask);
+        while (table[index] != 0) {
+            if (table[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = key;
+        if (++size * 4L > table.length * 3L) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int index = slot(key, mask);
+        while (table[index] != 0) {
+            if (table[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (long key : table) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        mask = table.length - 1;
+        for (long key : old) {
+            if (key != 0) {
+                int index = slot(key, mask);
+                while (table[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = key;
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
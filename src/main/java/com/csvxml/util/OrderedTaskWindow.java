@@ -0,0 +1,80 @@
+package com.csvxml.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 有界的并行任务窗口：任务并发执行，结果严格按提交顺序交给处理器。
+ * 在途任务数超过上限时阻塞提交线程，等待最早的任务完成，从而限制内存占用。
+ * 非线程安全，只能由单个提交线程使用。
+ */
+public final class OrderedTaskWindow<T> {
+
+    /**
+     * 按顺序处理任务结果
+     */
+    public interface ResultHandler<T> {
+        void accept(T result) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final ResultHandler<T> handler;
+    private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+    public OrderedTaskWindow(ExecutorService executor, int maxInFlight, ResultHandler<T> handler) {
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.handler = handler;
+    }
+
+    public void submit(Callable<T> task) throws Exception {
+        pending.add(executor.submit(task));
+        while (pending.size() > maxInFlight) {
+            drainNext();
+        }
+    }
+
+    /**
+     * 追加一个已就绪的结果，与并行任务一起按顺序输出
+     */
+    public void add(T result) {
+        pending.add(CompletableFuture.completedFuture(result));
+    }
+
+    public void drainAll() throws Exception {
+        while (!pending.isEmpty()) {
+            drainNext();
+        }
+    }
+
+    /**
+     * 取消尚未输出的任务，通常在 finally 中调用
+     */
+    public void cancelAll() {
+        for (Future<T> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    private void drainNext() throws Exception {
+        Future<T> future = pending.poll();
+        T result;
+        try {
+            result = future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+        handler.accept(result);
+    }
+}
@@ -0,0 +1,161 @@
+package com.csvxml.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 在另一个线程中压缩的 gzip 输出流：写入的数据按块交给压缩线程，写入线程（渲染）与压缩同时进行。
+ * 在途的块数固定，压缩跟不上时阻塞写入线程。压缩或写出失败时，下一次写入或 {@link #finish} 抛出该异常，
+ * 此后的写入抛出 IOException，{@link #finish} 不再抛出。
+ * 非线程安全，只能由单个写入线程使用。
+ */
+public final class PipelinedGzipOutputStream extends OutputStream {
+    // 写入线程正在填充一块，压缩线程正在压缩一块，另有一块排队
+    private static final int BLOCKS = 3;
+
+    private final OutputStream out;
+    private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(BLOCKS + 1);
+    private final BlockingQueue<Block> free = new ArrayBlockingQueue<>(BLOCKS + 1);
+    private final Future<Void> compressor;
+    private Block current;
+    private boolean finished;
+
+    /**
+     * @param out       压缩后的数据写入该流，{@link #finish} 不关闭它
+     * @param level     压缩级别，0-9
+     * @param blockSize 每块的字节数
+     * @param executor  运行压缩任务的线程池，每个流占用其中一个线程直到 finish
+     */
+    public PipelinedGzipOutputStream(OutputStream out, int level, int blockSize, ExecutorService executor) {
+        this.out = out;
+        for (int i = 1; i < BLOCKS; i++) {
+            free.add(new Block(blockSize));
+        }
+        this.current = new Block(blockSize);
+        this.compressor = executor.submit(() -> compress(level, blockSize));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (current.length == current.data.length) {
+            handOff();
+        }
+        current.data[current.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (current.length == current.data.length) {
+                handOff();
+            }
+            int n = Math.min(len, current.data.length - current.length);
+            System.arraycopy(b, off, current.data, current.length, n);
+            current.length += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 压缩剩余数据、写出 gzip 尾部并等待压缩线程结束，不关闭下层输出流
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (current.length > 0) {
+            filled.add(current);
+        }
+        // 之后的写入进入 handOff 并失败
+        current = Block.END;
+        filled.add(Block.END);
+        awaitCompressor();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void handOff() throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+        filled.add(current);
+        try {
+            current = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished = true;
+            compressor.cancel(true);
+            throw new InterruptedIOException("Interrupted while waiting for compressor");
+        }
+        if (current == Block.FAILED) {
+            finished = true;
+            awaitCompressor();
+        }
+    }
+
+    private void awaitCompressor() throws IOException {
+        try {
+            compressor.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            compressor.cancel(true);
+            throw new InterruptedIOException("Interrupted while waiting for compressor");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Compression failed", cause);
+        }
+    }
+
+    private Void compress(int level, int blockSize) throws Exception {
+        try {
+            GZIPOutputStream gzip = new GZIPOutputStream(out, blockSize) {
+                {
+                    def.setLevel(level);
+                }
+            };
+            for (Block block = filled.take(); block != Block.END; block = filled.take()) {
+                gzip.write(block.data, 0, block.length);
+                block.length = 0;
+                free.add(block);
+            }
+            gzip.finish();
+            out.flush();
+            return null;
+        } catch (Exception | Error e) {
+            // 写入线程不再等待空闲块
+            free.add(Block.FAILED);
+            throw e;
+        }
+    }
+
+    private static final class Block {
+        static final Block END = new Block(0);
+        static final Block FAILED = new Block(0);
+
+        final byte[] data;
+        int length;
+
+        Block(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
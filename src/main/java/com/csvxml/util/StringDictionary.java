@@ -0,0 +1,36 @@
+package com.csvxml.util;
+
+/**
+ * 有界的字符串字典：内容相同的字符串返回字典中已有的实例，重复的值不再各自保留一份。
+ * 直接映射，哈希冲突时新值覆盖旧值，因此内存占用固定，但不保证所有重复值都被合并。
+ * 较长的字符串很少重复，直接返回。非线程安全。
+ */
+public final class StringDictionary {
+    private static final int MAX_LENGTH = 64;
+
+    private final String[] entries;
+    private final int mask;
+
+    /**
+     * @param capacity 条目数，向上取整为2的幂
+     */
+    public StringDictionary(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.entries = new String[size];
+        this.mask = size - 1;
+    }
+
+    public String canonical(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        int h = value.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        String existing = entries[slot];
+        if (value.equals(existing)) {
+            return existing;
+        }
+        entries[slot] = value;
+        return value;
+    }
+}
@@ -0,0 +1,29 @@
+package com.csvxml.util;
+
+/**
+ * 数据转换错误，携带错误类别；仍是 IllegalArgumentException，沿用原有的异常处理路由
+ */
+public class TransformException extends IllegalArgumentException {
+    private final TransformError error;
+
+    public TransformException(TransformError error, String message) {
+        super(message);
+        this.error = error;
+    }
+
+    public TransformError getError() {
+        return error;
+    }
+
+    /**
+     * 在异常链中查找转换错误类别，找不到时返回 null
+     */
+    public static TransformError errorOf(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof TransformException) {
+                return ((TransformException) t).getError();
+            }
+        }
+        return null;
+    }
+}
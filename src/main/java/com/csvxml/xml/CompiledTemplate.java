@@ -0,0 +1,210 @@
+package com.csvxml.xml;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的模板节点：由字面量字节块与占位符槽位组成的扁平指令序列。
+ * 渲染时只按顺序追加字节块与转义后的值，不创建DOM节点，也不需要占位符Map。
+ * 实例不可变，可被多个线程共享。
+ */
+public final class CompiledTemplate {
+    private static final String INDENT = "    ";
+
+    private static final int LITERAL = 0;
+    private static final int ATTRIBUTE = 1;
+    private static final int TEXT_ELEMENT = 2;
+
+    private static final byte[] START_TAG_END = XmlOutputBuffer.utf8(">");
+    private static final byte[] EMPTY_ELEMENT_END = XmlOutputBuffer.utf8("/>");
+
+    private final int[] kinds;
+    private final byte[][] bytes;
+    private final int[] slots;
+    private final String[] slotNames;
+
+    private CompiledTemplate(int[] kinds, byte[][] bytes, int[] slots, String[] slotNames) {
+        this.kinds = kinds;
+        this.bytes = bytes;
+        this.slots = slots;
+        this.slotNames = slotNames;
+    }
+
+    /**
+     * 编译模板节点
+     *
+     * @param node 模板节点
+     * @param depth 节点在输出文档中的缩进层级（根元素为0）
+     * @param indent 是否在元素前换行并缩进；换行与缩进在编译时并入字面量字节块
+     */
+    public static CompiledTemplate compile(Element node, int depth, boolean indent) {
+        Compiler compiler = new Compiler(indent);
+        compiler.element(node, depth);
+        return compiler.build();
+    }
+
+    /**
+     * 占位符对应的槽位下标，不存在时返回 -1
+     */
+    public int slotIndex(String placeholder) {
+        for (int i = 0; i < slotNames.length; i++) {
+            if (slotNames[i].equals(placeholder)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int slotCount() {
+        return slotNames.length;
+    }
+
+    /**
+     * 将节点渲染到缓冲区，values 按槽位下标存放占位符取值；
+     * 取值为 null 时与 fillPlaceholders 一样保留原占位符文本
+     */
+    public void render(String[] values, XmlOutputBuffer out) {
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LITERAL:
+                    out.write(bytes[i]);
+                    break;
+                case ATTRIBUTE:
+                    out.writeAttribute(valueOf(values, slots[i]));
+                    break;
+                default:
+                    String text = valueOf(values, slots[i]);
+                    if (text.isEmpty()) {
+                        out.write(EMPTY_ELEMENT_END);
+                    } else {
+                        out.write(START_TAG_END);
+                        out.writeText(text);
+                        out.write(bytes[i]);
+                    }
+            }
+        }
+    }
+
+    private String valueOf(String[] values, int slot) {
+        String value = values[slot];
+        return value != null ? value : "${" + slotNames[slot] + "}";
+    }
+
+    private static final class Compiler {
+        private final List<Integer> kinds = new ArrayList<>();
+        private final List<byte[]> bytes = new ArrayList<>();
+        private final List<Integer> slots = new ArrayList<>();
+        private final List<String> slotNames = new ArrayList<>();
+        private final StringBuilder literal = new StringBuilder();
+        private final boolean indent;
+
+        Compiler(boolean indent) {
+            this.indent = indent;
+        }
+
+        void element(Element element, int level) {
+            String tag = element.getTagName();
+            newLine(level);
+            literal.append('<').append(tag);
+
+            NamedNodeMap attributes = element.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                Node attr = attributes.item(i);
+                literal.append(' ').append(attr.getNodeName()).append("=\"");
+                String value = attr.getNodeValue();
+                if (isPlaceholder(value)) {
+                    slot(ATTRIBUTE, extractPlaceholder(value), null);
+                } else {
+                    literal.append(XmlOutputBuffer.escapeAttribute(value));
+                }
+                literal.append('"');
+            }
+
+            List<Element> children = childElements(element);
+            if (!children.isEmpty()) {
+                literal.append('>');
+                for (Element child : children) {
+                    element(child, level + 1);
+                }
+                newLine(level);
+                literal.append("</").append(tag).append('>');
+                return;
+            }
+
+            String text = element.getTextContent();
+            if (isPlaceholder(text)) {
+                slot(TEXT_ELEMENT, extractPlaceholder(text), "</" + tag + ">");
+            } else if (text.isEmpty()) {
+                literal.append("/>");
+            } else {
+                literal.append('>').append(XmlOutputBuffer.escapeText(text)).append("</").append(tag).append('>');
+            }
+        }
+
+        private void slot(int kind, String placeholder, String closing) {
+            flushLiteral();
+            int index = slotNames.indexOf(placeholder);
+            if (index < 0) {
+                index = slotNames.size();
+                slotNames.add(placeholder);
+            }
+            kinds.add(kind);
+            bytes.add(closing != null ? XmlOutputBuffer.utf8(closing) : null);
+            slots.add(index);
+        }
+
+        private void flushLiteral() {
+            if (literal.length() > 0) {
+                kinds.add(LITERAL);
+                bytes.add(XmlOutputBuffer.utf8(literal.toString()));
+                slots.add(-1);
+                literal.setLength(0);
+            }
+        }
+
+        CompiledTemplate build() {
+            flushLiteral();
+            int[] kindArray = new int[kinds.size()];
+            int[] slotArray = new int[slots.size()];
+            for (int i = 0; i < kindArray.length; i++) {
+                kindArray[i] = kinds.get(i);
+                slotArray[i] = slots.get(i);
+            }
+            return new CompiledTemplate(kindArray, bytes.toArray(new byte[0][]), slotArray,
+                slotNames.toArray(new String[0]));
+        }
+
+        private static List<Element> childElements(Element element) {
+            List<Element> children = new ArrayList<>();
+            NodeList nodes = element.getChildNodes();
+            for (int i = 0; i < nodes.getLength(); i++) {
+                if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                    children.add((Element) nodes.item(i));
+                }
+            }
+            return children;
+        }
+
+        private static boolean isPlaceholder(String value) {
+            return value != null && value.startsWith("${") && value.endsWith("}");
+        }
+
+        private static String extractPlaceholder(String value) {
+            return value.substring(2, value.length() - 1);
+        }
+
+        private void newLine(int level) {
+            if (!indent) {
+                return;
+            }
+            literal.append(XmlOutputBuffer.LINE_SEPARATOR);
+            for (int i = 0; i < level; i++) {
+                literal.append(INDENT);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.csvxml.xml;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * 在DOM模板处理能力之上，支持将模板节点一次性编译为 {@link CompiledTemplate}。
+ * 它同时也是 {@link DefaultXmlTemplateProcessor}，按类型注入时优先使用本类
+ */
+@Primary
+@Component
+public class CompiledXmlTemplateProcessor extends DefaultXmlTemplateProcessor {
+
+    /**
+     * 编译模板中第一个指定名称的节点，模板不包含该节点时返回 null
+     *
+     * @param depth 节点在输出文档中的缩进层级
+     * @param indent 是否换行缩进
+     */
+    public CompiledTemplate compile(Document doc, String nodeName, int depth, boolean indent) {
+        Element node = (Element) doc.getElementsByTagName(nodeName).item(0);
+        return node != null ? CompiledTemplate.compile(node, depth, indent) : null;
+    }
+}
@@ -22,13 +22,19 @@ public class DefaultXmlTemplateProcessor implements XmlTemplateProcessor {
     
     @Override
     public Document loadTemplate(String templatePath) {
+        return loadTemplate(getClass().getResourceAsStream(templatePath), templatePath);
+    }
+    
+    /**
+     * 从输入流加载XML模板，source 用于错误信息
+     */
+    public Document loadTemplate(InputStream is, String source) {
         try {
-            InputStream is = getClass().getResourceAsStream(templatePath);
             DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
             DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
             return dBuilder.parse(is);
         } catch (Exception e) {
-            throw new RuntimeException("Failed to load XML template: " + templatePath, e);
+            throw new RuntimeException("Failed to load XML template: " + source, e);
         }
     }
     
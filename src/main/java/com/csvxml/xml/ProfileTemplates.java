@@ -0,0 +1,118 @@
+package com.csvxml.xml;
+
+import com.csvxml.converter.RecordMapping;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.util.List;
+
+/**
+ * 一个模板文件编译后的 Profile 与 Company 节点，以及各映射字段在 Profile 节点中的槽位。
+ * 实例不可变，模板重新加载时整体替换，正在转换的文件继续使用原实例。
+ */
+public final class ProfileTemplates {
+    public static final String PROFILE_NODE = "Profile";
+    public static final String COMPANY_NODE = "Company";
+    private static final String COMPANY_PLACEHOLDER = "company";
+
+    private final String name;
+    private final CompiledTemplate profile;
+    private final CompiledTemplate company;
+    // 公司名在 Company 节点中的槽位，节点不含 ${company} 时为 -1
+    private final int companySlot;
+    private final int[] fieldSlots;
+
+    private ProfileTemplates(String name, CompiledTemplate profile, CompiledTemplate company,
+                             List<RecordMapping.Field> fields) {
+        this.name = name;
+        this.profile = profile;
+        this.company = company;
+        this.companySlot = company.slotIndex(COMPANY_PLACEHOLDER);
+        this.fieldSlots = new int[fields.size()];
+        for (int i = 0; i < fieldSlots.length; i++) {
+            fieldSlots[i] = profile.slotIndex(fields.get(i).getTarget());
+        }
+    }
+
+    /**
+     * 编译模板文档；文档不包含 Profile 节点时返回 null。
+     * 配置了 xpath 的字段先把选中的属性或元素内容替换为该字段的占位符
+     */
+    public static ProfileTemplates compile(String name, Document template, CompiledXmlTemplateProcessor xmlProcessor,
+                                           RecordMapping mapping, boolean indent) {
+        for (RecordMapping.Field field : mapping.getFields()) {
+            if (field.getXpath() != null) {
+                bind(template, field);
+            }
+        }
+        CompiledTemplate profile = xmlProcessor.compile(template, PROFILE_NODE, 1, indent);
+        if (profile == null) {
+            return null;
+        }
+        CompiledTemplate company = xmlProcessor.compile(template, COMPANY_NODE, 1, indent);
+        if (company == null) {
+            // 模板未声明公司节点时使用默认的 <Company>${company}</Company>
+            Element companyNode = template.createElement(COMPANY_NODE);
+            companyNode.setTextContent("${" + COMPANY_PLACEHOLDER + "}");
+            company = CompiledTemplate.compile(companyNode, 1, indent);
+        }
+        return new ProfileTemplates(name, profile, company, mapping.getFields());
+    }
+
+    private static void bind(Document template, RecordMapping.Field field) {
+        NodeList nodes;
+        try {
+            nodes = (NodeList) XPathFactory.newInstance().newXPath()
+                .evaluate(field.getXpath(), template, XPathConstants.NODESET);
+        } catch (XPathExpressionException e) {
+            throw new IllegalArgumentException("Invalid mapping xpath: " + field.getXpath(), e);
+        }
+        String placeholder = "${" + field.getTarget() + "}";
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Attr) {
+                ((Attr) node).setValue(placeholder);
+            } else if (node instanceof Element) {
+                node.setTextContent(placeholder);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 创建可在同一线程内复用的Profile占位符取值数组
+     */
+    public String[] newProfileValues() {
+        return new String[profile.slotCount()];
+    }
+
+    public void renderProfile(String[] values, XmlOutputBuffer out) {
+        profile.render(values, out);
+    }
+
+    /**
+     * 渲染公司节点；与 fillPlaceholders 相同，只填充 ${company}，其他占位符保留原文本
+     */
+    public void renderCompany(String companyName, XmlOutputBuffer out) {
+        String[] values = new String[company.slotCount()];
+        if (companySlot >= 0) {
+            values[companySlot] = companyName;
+        }
+        company.render(values, out);
+    }
+
+    /**
+     * 各映射字段在 Profile 节点中的槽位，模板中没有该占位符时为 -1
+     */
+    public int[] getFieldSlots() {
+        return fieldSlots;
+    }
+}
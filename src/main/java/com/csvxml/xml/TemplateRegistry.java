@@ -0,0 +1,232 @@
+package com.csvxml.xml;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.converter.RecordMapping;
+import org.apache.camel.Exchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 模板注册表：启动时加载并编译类路径与模板目录中的所有模板，按文件选择模板时只做一次Map查找。
+ * 模板目录中的文件变化后在监视线程中重新编译，完成后整体替换模板表；
+ * 正在转换的文件在开始时已取得模板实例，不会看到加载了一半的模板。
+ */
+@Component
+public class TemplateRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(TemplateRegistry.class);
+    private static final String CLASSPATH_TEMPLATES = "classpath*:templates/*.xml";
+    private static final String EXTENSION = ".xml";
+    private static final long RELOAD_DELAY_MILLIS = 200;
+
+    private final CompiledXmlTemplateProcessor xmlProcessor;
+    private final RecordMapping mapping;
+    private final AppConfig.Templates config;
+    private final boolean indent;
+    private final List<PathMatcher> rulePatterns = new ArrayList<>();
+    private final List<String> ruleTemplates = new ArrayList<>();
+    private final Map<String, ProfileTemplates> classpathTemplates;
+    // 只在构造函数与 reload 中修改
+    private Map<String, ProfileTemplates> dirTemplates;
+    private volatile Map<String, ProfileTemplates> templates;
+    private volatile WatchService watchService;
+
+    public TemplateRegistry(CompiledXmlTemplateProcessor xmlProcessor, RecordMapping mapping, AppConfig appConfig) {
+        this.xmlProcessor = xmlProcessor;
+        this.mapping = mapping;
+        this.config = appConfig.getTemplates();
+        this.indent = appConfig.getOutput().isIndent();
+        for (AppConfig.Templates.Rule rule : config.getRules()) {
+            rulePatterns.add(FileSystems.getDefault().getPathMatcher("glob:" + rule.getPattern()));
+            ruleTemplates.add(rule.getTemplate());
+        }
+        this.classpathTemplates = loadClasspath();
+        this.dirTemplates = loadDir(Collections.emptyMap());
+        this.templates = merge();
+        // 默认模板必须存在
+        get(config.getDefaultTemplate());
+        logger.info(AppConfig.LogMessages.XML_TEMPLATE_LOADED);
+    }
+
+    /**
+     * 按消息头、文件名规则与默认模板的顺序选择当前文件的模板
+     */
+    public ProfileTemplates select(Exchange exchange) {
+        String name = exchange.getIn().getHeader(AppConfig.TEMPLATE_HEADER, String.class);
+        if (name == null) {
+            return forFile(exchange.getIn().getHeader(Exchange.FILE_NAME, String.class));
+        }
+        return get(name);
+    }
+
+    /**
+     * 按文件名规则与默认模板的顺序选择模板
+     */
+    public ProfileTemplates forFile(String fileName) {
+        return get(templateFor(fileName));
+    }
+
+    public ProfileTemplates get(String name) {
+        ProfileTemplates found = templates.get(name);
+        if (found == null) {
+            throw new IllegalStateException("XML template not found: " + name);
+        }
+        return found;
+    }
+
+    private String templateFor(String fileName) {
+        if (fileName != null) {
+            Path name = Paths.get(fileName).getFileName();
+            for (int i = 0; i < rulePatterns.size(); i++) {
+                if (rulePatterns.get(i).matches(name)) {
+                    return ruleTemplates.get(i);
+                }
+            }
+        }
+        return config.getDefaultTemplate();
+    }
+
+    /**
+     * 开始监视模板目录；目录不存在时不监视
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        Path dir = Paths.get(config.getDir());
+        if (!config.isWatch() || !Files.isDirectory(dir)) {
+            return;
+        }
+        watchService = dir.getFileSystem().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        Thread watcher = new Thread(this::watch, "csvxml-template-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("开始监视模板目录: {}", dir.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // 保存一个文件可能产生多个事件，稍等片刻后合并为一次重新加载
+                Thread.sleep(RELOAD_DELAY_MILLIS);
+                boolean valid = true;
+                while (key != null) {
+                    key.pollEvents();
+                    valid = key.reset();
+                    key = watchService.poll();
+                }
+                reload();
+                if (!valid) {
+                    logger.warn("模板目录已不可访问，停止监视: {}", config.getDir());
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // 应用关闭
+        }
+    }
+
+    /**
+     * 重新加载模板目录并替换模板表；无法加载的文件保留原来的模板
+     */
+    public synchronized void reload() {
+        dirTemplates = loadDir(dirTemplates);
+        templates = merge();
+        logger.info(AppConfig.LogMessages.XML_TEMPLATE_RELOADED, new TreeSet<>(templates.keySet()));
+    }
+
+    private Map<String, ProfileTemplates> merge() {
+        Map<String, ProfileTemplates> merged = new HashMap<>(classpathTemplates);
+        merged.putAll(dirTemplates);
+        return Collections.unmodifiableMap(merged);
+    }
+
+    private Map<String, ProfileTemplates> loadClasspath() {
+        Map<String, ProfileTemplates> loaded = new HashMap<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(CLASSPATH_TEMPLATES)) {
+                String name = nameOf(resource.getFilename());
+                if (loaded.containsKey(name)) {
+                    continue;
+                }
+                logger.info(AppConfig.LogMessages.XML_TEMPLATE_LOADING, resource.getDescription());
+                try (InputStream in = resource.getInputStream()) {
+                    register(loaded, name, in, resource.getDescription());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to list XML templates", e);
+        }
+        return loaded;
+    }
+
+    private Map<String, ProfileTemplates> loadDir(Map<String, ProfileTemplates> previous) {
+        Map<String, ProfileTemplates> loaded = new HashMap<>();
+        Path dir = Paths.get(config.getDir());
+        if (!Files.isDirectory(dir)) {
+            return loaded;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = nameOf(file.getFileName().toString());
+                logger.info(AppConfig.LogMessages.XML_TEMPLATE_LOADING, file);
+                try (InputStream in = Files.newInputStream(file)) {
+                    register(loaded, name, in, file.toString());
+                } catch (IOException | RuntimeException e) {
+                    // 文件可能正在写入，保留原模板，等待下一次变化
+                    logger.warn(AppConfig.LogMessages.XML_TEMPLATE_INVALID, file, e);
+                    if (previous.containsKey(name)) {
+                        loaded.put(name, previous.get(name));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("读取模板目录失败: {}", dir, e);
+            return new HashMap<>(previous);
+        }
+        return loaded;
+    }
+
+    private void register(Map<String, ProfileTemplates> loaded, String name, InputStream in, String source) {
+        ProfileTemplates compiled = ProfileTemplates.compile(name, xmlProcessor.loadTemplate(in, source), xmlProcessor, mapping, indent);
+        if (compiled == null) {
+            logger.warn("XML模板 {} 不包含 {} 节点，已忽略", source, ProfileTemplates.PROFILE_NODE);
+            return;
+        }
+        loaded.put(name, compiled);
+    }
+
+    private static String nameOf(String fileName) {
+        return fileName.endsWith(EXTENSION) ? fileName.substring(0, fileName.length() - EXTENSION.length()) : fileName;
+    }
+}
@@ -0,0 +1,287 @@
+package com.csvxml.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 可复用的UTF-8字节缓冲区，负责按 Transformer 的输出规则转义文本与属性值。
+ * 转义时逐字符扫描，不需转义的ASCII片段整段复制，其余字符直接编码为UTF-8写入缓冲区，不经过中间字符串。
+ * 通过 {@link #flushingTo} 创建时，缓冲区写满后把内容写入输出流而不是扩容。
+ */
+public final class XmlOutputBuffer {
+    public static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final byte[] AMP = utf8("&amp;");
+    private static final byte[] LT = utf8("&lt;");
+    private static final byte[] GT = utf8("&gt;");
+    private static final byte[] QUOT = utf8("&quot;");
+    private static final byte[] NEWLINE = utf8(LINE_SEPARATOR);
+    // 单个特殊字符转义后的最大字节数：增补平面字符的数字引用 &#1114111;
+    private static final int MAX_ESCAPE_BYTES = 10;
+    // 可原样复制的ASCII字符
+    private static final boolean[] TEXT_PLAIN = plainChars(false);
+    private static final boolean[] ATTRIBUTE_PLAIN = plainChars(true);
+
+    private byte[] buf;
+    private int size;
+    private final OutputStream sink;
+
+    public XmlOutputBuffer(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    private XmlOutputBuffer(int initialCapacity, OutputStream sink) {
+        this.buf = new byte[Math.max(initialCapacity, 64)];
+        this.sink = sink;
+    }
+
+    /**
+     * 创建写满即输出到 sink 的固定容量缓冲区；写入失败时抛出 {@link UncheckedIOException}，
+     * 结束时需调用 {@link #flush()} 写出剩余内容
+     */
+    public static XmlOutputBuffer flushingTo(OutputStream sink, int capacity) {
+        return new XmlOutputBuffer(capacity, sink);
+    }
+
+    /**
+     * 追加预编码的字节块
+     */
+    public void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /**
+     * 追加另一个缓冲区的内容
+     */
+    public void write(XmlOutputBuffer other) {
+        if (sink != null && other.size >= buf.length) {
+            // 大块内容直接写入输出流，避免先复制到缓冲区
+            flush();
+            write(sink, other);
+            return;
+        }
+        ensureCapacity(other.size);
+        System.arraycopy(other.buf, 0, buf, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * 追加转义后的文本节点内容
+     */
+    public void writeText(String value) {
+        writeEscaped(value, TEXT_PLAIN, false);
+    }
+
+    /**
+     * 追加转义后的属性值
+     */
+    public void writeAttribute(String value) {
+        writeEscaped(value, ATTRIBUTE_PLAIN, true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, size);
+    }
+
+    /**
+     * 把缓冲内容写入 sink 并清空缓冲区
+     */
+    public void flush() {
+        if (sink != null && size > 0) {
+            write(sink, this);
+            size = 0;
+        }
+    }
+
+    /**
+     * 以输入流形式暴露缓冲区内容，不复制底层数组
+     */
+    public InputStream toInputStream() {
+        return new ByteArrayInputStream(buf, 0, size);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    private static void write(OutputStream out, XmlOutputBuffer buffer) {
+        try {
+            buffer.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String escapeText(String value) {
+        XmlOutputBuffer out = new XmlOutputBuffer(value.length() + 16);
+        out.writeText(value);
+        return new String(out.buf, 0, out.size, StandardCharsets.UTF_8);
+    }
+
+    static String escapeAttribute(String value) {
+        XmlOutputBuffer out = new XmlOutputBuffer(value.length() + 16);
+        out.writeAttribute(value);
+        return new String(out.buf, 0, out.size, StandardCharsets.UTF_8);
+    }
+
+    private void writeEscaped(String value, boolean[] plain, boolean attribute) {
+        int length = value.length();
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80 && plain[c]) {
+                continue;
+            }
+            if (run < i) {
+                writeAscii(value, run, i);
+            }
+            i = writeSpecial(value, i, c, attribute);
+            run = i + 1;
+        }
+        if (run < length) {
+            writeAscii(value, run, length);
+        }
+    }
+
+    /**
+     * 整段复制不需转义的ASCII字符
+     */
+    @SuppressWarnings("deprecation")
+    private void writeAscii(String value, int from, int to) {
+        ensureCapacity(to - from);
+        // 只用于ASCII字符，取低8位即为UTF-8编码
+        value.getBytes(from, to, buf, size);
+        size += to - from;
+    }
+
+    /**
+     * 转义或编码一个字符，返回最后处理的字符下标（代理对占两个字符）
+     */
+    private int writeSpecial(String value, int i, char c, boolean attribute) {
+        ensureCapacity(MAX_ESCAPE_BYTES);
+        switch (c) {
+            case '&':
+                put(AMP);
+                return i;
+            case '<':
+                put(LT);
+                return i;
+            case '>':
+                put(GT);
+                return i;
+            case '"':
+                put(QUOT);
+                return i;
+            case '\n':
+                if (attribute) {
+                    putCharRef(c);
+                } else {
+                    put(NEWLINE);
+                }
+                return i;
+            case '\t':
+                // 文本中的制表符原样复制，只有属性值会到这里
+                putCharRef(c);
+                return i;
+            default:
+                break;
+        }
+        if (c < 0x20 || (!attribute && c >= 0x7F && c <= 0x9F)) {
+            putCharRef(c);
+        } else if (c < 0x80) {
+            buf[size++] = (byte) c;
+        } else if (c < 0x800) {
+            buf[size++] = (byte) (0xC0 | (c >> 6));
+            buf[size++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isLowSurrogate(c)) {
+            // 以下与 Transformer 一致：单独的低代理字符输出为数字字符引用
+            putCharRef(c);
+        } else if (Character.isHighSurrogate(c)) {
+            // 不成对的高代理字符抛出与原 documentToString 相同的异常。值末尾的高代理字符在 Transformer 中
+            // 留待与下一个值的开头组合，结果取决于文档中的其他值，这里同样按错误处理
+            if (i + 1 == value.length()) {
+                throw invalidSurrogate(Integer.toHexString(c) + " ?");
+            }
+            char next = value.charAt(i + 1);
+            if (!Character.isLowSurrogate(next)) {
+                throw invalidSurrogate(Integer.toHexString(c) + " " + Integer.toHexString(next) + " ?");
+            }
+            // 增补平面字符输出为数字字符引用
+            putCharRef(Character.toCodePoint(c, next));
+            return i + 1;
+        } else {
+            buf[size++] = (byte) (0xE0 | (c >> 12));
+            buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[size++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    private static RuntimeException invalidSurrogate(String chars) {
+        return new RuntimeException("Failed to convert Document to String",
+            new IOException("Invalid UTF-16 surrogate detected: " + chars));
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void putCharRef(int codePoint) {
+        buf[size++] = '&';
+        buf[size++] = '#';
+        int digits = 1;
+        for (int n = codePoint; n >= 10; n /= 10) {
+            digits++;
+        }
+        for (int pos = size + digits - 1, n = codePoint; pos >= size; pos--, n /= 10) {
+            buf[pos] = (byte) ('0' + n % 10);
+        }
+        size += digits;
+        buf[size++] = ';';
+    }
+
+    private static boolean[] plainChars(boolean attribute) {
+        boolean[] plain = new boolean[0x80];
+        for (char c = 0x20; c < 0x7F; c++) {
+            plain[c] = true;
+        }
+        plain['&'] = false;
+        plain['<'] = false;
+        plain['>'] = false;
+        if (attribute) {
+            plain['"'] = false;
+        } else {
+            plain['\t'] = true;
+        }
+        return plain;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (sink != null && size + extra > buf.length) {
+            flush();
+        }
+        if (size + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.csvxml;
+
+import com.csvxml.xml.XmlOutputBuffer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * src/test/resources/golden 中的输入与基准输出。基准输出由最初提交的DOM实现（0b8452b）
+ * 在 -Duser.timezone=UTC、英文区域设置下生成，保存时去掉了JDK 9及以上的 Transformer
+ * 为模板中的空白文本节点输出的空白行，即JDK 8下的输出；换行符保存为 "\n"，比较时换为本机的换行符。
+ */
+public final class GoldenFiles {
+    /**
+     * 中英文姓名、四种日期格式、哈希冲突的公司名与需要转义的公司名混合的400行
+     */
+    public static final String MIXED = "mixed";
+    /**
+     * 含列数错误行的 test.csv，基准输出为宽松模式下其余行的输出
+     */
+    public static final String TEST = "test";
+
+    private GoldenFiles() {
+    }
+
+    /**
+     * 把输入复制到 dir；先写临时文件再重命名，轮询的文件端点不会读到不完整的文件
+     */
+    public static Path copyInput(String name, Path dir) throws IOException {
+        Path target = Files.createDirectories(dir).resolve(name + ".csv");
+        Path temp = dir.resolve(name + ".csv.part");
+        try (InputStream in = resource(name + ".csv")) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 把输入以 gzip 压缩后复制到 dir，文件名为 名称.csv.gz
+     */
+    public static Path copyGzipInput(String name, Path dir) throws IOException {
+        Path target = Files.createDirectories(dir).resolve(name + ".csv.gz");
+        Path temp = dir.resolve(name + ".csv.gz.part");
+        try (InputStream in = resource(name + ".csv");
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+            out.write(readAll(in));
+        }
+        return Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 基准输出，换行符为本机的换行符
+     */
+    public static String expectedOutput(String name) throws IOException {
+        // 日期按默认时区与区域设置解析（"Mar 21, 2024"），两者不同时输出不同；由 surefire 的 argLine 固定
+        if (!"UTC".equals(TimeZone.getDefault().getID())
+                || !"en".equals(Locale.getDefault(Locale.Category.FORMAT).getLanguage())) {
+            throw new IllegalStateException("Golden outputs require -Duser.timezone=UTC -Duser.language=en, was "
+                + TimeZone.getDefault().getID() + " " + Locale.getDefault(Locale.Category.FORMAT));
+        }
+        try (InputStream in = resource(name + ".xml")) {
+            String golden = new String(readAll(in), StandardCharsets.UTF_8);
+            return golden.replace("\n", XmlOutputBuffer.LINE_SEPARATOR);
+        }
+    }
+
+    private static InputStream resource(String name) throws IOException {
+        InputStream in = GoldenFiles.class.getResourceAsStream("/golden/" + name);
+        if (in == null) {
+            throw new IOException("Resource not found: golden/" + name);
+        }
+        return in;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,148 @@
+package com.csvxml.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试数据生成器：按固定种子生成公司、中英文姓名与四种日期格式混合的CSV行。
+ * 作为命令行程序运行时在指定目录生成 1K 到 10M 行的CSV文件。
+ */
+public final class BenchmarkData {
+    private static final long SEED = 20240320L;
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+
+    private static final String[] SURNAMES = {"张", "王", "李", "赵", "刘", "陈", "杨", "黄", "周", "吴"};
+    private static final String[] GIVEN_NAMES = {"伟", "芳", "娜", "秀英", "敏", "静", "丽", "强", "磊", "军"};
+    private static final String[] FIRST_NAMES = {"John", "Mary", "Robert", "Patricia", "Michael", "Linda", "David", "Emma"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Brown", "O'Neil", "Garcia", "Miller", "Davis", "Wilson"};
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final int COMPANIES = 50;
+    // 真实文件中重复出现的日期只有几百个
+    private static final int DISTINCT_DATES = 400;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 生成与CSV解析结果相同结构的行
+     */
+    public static List<List<String>> rows(int count) {
+        Random random = new Random(SEED);
+        List<List<String>> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(row(random));
+        }
+        return rows;
+    }
+
+    public static Path writeCsv(Path file, int count) throws IOException {
+        Random random = new Random(SEED);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                List<String> row = row(random);
+                for (int c = 0; c < row.size(); c++) {
+                    if (c > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(quote(row.get(c)));
+                }
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    public static List<String> fullNames(int count) {
+        Random random = new Random(SEED);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(fullName(random));
+        }
+        return names;
+    }
+
+    public static List<String> dates(int count) {
+        Random random = new Random(SEED);
+        List<String> dates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            dates.add(date(random));
+        }
+        return dates;
+    }
+
+    private static List<String> row(Random random) {
+        return Arrays.asList(
+            "company-" + random.nextInt(COMPANIES),
+            String.valueOf(100000 + random.nextInt(900000)),
+            fullName(random),
+            date(random));
+    }
+
+    /**
+     * 约四成中文名，其余为两段或三段的英文名
+     */
+    private static String fullName(Random random) {
+        if (random.nextInt(10) < 4) {
+            return pick(random, SURNAMES) + pick(random, GIVEN_NAMES);
+        }
+        String name = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+        if (random.nextInt(5) == 0) {
+            name = pick(random, FIRST_NAMES) + " " + (char) ('A' + random.nextInt(26)) + ". " + pick(random, LAST_NAMES);
+        }
+        return name;
+    }
+
+    private static String date(Random random) {
+        int day = random.nextInt(DISTINCT_DATES);
+        int year = 2015 + day % 10;
+        int month = 1 + day / 10 % 12;
+        int dayOfMonth = 1 + day % 28;
+        switch (random.nextInt(4)) {
+            case 0:
+                return String.format("%d-%02d-%02d", year, month, dayOfMonth);
+            case 1:
+                return String.format("%02d/%02d/%d", dayOfMonth, month, year);
+            case 2:
+                return String.format("%s %02d, %d", MONTHS[month - 1], dayOfMonth, year);
+            default:
+                return String.format("%02d/%02d/%d", month, dayOfMonth, year);
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * 用法：BenchmarkData 输出目录 [行数...]
+     */
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createDirectories(Paths.get(args.length > 0 ? args[0] : "target/bench-data"));
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 1) {
+            sizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                sizes[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        for (int size : sizes) {
+            Path file = writeCsv(dir.resolve("profiles-" + size + ".csv"), size);
+            System.out.println("生成 " + file + " (" + Files.size(file) + " 字节)");
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.csvxml.benchmark;
+
+import com.csvxml.cli.BatchConverter;
+import com.csvxml.config.AppConfig;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 性能回归门禁：不启动Spring容器，用 {@link BatchConverter} 按生产配置转换生成的文件，检查
+ * <ul>
+ *     <li>转换吞吐量与同一JVM中只用 commons-csv 解析同一文件的吞吐量之比不低于阈值。
+ *     两者在同一台机器、同一JVM中测得，比值不随机器快慢变化，不设绝对的行/秒阈值</li>
+ *     <li>转换期间GC后的堆占用峰值减去转换前的堆占用不超过阈值</li>
+ * </ul>
+ * 阈值在 regression/thresholds.properties 中。默认构建中由 {@link RegressionGateTest} 以 throughput.test-rows 行检查，
+ * benchmarks profile 的 verify 阶段以 throughput.rows 行运行 {@link #main}，任一检查失败时以退出码 1 结束，
+ * exec 插件随之使构建失败。输出是否正确由默认构建中的测试按基准输出检查，这里不再比较。
+ * 堆占用取每次GC之后的已用堆（{@link MemoryMXBean}），即转换过程中实际保留的数据，不受堆大小与GC时机的影响；
+ * 减去转换前的堆占用后，与同一JVM中其他测试留下的对象无关。
+ */
+public final class RegressionGate {
+    private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+    static final String ROWS = "throughput.rows";
+    static final String TEST_ROWS = "throughput.test-rows";
+    // 保存解析结果，JIT不会省略参照的读取
+    private static volatile long parsedLength;
+
+    private final Properties thresholds;
+    private final Path dir;
+    private final List<String> failures = new ArrayList<>();
+
+    private RegressionGate(Properties thresholds, Path dir) {
+        this.thresholds = thresholds;
+        this.dir = dir;
+    }
+
+    /**
+     * 用法：RegressionGate [工作目录]
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> failures = check(Paths.get(args.length > 0 ? args[0] : "target/regression"), ROWS);
+        if (failures.isEmpty()) {
+            System.out.println("性能回归检查通过");
+            return;
+        }
+        failures.forEach(failure -> System.err.println("回归: " + failure));
+        System.exit(1);
+    }
+
+    /**
+     * 以阈值文件中 rowsProperty 指定的行数检查，返回未通过的检查
+     */
+    static List<String> check(Path dir, String rowsProperty) throws Exception {
+        Properties thresholds = load("regression/thresholds.properties");
+        RegressionGate gate = new RegressionGate(thresholds, Files.createDirectories(dir));
+        // 与基准测试的 logback-benchmark.xml 相同只输出警告；测试JVM中的日志级别取决于之前运行的测试，
+        // 未初始化时为 DEBUG，逐行调试日志会使转换慢数倍
+        LoggerContext logging = (LoggerContext) LoggerFactory.getILoggerFactory();
+        TurboFilter warnOnly = new TurboFilter() {
+            @Override
+            public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+                return level.isGreaterOrEqual(Level.WARN) ? FilterReply.NEUTRAL : FilterReply.DENY;
+            }
+        };
+        warnOnly.start();
+        logging.addTurboFilter(warnOnly);
+        try {
+            gate.checkThroughput(Integer.parseInt(thresholds.getProperty(rowsProperty)));
+        } finally {
+            logging.getTurboFilterList().remove(warnOnly);
+        }
+        return gate.failures;
+    }
+
+    private void checkThroughput(int rows) throws Exception {
+        int runs = Integer.parseInt(thresholds.getProperty("throughput.runs"));
+        Path input = dir.resolve("profiles-" + rows + ".csv");
+        if (!Files.exists(input)) {
+            BenchmarkData.writeCsv(input, rows);
+        }
+        Path output = dir.resolve("profiles-" + rows + ".xml");
+        // 预热：按行数而不是次数，行数较少时多运行几次，转换路径与解析同样被JIT编译后再测量
+        long warmupRows = Long.parseLong(thresholds.getProperty("throughput.warmup-rows"));
+        for (long warmed = 0; warmed < warmupRows; warmed += rows) {
+            parsedLength = parse(input);
+            convert(input, output);
+        }
+
+        long parseBest = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long started = System.nanoTime();
+            parsedLength = parse(input);
+            parseBest = Math.min(parseBest, System.nanoTime() - started);
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        AtomicLong retained = new AtomicLong(baseline);
+        NotificationListener listener = (notification, handback) -> {
+            if (GC_NOTIFICATION.equals(notification.getType())) {
+                retained.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            }
+        };
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+        }
+        long convertBest = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long started = System.nanoTime();
+            convert(input, output);
+            convertBest = Math.min(convertBest, System.nanoTime() - started);
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).removeNotificationListener(listener);
+        }
+
+        long parseRowsPerSecond = rows * 1_000_000_000L / parseBest;
+        long convertRowsPerSecond = rows * 1_000_000_000L / convertBest;
+        double ratio = (double) convertRowsPerSecond / parseRowsPerSecond;
+        long retainedMb = (retained.get() - baseline) / (1024 * 1024);
+        System.out.println(rows + " 行: 解析 " + parseRowsPerSecond + " 行/秒, 转换 " + convertRowsPerSecond + " 行/秒, 比值 "
+            + String.format(Locale.ROOT, "%.3f", ratio) + ", GC后的堆占用峰值比转换前多 " + retainedMb + " MB");
+        double minRatio = Double.parseDouble(thresholds.getProperty("throughput.min-ratio-to-parse"));
+        if (ratio < minRatio) {
+            failures.add("转换与解析的吞吐量之比 " + String.format(Locale.ROOT, "%.3f", ratio) + " 低于阈值 " + minRatio);
+        }
+        long maxRetainedMb = Long.parseLong(thresholds.getProperty("heap.max-retained-mb"));
+        if (retainedMb > maxRetainedMb) {
+            failures.add("GC后的堆占用峰值比转换前多 " + retainedMb + " MB，超过阈值 " + maxRetainedMb + " MB");
+        }
+    }
+
+    /**
+     * 参照：只解析CSV并读取每个值，不做转换与渲染
+     */
+    private static long parse(Path input) throws IOException {
+        long length = 0;
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             CSVParser parser = CSVFormat.DEFAULT.parse(reader)) {
+            for (CSVRecord record : parser) {
+                for (String value : record) {
+                    length += value.length();
+                }
+            }
+        }
+        return length;
+    }
+
+    private static void convert(Path input, Path output) throws Exception {
+        try (BatchConverter converter = new BatchConverter(new AppConfig())) {
+            converter.convert(input, output, null, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Properties load(String name) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = RegressionGate.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + name);
+            }
+            properties.load(in);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,16 @@
+package com.csvxml.benchmark;
+
+import org.junit.jupiter.api.Test;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 默认构建中的性能回归检查：以较少的行数运行 {@link RegressionGate}，吞吐量之比与堆占用的阈值与 benchmarks profile 相同
+ */
+class RegressionGateTest {
+    @Test
+    void throughputAndHeapWithinThresholds() throws Exception {
+        assertThat(RegressionGate.check(Paths.get("regression"), RegressionGate.TEST_ROWS)).isEmpty();
+    }
+}
@@ -0,0 +1,84 @@
+package com.csvxml.cli;
+
+import com.csvxml.GoldenFiles;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 批处理命令的退出码：0 成功，1 转换失败，2 参数错误；输出与基准输出逐字节相同，失败时不留下临时文件
+ */
+class BatchConverterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void convertsMixedToGolden() throws Exception {
+        Path input = GoldenFiles.copyInput(GoldenFiles.MIXED, dir);
+        Path output = dir.resolve("out").resolve("mixed.xml");
+
+        assertThat(BatchConverter.run(BatchConverter.COMMAND, input.toString(), output.toString(), "--charset=UTF-8"))
+            .isEqualTo(0);
+        assertThat(new String(Files.readAllBytes(output), StandardCharsets.UTF_8))
+            .isEqualTo(GoldenFiles.expectedOutput(GoldenFiles.MIXED));
+        assertThat(list(output.getParent())).containsExactly(output);
+    }
+
+    @Test
+    void existingOutputIsReplaced() throws Exception {
+        Path input = GoldenFiles.copyInput(GoldenFiles.MIXED, dir);
+        Path output = dir.resolve("mixed.xml");
+        Files.write(output, "old".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(BatchConverter.run(input.toString(), output.toString())).isEqualTo(0);
+        assertThat(new String(Files.readAllBytes(output), StandardCharsets.UTF_8))
+            .isEqualTo(GoldenFiles.expectedOutput(GoldenFiles.MIXED));
+    }
+
+    @Test
+    void badRowsFailInStrictModeWithoutOutput() throws Exception {
+        Path input = GoldenFiles.copyInput(GoldenFiles.TEST, dir);
+        Path output = dir.resolve("out").resolve("test.xml");
+
+        assertThat(BatchConverter.run(BatchConverter.COMMAND, input.toString(), output.toString())).isEqualTo(1);
+        // 临时文件已删除，也没有输出文件
+        assertThat(list(output.getParent())).isEmpty();
+    }
+
+    @Test
+    void missingInputFails() throws Exception {
+        Path output = dir.resolve("missing.xml");
+
+        assertThat(BatchConverter.run(dir.resolve("missing.csv").toString(), output.toString())).isEqualTo(1);
+        assertThat(list(dir)).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"--charset=@@", "--charset=", "--charset=no-such-charset", "--unknown", "--template"})
+    void invalidOptionsAreUsageErrors(String option) {
+        assertThat(BatchConverter.run(BatchConverter.COMMAND, "in.csv", "out.xml", option)).isEqualTo(2);
+    }
+
+    @Test
+    void wrongFileCountIsUsageError() {
+        assertThat(BatchConverter.run()).isEqualTo(2);
+        assertThat(BatchConverter.run(BatchConverter.COMMAND, "in.csv")).isEqualTo(2);
+        assertThat(BatchConverter.run("in.csv", "out.xml", "extra.xml")).isEqualTo(2);
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.csvxml.cluster;
+
+import com.csvxml.config.AppConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 共享目录中的认领：同时认领只有一个节点成功，过期的认领可被接管，被接管的认领不再更新
+ */
+class WorkQueueTest {
+    private static final long LEASE = 300;
+
+    @TempDir
+    Path dir;
+
+    private final List<WorkQueue> queues = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        queues.forEach(WorkQueue::close);
+    }
+
+    @Test
+    void onlyOneNodeClaimsATask() throws Exception {
+        WorkQueue.Job job = submitted(node("a"));
+        int nodes = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<WorkQueue.Claim>> claims = new ArrayList<>();
+            for (int i = 0; i < nodes; i++) {
+                WorkQueue queue = node("n" + i);
+                claims.add(executor.submit(() -> {
+                    start.await();
+                    return queue.claim(queue.jobs().get(0), "shard-0");
+                }));
+            }
+            start.countDown();
+            long held = 0;
+            for (Future<WorkQueue.Claim> claim : claims) {
+                held += claim.get() != null ? 1 : 0;
+            }
+            assertThat(held).isEqualTo(1);
+            assertThat(job.claimFile("shard-0")).exists();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void renewedClaimIsNotTakenOver() throws Exception {
+        WorkQueue first = node("a");
+        WorkQueue.Claim claim = first.claim(submitted(first), "shard-0");
+        Thread.sleep(LEASE * 2);
+        WorkQueue second = node("b");
+        assertThat(second.claim(second.jobs().get(0), "shard-0")).isNull();
+        assertThat(claim.isHeld()).isTrue();
+    }
+
+    @Test
+    void expiredClaimIsTakenOverAndNotRenewed() throws Exception {
+        WorkQueue first = node("a");
+        WorkQueue.Claim stale = first.claim(submitted(first), "shard-0");
+        // 节点失效：不再更新认领
+        first.close();
+        Thread.sleep(LEASE + 100);
+
+        WorkQueue second = node("b");
+        WorkQueue.Job job = second.jobs().get(0);
+        WorkQueue.Claim current = second.claim(job, "shard-0");
+        assertThat(current).isNotNull();
+        Path file = job.claimFile("shard-0");
+        String token = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertThat(token).startsWith("b ");
+
+        // 原节点恢复后不会延长接管者的认领，也不会删除它
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 10_000);
+        Files.setLastModifiedTime(file, old);
+        stale.renew();
+        assertThat(Files.getLastModifiedTime(file)).isEqualTo(old);
+        assertThat(stale.isHeld()).isFalse();
+        stale.close();
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).isEqualTo(token);
+        assertThat(current.isHeld()).isTrue();
+
+        current.close();
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void lostSplitClaimDoesNotPublishPlan() throws Exception {
+        WorkQueue first = node("a");
+        WorkQueue.Claim split = submit(first, "x\n");
+        WorkQueue.Job job = split.getJob();
+        Files.write(job.claimFile(WorkQueue.SPLIT_TASK), "b other".getBytes(StandardCharsets.UTF_8));
+        assertThat(first.plan(split)).isEqualTo(-1);
+        assertThat(job.isPlanned()).isFalse();
+    }
+
+    @Test
+    void interruptedSplitIsRecovered() throws Exception {
+        WorkQueue first = node("a");
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            csv.append("Acme,").append(i).append(",\"Smith, John\",2024-03-21\n");
+        }
+        // 输入文件已移入任务目录，切分前节点失效
+        WorkQueue.Claim split = submit(first, csv.toString());
+        first.close();
+        WorkQueue second = node("b");
+        WorkQueue.Job job = second.jobs().get(0);
+        assertThat(second.recover(job)).isNull();
+
+        Thread.sleep(LEASE + 100);
+        WorkQueue.Claim recovered = second.recover(job);
+        assertThat(recovered).isNotNull();
+        assertThat(second.plan(recovered)).isGreaterThan(1);
+        recovered.close();
+        split.close();
+
+        List<WorkQueue.Shard> shards = second.jobs().get(0).getShards();
+        assertThat(shards.get(0).getStart()).isZero();
+        assertThat(shards.get(shards.size() - 1).getEnd()).isEqualTo(Files.size(job.getSource()));
+        for (int i = 1; i < shards.size(); i++) {
+            assertThat(shards.get(i).getStart()).isEqualTo(shards.get(i - 1).getEnd());
+        }
+    }
+
+    @Test
+    void jobWithoutSourceIsDeletedAfterLease() throws Exception {
+        WorkQueue first = node("a");
+        WorkQueue.Claim split = submit(first, "x\n");
+        WorkQueue.Job job = split.getJob();
+        // 输入文件移入前节点失效
+        Files.delete(job.getSource());
+        first.close();
+
+        WorkQueue second = node("b");
+        assertThat(second.recover(second.jobs().get(0))).isNull();
+        assertThat(job.getDir()).exists();
+        Thread.sleep(LEASE + 100);
+        assertThat(second.recover(second.jobs().get(0))).isNull();
+        assertThat(job.getDir()).doesNotExist();
+    }
+
+    private WorkQueue node(String nodeId) {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getCluster().setDir(dir.resolve("queue").toString());
+        appConfig.getCluster().setNodeId(nodeId);
+        appConfig.getCluster().setLease(LEASE);
+        appConfig.getCluster().setShardBytes(512);
+        WorkQueue queue = new WorkQueue(appConfig);
+        queues.add(queue);
+        return queue;
+    }
+
+    private WorkQueue.Claim submit(WorkQueue queue, String content) throws Exception {
+        Path input = Files.write(dir.resolve("input-" + queues.size() + ".csv"), content.getBytes(StandardCharsets.UTF_8));
+        return Objects.requireNonNull(queue.submit(input, "profiles.csv", "UTF-8", "default"));
+    }
+
+    /**
+     * 已切分的任务，切分认领已释放
+     */
+    private WorkQueue.Job submitted(WorkQueue queue) throws Exception {
+        try (WorkQueue.Claim split = submit(queue, "Acme,1,John Smith,2024-03-21\n")) {
+            queue.plan(split);
+            return split.getJob();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.csvxml.config;
+
+import com.csvxml.CsvXmlConverterApplication;
+import com.csvxml.GoldenFiles;
+import org.apache.camel.CamelContext;
+import org.apache.camel.test.spring.junit5.CamelSpringBootTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 按默认配置运行整条路由，输出与最初的DOM实现生成的基准输出逐字节相同
+ */
+@CamelSpringBootTest
+@AutoConfigureMetrics
+@SpringBootTest(classes = CsvXmlConverterApplication.class, properties = {
+    "camel.springboot.main-run-controller=false",
+    "app.ingest.poll-delay=200"
+})
+// 测试默认关闭指标导出，MetricsFileExporter 需要 Prometheus 注册表；各测试类的路由监听同一输入目录，上下文不能在测试类之间保留
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class CsvToXmlRouteTest {
+    @Autowired
+    CamelContext camelContext;
+
+    @Test
+    void mixedFormatsMatchGolden() throws Exception {
+        RouteFiles.process(camelContext, GoldenFiles.MIXED);
+
+        List<Path> outputs = RouteFiles.files(AppConfig.OUTPUT_DIR, GoldenFiles.MIXED);
+        assertThat(outputs).hasSize(1);
+        assertThat(RouteFiles.read(outputs.get(0))).isEqualTo(GoldenFiles.expectedOutput(GoldenFiles.MIXED));
+    }
+
+    @Test
+    void gzipInputMatchesGolden() throws Exception {
+        RouteFiles.process(camelContext, GoldenFiles.MIXED, true);
+
+        List<Path> outputs = RouteFiles.files(AppConfig.OUTPUT_DIR, GoldenFiles.MIXED);
+        assertThat(outputs).hasSize(1);
+        assertThat(outputs.get(0).getFileName().toString()).matches("mixed_\\d{14}\\.xml");
+        assertThat(RouteFiles.read(outputs.get(0))).isEqualTo(GoldenFiles.expectedOutput(GoldenFiles.MIXED));
+    }
+
+    @Test
+    void badRowsFailFileInStrictMode() throws Exception {
+        RouteFiles.process(camelContext, GoldenFiles.TEST);
+
+        assertThat(RouteFiles.files(AppConfig.OUTPUT_DIR, GoldenFiles.TEST)).isEmpty();
+        List<Path> errors = RouteFiles.files(AppConfig.ERROR_DIR, GoldenFiles.TEST);
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0).getFileName().toString()).startsWith(GoldenFiles.TEST + "_csv_error_");
+        // 列数错误的三行都在错误信息中
+        assertThat(RouteFiles.read(errors.get(0))).contains("第 4 行", "第 6 行", "第 7 行");
+    }
+}
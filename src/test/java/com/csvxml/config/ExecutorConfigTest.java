@@ -0,0 +1,83 @@
+package com.csvxml.config;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 文件处理线程池的工作线程都忙且队列已满时，提交任务的轮询线程自己执行该任务，不再接收新文件
+ */
+class ExecutorConfigTest {
+    @Test
+    void fullQueueRunsTaskInSubmittingThread() throws Exception {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getIngest().setWorkers(2);
+        appConfig.getIngest().setQueueCapacity(1);
+        ThreadPoolExecutor executor = new ExecutorConfig().ingestExecutor(appConfig);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        try {
+            for (int i = 0; i < 2; i++) {
+                executor.execute(() -> {
+                    started.countDown();
+                    await(release);
+                });
+            }
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            executor.execute(() -> await(release));
+            assertThat(executor.getQueue()).hasSize(1);
+
+            // 两个工作线程都忙、队列已满：第四个文件由提交线程处理
+            AtomicReference<Thread> runner = new AtomicReference<>();
+            executor.execute(() -> runner.set(Thread.currentThread()));
+            assertThat(runner.get()).isSameAs(Thread.currentThread());
+            assertThat(executor.getQueue()).hasSize(1);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void submittingThreadIsBlockedWhileItRunsTheTask() throws Exception {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getIngest().setQueueCapacity(1);
+        ThreadPoolExecutor executor = new ExecutorConfig().ingestExecutor(appConfig);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch callerRunning = new CountDownLatch(1);
+        try {
+            executor.execute(() -> await(release));
+            executor.execute(() -> await(release));
+            Thread poller = new Thread(() -> executor.execute(() -> {
+                callerRunning.countDown();
+                await(release);
+            }));
+            poller.start();
+            // 轮询线程在执行文件期间不能返回去接收下一个文件
+            assertThat(callerRunning.await(10, TimeUnit.SECONDS)).isTrue();
+            poller.join(200);
+            assertThat(poller.isAlive()).isTrue();
+
+            release.countDown();
+            poller.join(10_000);
+            assertThat(poller.isAlive()).isFalse();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.csvxml.config;
+
+import com.csvxml.CsvXmlConverterApplication;
+import com.csvxml.GoldenFiles;
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.read.ListAppender;
+import org.apache.camel.CamelContext;
+import org.apache.camel.test.spring.junit5.CamelSpringBootTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 宽松模式下运行整条路由：错误行写入拒绝文件，其余行的输出与基准输出逐字节相同；
+ * 逐行错误日志按 row-error-limit 限流，每个文件输出一行汇总日志
+ */
+@CamelSpringBootTest
+@AutoConfigureMetrics
+@SpringBootTest(classes = CsvXmlConverterApplication.class, properties = {
+    "camel.springboot.main-run-controller=false",
+    "app.ingest.poll-delay=200",
+    "app.validation.lenient=true",
+    "app.logging.row-error-limit=2",
+    "app.logging.async-queue-size=1024"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class LenientCsvToXmlRouteTest {
+    private static final long SUMMARY_TIMEOUT_MILLIS = 10_000;
+
+    @Autowired
+    CamelContext camelContext;
+
+    private final ListAppender<ILoggingEvent> events = new ListAppender<>();
+
+    @BeforeEach
+    void captureLogs() {
+        events.start();
+        rootLogger().addAppender(events);
+    }
+
+    @AfterEach
+    void stopCapture() {
+        rootLogger().detachAppender(events);
+        events.stop();
+    }
+
+    @Test
+    void badRowsAreRejectedAndOthersMatchGolden() throws Exception {
+        RouteFiles.process(camelContext, GoldenFiles.TEST);
+
+        List<Path> outputs = RouteFiles.files(AppConfig.OUTPUT_DIR, GoldenFiles.TEST);
+        assertThat(outputs).hasSize(1);
+        assertThat(RouteFiles.read(outputs.get(0))).isEqualTo(GoldenFiles.expectedOutput(GoldenFiles.TEST));
+        assertThat(RouteFiles.files(AppConfig.ERROR_DIR, GoldenFiles.TEST)).isEmpty();
+
+        List<Path> rejects = RouteFiles.files(AppConfig.REJECT_DIR, GoldenFiles.TEST);
+        assertThat(rejects).hasSize(1);
+        List<String> lineNumbers = Files.readAllLines(rejects.get(0)).stream()
+            .map(line -> line.substring(0, line.indexOf(',')))
+            .collect(Collectors.toList());
+        assertThat(lineNumbers).containsExactly("4", "6", "7");
+    }
+
+    @Test
+    void rowErrorsAreLimitedAndFileIsSummarizedOnce() throws Exception {
+        RouteFiles.process(camelContext, GoldenFiles.TEST);
+
+        List<String> summaries = awaitSummaries(GoldenFiles.TEST + ".csv");
+        // 三行列数错误只逐行输出前两行
+        assertThat(messages(AppConfig.LogMessages.VALIDATION_FAILED)).hasSize(2);
+        assertThat(summaries).hasSize(1);
+        assertThat(summaries.get(0))
+            .matches("文件 test\\.csv 汇总: 4 行，错误行 \\{COLUMN_MISMATCH=3\\}，省略逐行错误日志 1 条，"
+                + "2 个公司渲染共 \\d+ ms，最慢 \\[.*\\]")
+            .containsPattern("bilibili=\\d+ms/2")
+            .containsPattern("baidu=\\d+ms/2");
+    }
+
+    @Test
+    void consoleLogsAreWrittenAsynchronously() {
+        Appender<ILoggingEvent> appender = rootLogger().getAppender("ASYNC_CONSOLE");
+        assertThat(appender).isInstanceOf(AsyncAppender.class);
+        // 队列大小来自 app.logging.async-queue-size
+        assertThat(((AsyncAppender) appender).getQueueSize()).isEqualTo(1024);
+        assertThat(((AsyncAppender) appender).isNeverBlock()).isFalse();
+    }
+
+    @Test
+    void mixedFormatsMatchGolden() throws Exception {
+        RouteFiles.process(camelContext, GoldenFiles.MIXED);
+
+        List<Path> outputs = RouteFiles.files(AppConfig.OUTPUT_DIR, GoldenFiles.MIXED);
+        assertThat(outputs).hasSize(1);
+        assertThat(RouteFiles.read(outputs.get(0))).isEqualTo(GoldenFiles.expectedOutput(GoldenFiles.MIXED));
+    }
+
+    /**
+     * 汇总日志在交换完成时输出，可能晚于 NotifyBuilder 的通知
+     */
+    private List<String> awaitSummaries(String fileName) throws InterruptedException {
+        String prefix = "文件 " + fileName + " 汇总: ";
+        long deadline = System.currentTimeMillis() + SUMMARY_TIMEOUT_MILLIS;
+        List<String> summaries = Collections.emptyList();
+        while (summaries.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            summaries = messages(AppConfig.LogMessages.FILE_SUMMARY).stream()
+                .filter(message -> message.startsWith(prefix))
+                .collect(Collectors.toList());
+        }
+        return summaries;
+    }
+
+    private List<String> messages(String pattern) {
+        List<ILoggingEvent> captured;
+        // ListAppender 在处理线程中追加，追加时持有 appender 的锁
+        synchronized (events) {
+            captured = new ArrayList<>(events.list);
+        }
+        return captured.stream()
+            .filter(event -> pattern.equals(event.getMessage()))
+            .map(ILoggingEvent::getFormattedMessage)
+            .collect(Collectors.toList());
+    }
+
+    private static Logger rootLogger() {
+        return (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+    }
+}
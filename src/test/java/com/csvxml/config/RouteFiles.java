@@ -0,0 +1,78 @@
+package com.csvxml.config;
+
+import com.csvxml.GoldenFiles;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.NotifyBuilder;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 经文件端点运行整条路由：把输入放入 input 目录，等待交换完成后读取 output、error 与 reject 目录中的结果
+ */
+final class RouteFiles {
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private RouteFiles() {
+    }
+
+    /**
+     * 删除同名输入之前留下的结果，放入输入并等待路由处理完成
+     */
+    static void process(CamelContext camelContext, String name) throws IOException {
+        process(camelContext, name, false);
+    }
+
+    /**
+     * 同上；gzip 为 true 时放入 gzip 压缩的 名称.csv.gz
+     */
+    static void process(CamelContext camelContext, String name, boolean gzip) throws IOException {
+        for (String dir : new String[] {AppConfig.OUTPUT_DIR, AppConfig.ERROR_DIR, AppConfig.REJECT_DIR}) {
+            for (Path file : files(dir, name)) {
+                Files.delete(file);
+            }
+        }
+        String fileName = gzip ? name + ".csv.gz" : name + ".csv";
+        Files.deleteIfExists(Paths.get(AppConfig.INPUT_DIR, ".camel", fileName));
+        // 只计该输入的交换，上下文中其他交换完成时不算
+        NotifyBuilder done = new NotifyBuilder(camelContext)
+            .filter(exchange -> fileName.equals(exchange.getIn().getHeader(Exchange.FILE_NAME, String.class)))
+            .whenDone(1)
+            .create();
+        if (gzip) {
+            GoldenFiles.copyGzipInput(name, Paths.get(AppConfig.INPUT_DIR));
+        } else {
+            GoldenFiles.copyInput(name, Paths.get(AppConfig.INPUT_DIR));
+        }
+        if (!done.matches(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError(fileName + " was not processed within " + TIMEOUT_SECONDS + " seconds");
+        }
+    }
+
+    /**
+     * 目录中由该输入生成的文件，文件名为 名称_时间戳.扩展名 或 名称_类别_时间戳.扩展名
+     */
+    static List<Path> files(String dir, String name) throws IOException {
+        Path path = Paths.get(dir);
+        if (!Files.isDirectory(path)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(name + "_"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
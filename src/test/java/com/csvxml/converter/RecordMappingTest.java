@@ -0,0 +1,150 @@
+package com.csvxml.converter;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.csv.CsvRow;
+import com.csvxml.model.NameParts;
+import com.csvxml.model.RecordBatch;
+import com.csvxml.service.DateParser;
+import com.csvxml.service.NameProcessor;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 字段映射的编译：列名与转换在启动时解析，每行按字段顺序转换
+ */
+class RecordMappingTest {
+    private final NameProcessor nameProcessor = new NameProcessor();
+    private final DateParser dateParser = new DateParser();
+
+    @Test
+    void defaultMappingMatchesDirectConversion() {
+        RecordMapping mapping = mapping(config -> { });
+        List<List<String>> rows = Arrays.asList(
+            Arrays.asList("Acme", "1", "张伟", "2024-03-21"),
+            Arrays.asList("Acme", "007", "John Smith", "21/03/2024"),
+            Arrays.asList("Globex", "18446744073709551616", "Mary O'Neil", "Mar 21, 2024"),
+            Arrays.asList("腾讯", "-3", "李娜", "03/21/2024"));
+        List<String[]> values = fill(mapping, rows);
+        for (int r = 0; r < rows.size(); r++) {
+            List<String> row = rows.get(r);
+            NameParts name = nameProcessor.parse(row.get(2));
+            String date = dateParser.toInstant(dateParser.parseDate(row.get(3))).toString();
+            assertThat(values.get(r)).containsExactly(row.get(1), name.getGiven(), name.getSurname(), date);
+        }
+    }
+
+    @Test
+    void columnsAreStoredByTransform() {
+        RecordMapping mapping = mapping(config -> {
+            config.setColumns(Arrays.asList("company", "id", "name", "date", "note"));
+            config.setFields(Arrays.asList(
+                field("id", null, "id", "number"),
+                field("name", null, "name", "text"),
+                field("day", null, "date", "date"),
+                field("raw", null, "note", "text"),
+                field("noteDate", null, "note", "date")));
+        });
+        RecordBatch batch = mapping.newBatch(1);
+        mapping.add(batch, CsvRow.of(Arrays.asList("Acme", "42", "Ann", "2024-03-21", "1999-12-31")), 1, null);
+        assertThat(mapping.batchColumn("id")).isEqualTo(0);
+        assertThat(mapping.batchColumn("name")).isEqualTo(1);
+        // 只用作日期的列按纪元日存放，没有原文列
+        assertThat(mapping.batchColumn("date")).isEqualTo(-1);
+        // 同时用作字符串与日期的列按字符串存放
+        assertThat(mapping.batchColumn("note")).isEqualTo(3);
+        assertThat(mapping.batchColumn("company")).isEqualTo(-1);
+        assertThat(batch.hasDate(2, 0)).isTrue();
+        assertThat(batch.getText(3, 0)).isEqualTo("1999-12-31");
+
+        String[] values = new String[5];
+        mapping.fill(batch, 0, new int[] {0, 1, 2, 3, 4}, values);
+        assertThat(values).containsExactly("42", "Ann", "2024-03-21T00:00:00Z", "1999-12-31", "1999-12-31T00:00:00Z");
+    }
+
+    @Test
+    void formattedDatesAndSkippedSlots() {
+        RecordMapping mapping = mapping(config -> config.setFields(Arrays.asList(
+            field("local", null, "register_date", "date('yyyy/MM/dd HH:mm', 'Asia/Shanghai')"),
+            field("hidden", null, "user_id", "number"),
+            field(null, "/Profile/Name", "full_name", "name.last"))));
+        assertThat(mapping.getFields()).extracting(RecordMapping.Field::getTarget)
+            .containsExactly("local", "hidden", "mapping.3");
+
+        RecordBatch batch = mapping.newBatch(1);
+        mapping.add(batch, CsvRow.of(Arrays.asList("Acme", "5", "John Smith", "21/03/2024")), 1, null);
+        String[] values = new String[2];
+        mapping.fill(batch, 0, new int[] {0, -1, 1}, values);
+        assertThat(values).containsExactly("2024/03/21 00:00", nameProcessor.parse("John Smith").getSurname());
+    }
+
+    @Test
+    void unparsedDatesFailWhenRendered() {
+        RecordMapping mapping = mapping(config -> { });
+        RecordBatch batch = mapping.newBatch(1);
+        // 严格模式下保留原文，渲染时抛出与逐行处理相同的错误
+        assertThat(mapping.add(batch, CsvRow.of(Arrays.asList("Acme", "1", "Ann Lee", "2024-13-45")), 1, null)).isTrue();
+        assertThatThrownBy(() -> mapping.fill(batch, 0, new int[] {0, 1, 2, 3}, new String[4]))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("2024-13-45");
+    }
+
+    @Test
+    void invalidConfigurationFailsAtStartup() {
+        assertThatThrownBy(() -> mapping(config -> config.setColumns(new ArrayList<>())))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("app.mapping.columns must not be empty");
+        assertThatThrownBy(() -> mapping(config -> config.setCompany("firm")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Unknown mapping column: firm");
+        assertThatThrownBy(() -> mapping(config -> config.setFields(Arrays.asList(field("x", null, "email", "text")))))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Unknown mapping column: email");
+        assertThatThrownBy(() -> mapping(config -> config.setFields(Arrays.asList(
+            field("x", null, "user_id", "text"), field(null, null, "user_id", "text")))))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Mapping field 2 needs a target or an xpath");
+        assertThatThrownBy(() -> mapping(config -> config.setFields(Arrays.asList(field("x", null, "user_id", "upper")))))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Unknown mapping transform: upper");
+    }
+
+    private RecordMapping mapping(Consumer<AppConfig.Mapping> configure) {
+        AppConfig appConfig = new AppConfig();
+        configure.accept(appConfig.getMapping());
+        return new RecordMapping(appConfig, nameProcessor, dateParser);
+    }
+
+    private static List<String[]> fill(RecordMapping mapping, List<List<String>> rows) {
+        RecordBatch batch = mapping.newBatch(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            mapping.add(batch, CsvRow.of(rows.get(i)), i + 1, null);
+        }
+        int fieldCount = mapping.getFields().size();
+        int[] slots = new int[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            slots[i] = i;
+        }
+        List<String[]> values = new ArrayList<>();
+        for (int row = 0; row < batch.size(); row++) {
+            String[] rowValues = new String[fieldCount];
+            mapping.fill(batch, row, slots, rowValues);
+            values.add(rowValues);
+        }
+        return values;
+    }
+
+    private static AppConfig.Mapping.Field field(String target, String xpath, String source, String transform) {
+        AppConfig.Mapping.Field field = new AppConfig.Mapping.Field();
+        field.setTarget(target);
+        field.setXpath(xpath);
+        field.setSource(source);
+        field.setTransform(transform);
+        return field;
+    }
+}
@@ -0,0 +1,156 @@
+package com.csvxml.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 两种读取器与 Commons-CSV 的 CSVParser 逐个比较：读出的行相同，或同样以 IOException 失败
+ */
+class CsvReaderTest {
+    private static final String[] VALUES = {"", "a", "Acme", "张伟", "O'Neil", " x ", "12,5", "a\"b", "line\nbreak",
+        "cr\rlf", "\"\"", "全角\u3000空格"};
+    // 结束引号之后的内容：Character.isWhitespace 的字符被忽略，其余字符为格式错误
+    private static final String[] AFTER_QUOTE = {" ", "\t", "  \t", "\u3000", "\u2003", "\u3000 \u3000", "\u00A0", "x",
+        " \"", "\u3000x"};
+    private static final String[] LINE_ENDS = {"\n", "\r\n", "\r", "\n\n", "\r\n\r\n"};
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"UTF-8", "GBK"})
+    void readersMatchCommonsCsv(String charsetName) throws IOException {
+        Charset charset = Charset.forName(charsetName);
+        Random random = new Random(charsetName.hashCode());
+        List<String> mismatches = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String text = randomCsv(random);
+            if (!charset.newEncoder().canEncode(text)) {
+                continue;
+            }
+            Path file = Files.write(dir.resolve("input.csv"), text.getBytes(charset));
+            Object expected = parseCommons(text);
+            compare(mismatches, "mapped", text, expected, () -> MappedCsvReader.open(file, charset, 0));
+            compare(mismatches, "mapped window 16", text, expected,
+                () -> MappedCsvReader.open(file, charset, 0, Long.MAX_VALUE, 16));
+            compare(mismatches, "wrap", text, expected, () -> MappedCsvReader.wrap(text.getBytes(charset), charset));
+            compare(mismatches, "commons", text, expected, () -> CsvReaders.open(file, charset, false, 0, 1));
+        }
+        assertThat(mismatches).isEmpty();
+    }
+
+    @Test
+    void unicodeWhitespaceAfterClosingQuote() throws IOException {
+        assertThat(readMapped("\"a\"\u3000,\"b\"\u2003\r\n")).containsExactly(Arrays.asList("a", "b"));
+        assertThatThrownBy(() -> readMapped("\"a\"\u00A0,b\n"))
+            .isInstanceOf(CsvFormatException.class)
+            .hasMessageContaining("invalid char between encapsulated token and delimiter");
+    }
+
+    @Test
+    void unterminatedQuoteIsIOException() {
+        assertThatThrownBy(() -> readMapped("a,\"b\n"))
+            .isInstanceOf(CsvFormatException.class)
+            .hasMessageContaining("EOF reached before encapsulated token finished");
+    }
+
+    private static String randomCsv(Random random) {
+        StringBuilder csv = new StringBuilder();
+        int rows = 1 + random.nextInt(4);
+        for (int r = 0; r < rows; r++) {
+            int columns = 1 + random.nextInt(4);
+            for (int c = 0; c < columns; c++) {
+                if (c > 0) {
+                    csv.append(',');
+                }
+                String value = VALUES[random.nextInt(VALUES.length)];
+                boolean quoted = random.nextInt(3) == 0;
+                if (quoted || value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                        || value.indexOf('\r') >= 0) {
+                    csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+                    if (random.nextInt(6) == 0) {
+                        csv.append(AFTER_QUOTE[random.nextInt(AFTER_QUOTE.length)]);
+                    }
+                } else {
+                    csv.append(value);
+                }
+            }
+            if (r < rows - 1 || random.nextBoolean()) {
+                csv.append(LINE_ENDS[random.nextInt(LINE_ENDS.length)]);
+            }
+        }
+        if (random.nextInt(20) == 0) {
+            // 未闭合的引号
+            csv.append("\"open");
+        }
+        return csv.toString();
+    }
+
+    private static Object parseCommons(String text) {
+        try (CSVParser parser = new CSVParser(new StringReader(text), CSVFormat.DEFAULT)) {
+            List<List<String>> rows = new ArrayList<>();
+            for (CSVRecord record : parser.getRecords()) {
+                List<String> row = new ArrayList<>();
+                record.forEach(row::add);
+                rows.add(row);
+            }
+            return rows;
+        } catch (IOException e) {
+            return IOException.class;
+        }
+    }
+
+    private static void compare(List<String> mismatches, String reader, String text, Object expected,
+                                ReaderFactory factory) throws IOException {
+        Object actual;
+        try (CsvRowReader csv = factory.open()) {
+            actual = readAll(csv);
+        } catch (IOException e) {
+            actual = IOException.class;
+        }
+        if (!expected.equals(actual)) {
+            mismatches.add(reader + " " + escape(text) + ": " + expected + " != " + actual);
+        }
+    }
+
+    private List<List<String>> readMapped(String text) throws IOException {
+        Path file = Files.write(dir.resolve("single.csv"), text.getBytes(StandardCharsets.UTF_8));
+        try (CsvRowReader reader = MappedCsvReader.open(file, StandardCharsets.UTF_8, 0)) {
+            return readAll(reader);
+        }
+    }
+
+    private static List<List<String>> readAll(CsvRowReader reader) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        for (CsvRow row = reader.next(); row != null; row = reader.next()) {
+            rows.add(row.toList());
+        }
+        return rows;
+    }
+
+    private static String escape(String text) {
+        return text.replace("\r", "\\r").replace("\n", "\\n");
+    }
+
+    private interface ReaderFactory {
+        CsvRowReader open() throws IOException;
+    }
+}
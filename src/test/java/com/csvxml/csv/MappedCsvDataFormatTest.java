@@ -0,0 +1,76 @@
+package com.csvxml.csv;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.dataformat.csv.CsvDataFormat;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * marshal 与 camel-csv 的输出相同，unmarshal 能读回 marshal 的结果
+ */
+class MappedCsvDataFormatTest {
+    private final CamelContext camelContext = new DefaultCamelContext();
+
+    @AfterEach
+    void stop() {
+        camelContext.stop();
+    }
+
+    @Test
+    void marshalMatchesCamelCsv() throws Exception {
+        List<List<String>> rows = Arrays.asList(
+            Arrays.asList("Acme", "1", "张伟", "2024-03-21"),
+            Arrays.asList("Globex", "2", "Mary \"O'Neil\"", "21/03/2024"),
+            Arrays.asList("a,b", "", "line\nbreak", " x "));
+        assertThat(marshal(new MappedCsvDataFormat(), rows)).isEqualTo(marshal(camelCsv(), rows));
+
+        Map<String, String> row = new LinkedHashMap<>();
+        row.put("company", "Acme");
+        row.put("name", "李娜");
+        List<Map<String, String>> maps = Collections.singletonList(row);
+        assertThat(marshal(new MappedCsvDataFormat(), maps)).isEqualTo(marshal(camelCsv(), maps));
+    }
+
+    @Test
+    void unmarshalReadsMarshalledRows() throws Exception {
+        List<List<String>> rows = Arrays.asList(
+            Arrays.asList("Acme", "1", "张伟"),
+            Arrays.asList("a,b", "\"quoted\"", "line\r\nbreak"));
+        MappedCsvDataFormat format = new MappedCsvDataFormat();
+        byte[] csv = marshal(format, rows).getBytes(StandardCharsets.UTF_8);
+        Exchange exchange = exchange();
+        exchange.getIn().setBody(csv);
+        assertThat(format.unmarshal(exchange, new ByteArrayInputStream(csv))).isEqualTo(rows);
+    }
+
+    private String marshal(org.apache.camel.spi.DataFormat format, Object rows) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        format.marshal(exchange(), rows, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private Exchange exchange() {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.setProperty(Exchange.CHARSET_NAME, StandardCharsets.UTF_8.name());
+        return exchange;
+    }
+
+    private static CsvDataFormat camelCsv() {
+        CsvDataFormat csv = new CsvDataFormat();
+        csv.start();
+        return csv;
+    }
+}
@@ -0,0 +1,121 @@
+package com.csvxml.model;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 按公司分组的结果与 Collectors.groupingBy 相同：公司顺序为 HashMap 的迭代顺序，组内保持文件顺序
+ */
+class RecordBatchTest {
+    // "Aa" 与 "BB"、"AaAa" 与 "BBBB" 的哈希值相同
+    private static final String[] COMPANIES = {"Aa", "BB", "AaAa", "BBBB", "AaBB", "Acme", "腾讯", "Globex", "", "Initech"};
+
+    @Test
+    void groupsFollowGroupingByOrder() {
+        Random random = new Random(13L);
+        for (int round = 0; round < 200; round++) {
+            int rows = random.nextInt(300);
+            int companies = 1 + random.nextInt(COMPANIES.length);
+            List<String> input = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                input.add(COMPANIES[random.nextInt(companies)]);
+            }
+            RecordBatch batch = new RecordBatch(4);
+            for (int i = 0; i < rows; i++) {
+                batch.addRow(input.get(i), i + 1);
+            }
+            assertThat(groups(batch)).isEqualTo(expected(input, i -> true));
+        }
+    }
+
+    @Test
+    void companiesWithoutRowsAreSkipped() {
+        List<String> input = new ArrayList<>();
+        RecordBatch batch = new RecordBatch(4);
+        // 已登记但没有行的公司不成组
+        batch.companyCode("Rejected");
+        for (int i = 0; i < 50; i++) {
+            String company = COMPANIES[i % COMPANIES.length];
+            input.add(company);
+            if (i % 3 != 0) {
+                batch.addRow(company, i + 1);
+            }
+        }
+        assertThat(groups(batch)).isEqualTo(expected(input, i -> i % 3 != 0));
+    }
+
+    @Test
+    void removedRowsLeaveNoCompany() {
+        Random random = new Random(17L);
+        for (int round = 0; round < 200; round++) {
+            int rows = random.nextInt(200);
+            List<String> input = new ArrayList<>();
+            RecordBatch batch = new RecordBatch(4);
+            BitSet removed = new BitSet(rows);
+            for (int i = 0; i < rows; i++) {
+                input.add(COMPANIES[random.nextInt(COMPANIES.length)]);
+                batch.addRow(input.get(i), i + 1);
+                // 有的公司的行全部删除，冲突的公司中首次出现的行可能被删除
+                if (random.nextInt(3) == 0 || input.get(i).startsWith("A")) {
+                    removed.set(i);
+                }
+            }
+            batch.removeRows(removed);
+            List<Map.Entry<String, List<Integer>>> expected = expected(input, i -> !removed.get(i));
+            assertThat(groups(batch)).isEqualTo(expected);
+            assertThat(batch.companyCount()).isEqualTo(expected.size());
+            for (int row = 0; row < batch.size(); row++) {
+                assertThat(batch.getCompany(row)).isEqualTo(input.get(batch.getLineNumber(row) - 1));
+            }
+        }
+    }
+
+    @Test
+    void removeRowsFollowsGroupingByOrderOfRemainingRows() {
+        RecordBatch batch = new RecordBatch(4);
+        batch.addRow("Aa", 1);
+        batch.addRow("BB", 2);
+        batch.addRow("Aa", 3);
+        BitSet removed = new BitSet();
+        removed.set(0);
+        batch.removeRows(removed);
+        // 删除前先输出 "BB"；只剩 "BB", "Aa" 两行时 groupingBy 先输出 "Aa"
+        assertThat(groups(batch)).isEqualTo(expected(Arrays.asList("Aa", "BB", "Aa"), i -> i > 0));
+        assertThat(batch.groupByCompany().getCompany(0)).isEqualTo("Aa");
+    }
+
+    private static List<Map.Entry<String, List<Integer>>> groups(RecordBatch batch) {
+        RecordBatch.CompanyGroups groups = batch.groupByCompany();
+        Map<String, List<Integer>> result = new LinkedHashMap<>();
+        for (int g = 0; g < groups.size(); g++) {
+            List<Integer> lines = new ArrayList<>();
+            for (int i = groups.start(g); i < groups.end(g); i++) {
+                lines.add(batch.getLineNumber(groups.row(i)));
+            }
+            result.put(groups.getCompany(g), lines);
+        }
+        return new ArrayList<>(result.entrySet());
+    }
+
+    private static List<Map.Entry<String, List<Integer>>> expected(List<String> input, IntPredicate kept) {
+        List<Integer> lines = new ArrayList<>();
+        for (int i = 0; i < input.size(); i++) {
+            if (kept.test(i)) {
+                lines.add(i + 1);
+            }
+        }
+        Map<String, List<Integer>> grouped = lines.stream()
+            .collect(Collectors.groupingBy(line -> input.get(line - 1)));
+        return new ArrayList<>(grouped.entrySet());
+    }
+}
@@ -0,0 +1,72 @@
+package com.csvxml.processor;
+
+import com.csvxml.service.CheckpointStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 流式转换中断后从断点继续，输出与一次完成的转换相同
+ */
+class CheckpointResumeTest {
+    private static final String KEY = "resume-test";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resumesFromCharOffset() throws Exception {
+        resume(false);
+    }
+
+    @Test
+    void resumesFromByteOffset() throws Exception {
+        resume(true);
+    }
+
+    private void resume(boolean mapped) throws Exception {
+        List<List<String>> rows = TestPipeline.rows(400, 7L);
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), rows);
+        byte[] expected;
+        try (TestPipeline pipeline = new TestPipeline()) {
+            expected = pipeline.convertInMemory(input);
+        }
+
+        // 第 301 行的日期在渲染时失败，之前保存的进度保留；日期与原值等长，之前各行的位置不变
+        List<List<String>> broken = new ArrayList<>(rows);
+        List<String> row = rows.get(300);
+        broken.set(300, Arrays.asList(row.get(0), row.get(1), row.get(2), pad("?", row.get(3).length())));
+        TestPipeline.writeCsv(input, broken);
+        try (TestPipeline pipeline = new TestPipeline(config -> {
+            config.getCsv().setMapped(mapped);
+            config.getCheckpoint().setEnabled(true);
+            config.getCheckpoint().setDir(dir.resolve("checkpoint").toString());
+            config.getCheckpoint().setInterval(50);
+        })) {
+            assertThatThrownBy(() -> pipeline.convertStreaming(input, KEY)).hasMessageContaining("Error processing company");
+            CheckpointStore.State state = pipeline.checkpointStore.load(KEY);
+            assertThat(state.getRows()).isEqualTo(300);
+            assertThat(state.isByteOffset()).isEqualTo(mapped);
+            assertThat(state.getCompanies()).isNotEmpty();
+
+            TestPipeline.writeCsv(input, rows);
+            assertThat(new String(pipeline.convertStreaming(input, KEY), StandardCharsets.UTF_8))
+                .isEqualTo(new String(expected, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String pad(String value, int length) {
+        StringBuilder padded = new StringBuilder(value);
+        while (padded.length() < length) {
+            padded.append('?');
+        }
+        return padded.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.service.DedupIndex;
+import org.apache.camel.Exchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 去重后的输出与只包含其余行的文件的输出相同，行全部被删除的公司不输出
+ */
+class DeduplicatorTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void droppedCompanyIsNotOutput() throws Exception {
+        List<List<String>> rows = Arrays.asList(
+            Arrays.asList("Ghost", "1", "张伟", "2024-03-21"),
+            Arrays.asList("Aa", "2", "John Smith", "2024-03-21"),
+            Arrays.asList("Ghost", "1", "王秀英", "21/03/2024"),
+            Arrays.asList("BB", "3", "李娜", "Mar 21, 2024"),
+            Arrays.asList("Aa", "2", "Robert Brown", "03/21/2024"),
+            Arrays.asList("Aa", "4", "Mary O'Neil", "1999-12-31"));
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), rows);
+        // drop 删除 Ghost 的全部行与 Aa 的前两行；其余行中 BB 先于 Aa 出现，冲突的两个公司的顺序与去重前相反
+        Path remaining = TestPipeline.writeCsv(dir.resolve("remaining.csv"), Arrays.asList(rows.get(3), rows.get(5)));
+
+        byte[] expected;
+        try (TestPipeline pipeline = new TestPipeline()) {
+            expected = pipeline.convertInMemory(remaining);
+        }
+        try (TestPipeline pipeline = new TestPipeline(dedup(config -> { }))) {
+            byte[] actual = deduplicated(pipeline, input);
+            assertThat(new String(actual, StandardCharsets.UTF_8)).isEqualTo(new String(expected, StandardCharsets.UTF_8));
+            assertThat(StreamingXmlProcessorTest.companies(actual)).containsExactly("Aa", "BB");
+        }
+    }
+
+    @Test
+    void droppedCompanyHasNoShard() throws Exception {
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), Arrays.asList(
+            Arrays.asList("Ghost", "1", "张伟", "2024-03-21"),
+            Arrays.asList("Ghost", "1", "王秀英", "2024-03-21"),
+            Arrays.asList("Acme", "2", "John Smith", "2024-03-21")));
+        try (TestPipeline pipeline = new TestPipeline(dedup(config -> config.getOutput().setSharded(true)))) {
+            List<File> shards = deduplicatedShards(pipeline, input);
+            try {
+                assertThat(shards).hasSize(1);
+                assertThat(shards.get(0).getName()).contains("Acme").doesNotContain("Ghost");
+            } finally {
+                for (File shard : shards) {
+                    Files.delete(shard.toPath());
+                }
+            }
+        }
+    }
+
+    @Test
+    void streamingOrClusterFailsStartup() throws Exception {
+        List<Consumer<AppConfig>> modes = Arrays.asList(
+            config -> config.getStreaming().setEnabled(true),
+            config -> config.getCluster().setEnabled(true));
+        for (Consumer<AppConfig> mode : modes) {
+            try (TestPipeline pipeline = new TestPipeline(dedup(mode))) {
+                assertThatThrownBy(() -> deduplicator(pipeline))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("app.dedup");
+            }
+        }
+    }
+
+    private static Deduplicator deduplicator(TestPipeline pipeline) throws Exception {
+        return new Deduplicator(new DedupIndex(pipeline.appConfig), pipeline.mapping, pipeline.metrics, pipeline.appConfig);
+    }
+
+    /**
+     * 与路由相同：转换、去重、渲染
+     */
+    private static Exchange convert(TestPipeline pipeline, Path input) throws Exception {
+        Deduplicator deduplicator = deduplicator(pipeline);
+        Exchange exchange = pipeline.exchange(input);
+        pipeline.fusedConverter.process(exchange);
+        deduplicator.process(exchange);
+        pipeline.templateEnricher.process(exchange);
+        return exchange;
+    }
+
+    private static byte[] deduplicated(TestPipeline pipeline, Path input) throws Exception {
+        Exchange exchange = convert(pipeline, input);
+        try {
+            return TestPipeline.body(exchange);
+        } finally {
+            pipeline.complete(exchange);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<File> deduplicatedShards(TestPipeline pipeline, Path input) throws Exception {
+        Exchange exchange = convert(pipeline, input);
+        try {
+            return new ArrayList<>(exchange.getIn().getBody(List.class));
+        } finally {
+            pipeline.complete(exchange);
+        }
+    }
+
+    private static Consumer<AppConfig> dedup(Consumer<AppConfig> configure) {
+        return config -> {
+            config.getDedup().setEnabled(true);
+            config.getDedup().setPolicy("drop");
+            configure.accept(config);
+        };
+    }
+}
@@ -0,0 +1,134 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.util.TransformError;
+import com.csvxml.util.TransformException;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 单遍转换与流式转换的列数校验，与 unmarshal 后逐个执行 StrictColumnValidator、记录转换时的错误相同
+ */
+class FusedValidationTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void strictErrorsMatchColumnValidator() throws Exception {
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), withBadRows());
+        try (TestPipeline pipeline = new TestPipeline()) {
+            TransformException expected = failure(() -> pipeline.convertList(input, unmarshal(input)));
+            assertThat(expected.getError()).isEqualTo(TransformError.COLUMN_MISMATCH);
+            assertThat(expected.getMessage()).isEqualTo(String.join("\n",
+                "第 3 行列数不正确，期望 4 列，实际 3 列",
+                "第 5 行列数不正确，期望 4 列，实际 5 列",
+                "第 8 行列数不正确，期望 4 列，实际 1 列"));
+
+            for (TransformException actual : Arrays.asList(
+                    failure(() -> pipeline.convertInMemory(input)), failure(() -> pipeline.convertStreaming(input)))) {
+                assertThat(actual.getError()).isEqualTo(expected.getError());
+                assertThat(actual.getMessage()).isEqualTo(expected.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void lenientRejectsMatchColumnValidator() throws Exception {
+        for (String baseName : Arrays.asList("list-path", "fused-path", "streaming-path")) {
+            // 上次运行中断时留下的拒绝记录
+            rejectFiles(baseName).forEach(file -> file.toFile().delete());
+        }
+        List<List<String>> rows = withBadRows();
+        Path listInput = TestPipeline.writeCsv(dir.resolve("list-path.csv"), rows);
+        Path fusedInput = TestPipeline.writeCsv(dir.resolve("fused-path.csv"), rows);
+        Path streamingInput = TestPipeline.writeCsv(dir.resolve("streaming-path.csv"), rows);
+        try (TestPipeline pipeline = new TestPipeline(config -> config.getValidation().setLenient(true))) {
+            String expected = new String(pipeline.convertList(listInput, unmarshal(listInput)), StandardCharsets.UTF_8);
+            assertThat(new String(pipeline.convertInMemory(fusedInput), StandardCharsets.UTF_8)).isEqualTo(expected);
+            assertThat(new String(pipeline.convertStreaming(streamingInput), StandardCharsets.UTF_8)).isEqualTo(expected);
+        }
+        List<String> expectedRejects = rejects("list-path");
+        assertThat(expectedRejects).hasSize(4);
+        assertThat(expectedRejects.get(0)).startsWith("3,COLUMN_MISMATCH,第 3 行列数不正确，期望 4 列，实际 3 列,");
+        // 逐个处理器时先写列数错误再写数据错误，单遍转换按行号顺序写入
+        assertThat(rejects("fused-path")).containsExactlyInAnyOrderElementsOf(expectedRejects);
+        assertThat(rejects("streaming-path")).containsExactlyInAnyOrderElementsOf(expectedRejects);
+    }
+
+    /**
+     * 第 3、5、8 行列数错误，第 6 行日期无法解析
+     */
+    private static List<List<String>> withBadRows() {
+        List<List<String>> rows = new ArrayList<>(TestPipeline.rows(8, 20L));
+        rows.set(2, Arrays.asList("Acme", "3", "张伟"));
+        rows.set(4, Arrays.asList("Acme", "5", "Smith, John", "2024-03-21", "extra"));
+        rows.set(5, Arrays.asList("Globex", "6", "李娜", "2024-02-30"));
+        rows.set(7, Arrays.asList("Ghost"));
+        return rows;
+    }
+
+    private static List<List<String>> unmarshal(Path input) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT)) {
+            for (CSVRecord record : parser) {
+                List<String> row = new ArrayList<>();
+                record.forEach(row::add);
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static TransformException failure(Conversion conversion) throws Exception {
+        try {
+            conversion.run();
+        } catch (TransformException e) {
+            return e;
+        }
+        throw new AssertionError("转换应以 TransformException 失败");
+    }
+
+    /**
+     * 该输入文件的拒绝记录各行，读取后删除
+     */
+    private static List<String> rejects(String baseName) throws IOException {
+        List<Path> files = rejectFiles(baseName);
+        assertThat(files).hasSize(1);
+        List<String> lines = Files.readAllLines(files.get(0), StandardCharsets.UTF_8);
+        Files.delete(files.get(0));
+        return lines;
+    }
+
+    private static List<Path> rejectFiles(String baseName) throws IOException {
+        Path rejectDir = Paths.get(AppConfig.REJECT_DIR);
+        if (!Files.isDirectory(rejectDir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(rejectDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(baseName + "_rejected_"))
+                .collect(Collectors.toList());
+        }
+    }
+
+    private interface Conversion {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,55 @@
+package com.csvxml.processor;
+
+import com.csvxml.GoldenFiles;
+import com.csvxml.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 路由之外的转换方式（流式、并行、内存映射读取）的输出同样与基准输出逐字节相同
+ */
+class GoldenOutputTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void mixedFormatsMatchGoldenInAllModes() throws Exception {
+        Path input = GoldenFiles.copyInput(GoldenFiles.MIXED, dir);
+        String expected = GoldenFiles.expectedOutput(GoldenFiles.MIXED);
+        for (Consumer<AppConfig> mode : modes()) {
+            try (TestPipeline pipeline = new TestPipeline(mode)) {
+                assertThat(new String(pipeline.convertInMemory(input), StandardCharsets.UTF_8)).isEqualTo(expected);
+                assertThat(new String(pipeline.convertStreaming(input), StandardCharsets.UTF_8)).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void lenientTestCsvMatchesGoldenInAllModes() throws Exception {
+        Path input = GoldenFiles.copyInput(GoldenFiles.TEST, dir);
+        String expected = GoldenFiles.expectedOutput(GoldenFiles.TEST);
+        for (Consumer<AppConfig> mode : modes()) {
+            try (TestPipeline pipeline = new TestPipeline(mode.andThen(config -> config.getValidation().setLenient(true)))) {
+                assertThat(new String(pipeline.convertInMemory(input), StandardCharsets.UTF_8)).isEqualTo(expected);
+                assertThat(new String(pipeline.convertStreaming(input), StandardCharsets.UTF_8)).isEqualTo(expected);
+            }
+        }
+    }
+
+    private static List<Consumer<AppConfig>> modes() {
+        return Arrays.asList(
+            config -> { },
+            config -> config.getCsv().setMapped(true),
+            config -> {
+                config.getParallel().setWorkers(3);
+                config.getParallel().setChunkSize(7);
+            });
+    }
+}
@@ -0,0 +1,98 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 宽松模式下被拒绝的行不输出，只出现在被拒绝行中的公司也不输出
+ */
+class LenientModeTest {
+    private static final String EMPTY_DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+        + System.lineSeparator() + "<UserProfiles/>";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rejectedOnlyCompanyIsNotOutput() throws Exception {
+        List<List<String>> rows = TestPipeline.rows(500, 6L);
+        Path expectedInput = TestPipeline.writeCsv(dir.resolve("expected.csv"), rows);
+        List<List<String>> withRejects = new ArrayList<>(rows);
+        withRejects.add(100, Arrays.asList("Ghost", "9001", "张伟", "not a date"));
+        withRejects.add(200, Arrays.asList("Acme", "9002", "", "2024-03-21"));
+        withRejects.add(Arrays.asList("Ghost", "9003", "李娜", "32/13/2024"));
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), withRejects);
+
+        String expected;
+        try (TestPipeline pipeline = new TestPipeline()) {
+            expected = new String(pipeline.convertInMemory(expectedInput), StandardCharsets.UTF_8);
+        }
+        assertThat(expected).doesNotContain("Ghost");
+        for (Consumer<AppConfig> parallel : parallelModes()) {
+            try (TestPipeline pipeline = new TestPipeline(lenient(parallel))) {
+                assertThat(new String(pipeline.convertInMemory(input), StandardCharsets.UTF_8)).isEqualTo(expected);
+                assertThat(new String(pipeline.convertStreaming(input), StandardCharsets.UTF_8)).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void allRejectedGivesEmptyDocument() throws Exception {
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), Arrays.asList(
+            Arrays.asList("Acme", "1", "张伟", "not a date"),
+            Arrays.asList("Globex", "2", "John Smith", "2024-13-01")));
+        for (Consumer<AppConfig> parallel : parallelModes()) {
+            try (TestPipeline pipeline = new TestPipeline(lenient(parallel))) {
+                assertThat(new String(pipeline.convertInMemory(input), StandardCharsets.UTF_8)).isEqualTo(EMPTY_DOCUMENT);
+                assertThat(new String(pipeline.convertStreaming(input), StandardCharsets.UTF_8)).isEqualTo(EMPTY_DOCUMENT);
+            }
+        }
+    }
+
+    @Test
+    void rejectedOnlyCompanyHasNoShard() throws Exception {
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), Arrays.asList(
+            Arrays.asList("Ghost", "1", "张伟", "not a date"),
+            Arrays.asList("Acme", "2", "John Smith", "2024-03-21")));
+        for (boolean streaming : new boolean[] {false, true}) {
+            try (TestPipeline pipeline = new TestPipeline(lenient(config -> config.getOutput().setSharded(true)))) {
+                List<File> shards = pipeline.convertShards(input, streaming);
+                try {
+                    assertThat(shards).hasSize(1);
+                    assertThat(shards.get(0).getName()).contains("Acme").doesNotContain("Ghost");
+                } finally {
+                    for (File shard : shards) {
+                        Files.delete(shard.toPath());
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<Consumer<AppConfig>> parallelModes() {
+        return Arrays.asList(
+            config -> { },
+            config -> {
+                config.getParallel().setWorkers(3);
+                config.getParallel().setChunkSize(2);
+            });
+    }
+
+    private static Consumer<AppConfig> lenient(Consumer<AppConfig> configure) {
+        return config -> {
+            config.getValidation().setLenient(true);
+            configure.accept(config);
+        };
+    }
+}
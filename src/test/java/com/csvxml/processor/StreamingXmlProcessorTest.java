@@ -0,0 +1,90 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 流式转换与内存中转换的输出必须逐字节相同
+ */
+class StreamingXmlProcessorTest {
+    private static final Pattern COMPANY = Pattern.compile("<Company>(.*?)</Company>");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void streamingMatchesInMemory() throws Exception {
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), TestPipeline.rows(2_000, 1L));
+        assertSameOutput(input, config -> { });
+    }
+
+    @Test
+    void parallelStreamingMatchesInMemory() throws Exception {
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), TestPipeline.rows(2_000, 2L));
+        assertSameOutput(input, config -> {
+            config.getParallel().setWorkers(4);
+            config.getParallel().setChunkSize(97);
+        });
+    }
+
+    @Test
+    void evictedBucketsKeepOutput() throws Exception {
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), TestPipeline.rows(500, 3L));
+        assertSameOutput(input, config -> config.getOutput().setMaxOpenShards(2));
+    }
+
+    @Test
+    void companiesFollowGroupingByOrder() throws Exception {
+        List<List<String>> rows = TestPipeline.rows(300, 4L);
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), rows);
+        List<String> expected = new ArrayList<>(rows.stream()
+            .collect(Collectors.groupingBy(row -> row.get(0))).keySet());
+
+        try (TestPipeline pipeline = new TestPipeline()) {
+            assertThat(companies(pipeline.convertStreaming(input))).isEqualTo(expected);
+            assertThat(companies(pipeline.convertInMemory(input))).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void emptyFileFails() throws Exception {
+        Path input = TestPipeline.writeCsv(dir.resolve("empty.csv"), new ArrayList<>());
+        try (TestPipeline pipeline = new TestPipeline()) {
+            assertThatThrownBy(() -> pipeline.convertStreaming(input))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Empty CSV file");
+        }
+    }
+
+    private static void assertSameOutput(Path input, Consumer<AppConfig> configure) throws Exception {
+        byte[] expected;
+        try (TestPipeline pipeline = new TestPipeline()) {
+            expected = pipeline.convertInMemory(input);
+        }
+        try (TestPipeline pipeline = new TestPipeline(configure)) {
+            assertThat(new String(pipeline.convertStreaming(input), StandardCharsets.UTF_8))
+                .isEqualTo(new String(expected, StandardCharsets.UTF_8));
+        }
+    }
+
+    static List<String> companies(byte[] document) {
+        List<String> companies = new ArrayList<>();
+        Matcher matcher = COMPANY.matcher(new String(document, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            companies.add(matcher.group(1));
+        }
+        return companies;
+    }
+}
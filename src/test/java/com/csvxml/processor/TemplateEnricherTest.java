@@ -0,0 +1,35 @@
+package com.csvxml.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 并行渲染按公司顺序与块顺序拼接，输出必须与串行渲染相同
+ */
+class TemplateEnricherTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parallelMatchesSerial() throws Exception {
+        Path input = TestPipeline.writeCsv(dir.resolve("profiles.csv"), TestPipeline.rows(3_000, 5L));
+        String serial = convert(input, 1, 10_000);
+        for (int chunkSize : new int[] {1, 7, 250, 10_000}) {
+            assertThat(convert(input, 4, chunkSize)).as("chunk-size %d", chunkSize).isEqualTo(serial);
+        }
+    }
+
+    private static String convert(Path input, int workers, int chunkSize) throws Exception {
+        try (TestPipeline pipeline = new TestPipeline(config -> {
+            config.getParallel().setWorkers(workers);
+            config.getParallel().setChunkSize(chunkSize);
+        })) {
+            return new String(pipeline.convertInMemory(input), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.csvxml.processor;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.config.ExecutorConfig;
+import com.csvxml.converter.CsvRecordConverterImpl;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.metrics.PipelineMetrics;
+import com.csvxml.service.CheckpointStore;
+import com.csvxml.service.DateParser;
+import com.csvxml.service.NameProcessor;
+import com.csvxml.service.OutputFileWriter;
+import com.csvxml.service.RowQuarantine;
+import com.csvxml.xml.CompiledXmlTemplateProcessor;
+import com.csvxml.xml.TemplateRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.spi.Synchronization;
+import org.apache.camel.support.DefaultExchange;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * 不启动Spring容器，按给定配置手工组装各处理器，与路由中的处理顺序相同
+ */
+final class TestPipeline implements AutoCloseable {
+    // "Aa" 与 "BB" 的哈希值相同，检查冲突时的公司顺序
+    static final String[] COMPANIES = {"Aa", "BB", "Acme", "腾讯", "Globex", "Initech", "Umbrella", "Hooli"};
+    private static final String[] NAMES = {"张伟", "王秀英", "John Smith", "Mary O'Neil", "李娜", "Robert Brown"};
+    private static final String[] DATES = {"2024-03-21", "21/03/2024", "Mar 21, 2024", "03/21/2024", "1999-12-31", "02/29/2020"};
+
+    final AppConfig appConfig = new AppConfig();
+    final CamelContext camelContext = new DefaultCamelContext();
+    final PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+    final ExecutorService renderExecutor;
+    final ExecutorService compressExecutor = ExecutorConfig.newCompressExecutor();
+    final RowQuarantine quarantine;
+    final RecordMapping mapping;
+    final StrictColumnValidator columnValidator;
+    final CsvRecordConverterImpl recordConverter;
+    final FusedCsvConverter fusedConverter;
+    final OutputFileWriter outputFileWriter;
+    final TemplateEnricher templateEnricher;
+    final CheckpointStore checkpointStore;
+    final StreamingXmlProcessor streamingXmlProcessor;
+
+    TestPipeline() {
+        this(config -> { });
+    }
+
+    TestPipeline(Consumer<AppConfig> configure) {
+        configure.accept(appConfig);
+        renderExecutor = new ExecutorConfig().renderExecutor(appConfig);
+        quarantine = new RowQuarantine(appConfig, metrics);
+        mapping = new RecordMapping(appConfig, new NameProcessor(), new DateParser());
+        columnValidator = new StrictColumnValidator(quarantine, mapping);
+        recordConverter = new CsvRecordConverterImpl(quarantine, mapping);
+        fusedConverter = new FusedCsvConverter(quarantine, mapping, appConfig);
+        outputFileWriter = new OutputFileWriter(appConfig, compressExecutor);
+        templateEnricher = new TemplateEnricher(new TemplateRegistry(new CompiledXmlTemplateProcessor(), mapping, appConfig),
+            mapping, appConfig, renderExecutor, outputFileWriter);
+        checkpointStore = new CheckpointStore(appConfig);
+        streamingXmlProcessor = new StreamingXmlProcessor(appConfig, templateEnricher, renderExecutor,
+            outputFileWriter, quarantine, checkpointStore, mapping);
+    }
+
+    /**
+     * 按固定种子生成公司、中英文姓名与四种日期格式混合的行
+     */
+    static List<List<String>> rows(int count, long seed) {
+        Random random = new Random(seed);
+        List<List<String>> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(Arrays.asList(COMPANIES[random.nextInt(COMPANIES.length)], String.valueOf(i + 1),
+                NAMES[random.nextInt(NAMES.length)], DATES[random.nextInt(DATES.length)]));
+        }
+        return rows;
+    }
+
+    /**
+     * 把行写为CSV文件，含逗号或引号的值加引号
+     */
+    static Path writeCsv(Path file, List<List<String>> rows) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (List<String> row : rows) {
+            for (int c = 0; c < row.size(); c++) {
+                if (c > 0) {
+                    csv.append(',');
+                }
+                String value = row.get(c);
+                if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0) {
+                    csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+                } else {
+                    csv.append(value);
+                }
+            }
+            csv.append("\r\n");
+        }
+        return Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 与文件端点相同的交换：body 为输入文件，消息头为文件名
+     */
+    Exchange exchange(Path input) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setHeader(Exchange.FILE_NAME, input.getFileName().toString());
+        exchange.setProperty(Exchange.CHARSET_NAME, StandardCharsets.UTF_8.name());
+        exchange.getIn().setBody(input.toFile());
+        return exchange;
+    }
+
+    /**
+     * 单遍转换后在内存中渲染，返回生成的文档
+     */
+    byte[] convertInMemory(Path input) throws Exception {
+        Exchange exchange = exchange(input);
+        try {
+            fusedConverter.process(exchange);
+            templateEnricher.process(exchange);
+            return body(exchange);
+        } finally {
+            complete(exchange);
+        }
+    }
+
+    /**
+     * 依次执行列数校验与记录转换处理器，rows 为 unmarshal 的结果
+     */
+    byte[] convertList(Path input, List<List<String>> rows) throws Exception {
+        Exchange exchange = exchange(input);
+        exchange.getIn().setBody(rows);
+        try {
+            columnValidator.process(exchange);
+            recordConverter.process(exchange);
+            templateEnricher.process(exchange);
+            return body(exchange);
+        } finally {
+            complete(exchange);
+        }
+    }
+
+    /**
+     * 流式转换，返回合并后的文档
+     */
+    byte[] convertStreaming(Path input) throws Exception {
+        return convertStreaming(input, null);
+    }
+
+    /**
+     * 带断点键的流式转换，与 {@link CheckpointGate} 之后的处理相同
+     */
+    byte[] convertStreaming(Path input, String checkpointKey) throws Exception {
+        Exchange exchange = exchange(input);
+        exchange.setProperty(CheckpointGate.KEY, checkpointKey);
+        try {
+            streamingXmlProcessor.process(exchange);
+            return body(exchange);
+        } finally {
+            // 删除流式模式的临时目录
+            complete(exchange);
+        }
+    }
+
+    /**
+     * 分片模式下的转换，返回按公司顺序排列的分片文件
+     */
+    @SuppressWarnings("unchecked")
+    List<File> convertShards(Path input, boolean streaming) throws Exception {
+        Exchange exchange = exchange(input);
+        try {
+            if (streaming) {
+                streamingXmlProcessor.process(exchange);
+            } else {
+                fusedConverter.process(exchange);
+                templateEnricher.process(exchange);
+            }
+            return exchange.getIn().getBody(List.class);
+        } finally {
+            complete(exchange);
+        }
+    }
+
+    /**
+     * 触发交换完成回调，例如关闭拒绝记录与清理临时目录
+     */
+    void complete(Exchange exchange) {
+        List<Synchronization> completions = exchange.adapt(ExtendedExchange.class).handoverCompletions();
+        if (completions != null) {
+            completions.forEach(synchronization -> synchronization.onComplete(exchange));
+        }
+    }
+
+    static byte[] body(Exchange exchange) throws IOException {
+        Object body = exchange.getIn().getBody();
+        if (body instanceof File) {
+            return Files.readAllBytes(((File) body).toPath());
+        }
+        try (InputStream in = exchange.getIn().getBody(InputStream.class)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public void close() {
+        renderExecutor.shutdownNow();
+        compressExecutor.shutdownNow();
+        camelContext.stop();
+    }
+}
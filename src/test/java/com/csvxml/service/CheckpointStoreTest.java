@@ -0,0 +1,86 @@
+package com.csvxml.service;
+
+import com.csvxml.config.AppConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CheckpointStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void completedFilesSurviveRestart() throws Exception {
+        CheckpointStore store = load();
+        store.complete("k1", "a b.csv", 10, 1000);
+        store.complete("k2", "c.csv", 20, 2000);
+
+        CheckpointStore restarted = load();
+        assertThat(restarted.isCompleted("k1")).isTrue();
+        assertThat(restarted.isCompleted("a b.csv", 10, 1000)).isTrue();
+        assertThat(restarted.isCompleted("c.csv", 20, 2000)).isTrue();
+        assertThat(restarted.isCompleted("c.csv", 20, 2001)).isFalse();
+        assertThat(restarted.isCompleted("k3")).isFalse();
+    }
+
+    @Test
+    void malformedLinesAreSkipped() throws Exception {
+        CheckpointStore store = load();
+        store.complete("k1", "a.csv", 10, 1000);
+        // 进程在追加时中断留下的不完整行，以及被改坏的数字
+        Files.write(dir.resolve("completed.log"), "k2 20 x c.csv\n\nk3 30\nk4 4".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+
+        CheckpointStore restarted = load();
+        assertThat(restarted.isCompleted("k1")).isTrue();
+        assertThat(restarted.isCompleted("a.csv", 10, 1000)).isTrue();
+        assertThat(restarted.isCompleted("k2")).isFalse();
+        assertThat(restarted.isCompleted("k3")).isFalse();
+        assertThat(restarted.isCompleted("k4")).isFalse();
+    }
+
+    @Test
+    void bucketStateRoundTrip() throws Exception {
+        CheckpointStore store = load();
+        CheckpointStore.State state = new CheckpointStore.State(300, 12345, true);
+        state.addBucket("Acme", 100);
+        state.addBucket("腾讯 = a:b", 200);
+        store.save("k1", state);
+
+        CheckpointStore.State loaded = store.load("k1");
+        assertThat(loaded.getRows()).isEqualTo(300);
+        assertThat(loaded.getOffset()).isEqualTo(12345);
+        assertThat(loaded.isByteOffset()).isTrue();
+        assertThat(loaded.getCompanies()).containsExactly("Acme", "腾讯 = a:b");
+        assertThat(loaded.getLengths()).containsExactly(100L, 200L);
+
+        store.complete("k1", "a.csv", 10, 1000);
+        assertThat(store.load("k1")).isNull();
+    }
+
+    @Test
+    void malformedStateStartsOver() throws Exception {
+        CheckpointStore store = load();
+        Path workDir = store.workDir("k1");
+        Files.write(workDir.resolve("state.properties"), "rows=300\noffset=\nbuckets=1\n".getBytes(StandardCharsets.ISO_8859_1));
+        assertThat(store.load("k1")).isNull();
+
+        Files.write(workDir.resolve("state.properties"), "rows=300\noffset=5\nbuckets=1\n".getBytes(StandardCharsets.ISO_8859_1));
+        assertThat(store.load("k1")).isNull();
+    }
+
+    private CheckpointStore load() throws Exception {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getCheckpoint().setEnabled(true);
+        appConfig.getCheckpoint().setDir(dir.toString());
+        CheckpointStore store = new CheckpointStore(appConfig);
+        store.load();
+        return store;
+    }
+}
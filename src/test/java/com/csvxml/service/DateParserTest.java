@@ -0,0 +1,131 @@
+package com.csvxml.service;
+
+import com.csvxml.util.TransformException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 与原 SimpleDateFormat 实现逐个比较解析结果
+ */
+class DateParserTest {
+    private static final List<String> LEGACY_FORMATS = Arrays.asList("yyyy-MM-dd", "dd/MM/yyyy", "MMM dd, yyyy", "MM/dd/yyyy");
+    private static final List<String> SAMPLES = Arrays.asList(
+        "2024-03-21", "21/03/2024", "Mar 21, 2024", "03/21/2024", "12/11/2024", "13/12/2024", "02/29/2020",
+        "Mar  21, 2024", "0003/01/2024", "001/02/2024", "01/002/2024", "2024-3-5", " 2024-03-21", "2024-03-21T10:00",
+        "1899-12-31", "1900-01-01", "1850-06-15", "1582-10-04", "1582-10-15", "1500-03-01", "0001-01-01",
+        "2023-02-29", "31/04/2024", "30/02/2024", "2024/03/21", "March 21, 2024", "mar 21, 2024", "", "abc", "21.03.2024");
+
+    @ParameterizedTest
+    @ValueSource(strings = {"UTC", "Asia/Shanghai", "America/New_York", "Europe/Amsterdam", "America/Sao_Paulo"})
+    void matchesLegacyParser(String zoneId) {
+        ZoneId zone = ZoneId.of(zoneId);
+        DateParser parser = new DateParser(zone);
+        List<String> inputs = new ArrayList<>(SAMPLES);
+        inputs.addAll(randomDates(2_000, zoneId.hashCode()));
+        List<String> mismatches = new ArrayList<>();
+        for (String input : inputs) {
+            Instant expected = legacyParse(input, TimeZone.getTimeZone(zone));
+            Instant actual = parse(parser, input);
+            if (expected != null && isJulianLeapDay(expected, zone)) {
+                continue;
+            }
+            if (expected == null ? actual != null : !expected.equals(actual)) {
+                mismatches.add(input + ": " + expected + " != " + actual);
+            }
+        }
+        assertThat(mismatches).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1500-02-29", "29/02/1300"})
+    void julianOnlyLeapDaysAreRejected(String input) {
+        assertThat(legacyParse(input, TimeZone.getTimeZone("UTC"))).isNotNull();
+        assertThatThrownBy(() -> new DateParser(ZoneId.of("UTC")).parse(input)).isInstanceOf(TransformException.class);
+    }
+
+    /**
+     * 生成四种格式的日期，字段的位数、补零与空白随机变化
+     */
+    private static List<String> randomDates(int count, long seed) {
+        Random random = new Random(seed);
+        String[] months = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+        int[] years = {1, 3, 1300, 1582, 1600, 1800, 1899, 1900, 1970, 2000, 2024, 9999};
+        List<String> dates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String year = pad(years[random.nextInt(years.length)], random);
+            String month = pad(random.nextInt(14), random);
+            String day = pad(random.nextInt(33), random);
+            switch (random.nextInt(4)) {
+                case 0:
+                    dates.add(year + "-" + month + "-" + day);
+                    break;
+                case 1:
+                    dates.add(day + "/" + month + "/" + year);
+                    break;
+                case 2:
+                    dates.add(months[random.nextInt(months.length)] + (random.nextBoolean() ? " " : "  ") + day + ", " + year);
+                    break;
+                default:
+                    dates.add(month + "/" + day + "/" + year);
+                    break;
+            }
+        }
+        return dates;
+    }
+
+    private static String pad(int value, Random random) {
+        StringBuilder padded = new StringBuilder();
+        for (int zeros = random.nextInt(4) == 0 ? random.nextInt(3) + 1 : 0; zeros > 0; zeros--) {
+            padded.append('0');
+        }
+        return padded.append(value).toString();
+    }
+
+    private static boolean isJulianLeapDay(Instant instant, ZoneId zone) {
+        GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone(zone));
+        calendar.setTimeInMillis(instant.toEpochMilli());
+        int year = calendar.get(Calendar.YEAR);
+        return calendar.get(Calendar.MONTH) == Calendar.FEBRUARY
+            && calendar.get(Calendar.DAY_OF_MONTH) == 29 && !LocalDate.of(year, 1, 1).isLeapYear();
+    }
+
+    private static Instant parse(DateParser parser, String input) {
+        try {
+            return parser.parse(input);
+        } catch (TransformException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 原实现，时区作为参数传入
+     */
+    private static Instant legacyParse(String rawDate, TimeZone timeZone) {
+        for (String format : LEGACY_FORMATS) {
+            try {
+                SimpleDateFormat sdf = new SimpleDateFormat(format);
+                sdf.setLenient(false);
+                sdf.setTimeZone(timeZone);
+                return sdf.parse(rawDate).toInstant();
+            } catch (ParseException ignored) {
+                // 继续尝试下一个格式
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.csvxml.service;
+
+import com.csvxml.model.NameParts;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 与原 trim().split("\\s+") 实现逐个比较拆分结果与错误信息
+ */
+class NameProcessorTest {
+    private static final Pattern LEGACY_CHINESE = Pattern.compile("[\u4e00-\u9fa5]+");
+    private static final char[] ALPHABET = {'a', 'B', ' ', ' ', '\t', '\n', '\r', '\f', '\u000B', '\u0001', '\u00A0',
+        '\u3000', '张', '伟', '\u9fa6', '-', '\''};
+
+    private final NameProcessor processor = new NameProcessor();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        // 单个词
+        "John", "  John  ", "张",
+        // 首尾空白
+        " John Smith", "John Smith ", "\t John Smith \r\n", "\u0001John Smith\u001f",
+        // 制表符与多个空白
+        "John\tSmith", "John \t \n Smith", "John    Smith", "Mary  Ann   O'Neil",
+        "John\u000BSmith", "John\fSmith", "John\u0001Smith", "John\u00A0Smith", "John\u3000Smith",
+        // 空值与只有空白
+        "", " ", "\t\t", "\u0001",
+        // 不含空白的中文名
+        "张伟", "欧阳娜娜", "张 伟", " 张伟", "张伟a", "\u9fa6\u9fa6", "\u9fa5\u9fa5"
+    })
+    void matchesLegacySplit(String fullName) {
+        assertThat(parse(fullName)).isEqualTo(legacyParse(fullName));
+    }
+
+    @Test
+    void randomNamesMatchLegacySplit() {
+        Random random = new Random(6L);
+        List<String> mismatches = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            char[] name = new char[random.nextInt(8)];
+            for (int c = 0; c < name.length; c++) {
+                name[c] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            String fullName = new String(name);
+            String expected = legacyParse(fullName);
+            String actual = parse(fullName);
+            if (!expected.equals(actual)) {
+                mismatches.add(fullName.replace("\n", "\\n") + ": " + expected + " != " + actual);
+            }
+        }
+        assertThat(mismatches).isEmpty();
+    }
+
+    private String parse(String fullName) {
+        try {
+            NameParts parts = processor.parse(fullName);
+            return parts.getGiven() + "|" + parts.getSurname();
+        } catch (IllegalArgumentException e) {
+            return "error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * 最初提交的实现
+     */
+    private static String legacyParse(String fullName) {
+        if (LEGACY_CHINESE.matcher(fullName).matches()) {
+            if (fullName.length() < 2) {
+                return "error: Invalid Chinese name length";
+            }
+            return fullName.substring(1) + "|" + fullName.substring(0, 1);
+        }
+        String[] parts = fullName.trim().split("\\s+");
+        if (parts.length < 2) {
+            return "error: Western name must contain both given name and surname";
+        }
+        return parts[0] + "|" + parts[parts.length - 1];
+    }
+}
@@ -0,0 +1,189 @@
+package com.csvxml.service;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.config.ExecutorConfig;
+import com.csvxml.metrics.PipelineMetrics;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 分片文件的命名、压缩输出与转换失败时的清理
+ */
+class OutputFileWriterTest {
+    private static final String INPUT = "shard-test.csv";
+
+    private final CamelContext camelContext = new DefaultCamelContext();
+    private final ExecutorService compressExecutor = ExecutorConfig.newCompressExecutor();
+    private final AppConfig appConfig = new AppConfig();
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        for (Path file : outputFiles()) {
+            Files.delete(file);
+        }
+        compressExecutor.shutdownNow();
+        camelContext.stop();
+    }
+
+    @Test
+    void shardNamesAreSanitizedAndUnique() throws Exception {
+        OutputFileWriter.Shards shards = writer().shards(exchange());
+        String longName = String.join("", Collections.nCopies(15, "Company123"));
+        List<String> companies = Arrays.asList("Acme", "a/b", "a:b", "腾讯 科技", "", " ", "x.y-z_1", longName);
+        List<String> names = new ArrayList<>();
+        for (String company : companies) {
+            names.add(companyPart(shards.target(company).getFileName().toString()));
+        }
+        assertThat(names).containsExactly("Acme", "a_b", "a_b_2", "腾讯_科技", "_", "__2", "x.y-z_1",
+            longName.substring(0, 100));
+    }
+
+    @Test
+    void compressedShardsEndWithGz() throws Exception {
+        appConfig.getOutput().setCompression("gzip");
+        Path target = writer().shards(exchange()).target("Acme");
+        assertThat(target.getFileName().toString()).matches("shard-test_Acme_\\d{14}\\.xml\\.gz");
+    }
+
+    @Test
+    void finishListsShardsInCompanyOrder() throws Exception {
+        OutputFileWriter.Shards shards = writer().shards(exchange());
+        Path first = shards.target("Acme");
+        Path second = shards.target("Globex");
+        shards.write(second, out -> out.write("<b/>".getBytes(StandardCharsets.UTF_8)));
+        shards.write(first, out -> out.write("<a/>".getBytes(StandardCharsets.UTF_8)));
+        Exchange exchange = exchange();
+        shards.finish(exchange);
+
+        assertThat(exchange.getIn().getBody(List.class).toArray()).containsExactly(first.toFile(), second.toFile());
+        assertThat(exchange.getProperty(PipelineMetrics.OUTPUT_BYTES, Long.class)).isEqualTo(8L);
+        assertThat(shards.size()).isEqualTo(2);
+        assertThat(new String(Files.readAllBytes(first), StandardCharsets.UTF_8)).isEqualTo("<a/>");
+    }
+
+    @Test
+    void discardDeletesWrittenAndLaterShards() throws Exception {
+        OutputFileWriter.Shards shards = writer().shards(exchange());
+        Path first = shards.target("Acme");
+        Path late = shards.target("Globex");
+        shards.write(first, out -> out.write("<a/>".getBytes(StandardCharsets.UTF_8)));
+        assertThat(first).exists();
+
+        shards.discard();
+        assertThat(first).doesNotExist();
+        // 取消后仍在运行的任务写完的分片同样删除
+        shards.write(late, out -> out.write("<b/>".getBytes(StandardCharsets.UTF_8)));
+        assertThat(late).doesNotExist();
+
+        Exchange exchange = exchange();
+        shards.finish(exchange);
+        assertThat(exchange.getIn().getBody(List.class).toArray()).isEmpty();
+        assertThat(outputFiles()).isEmpty();
+    }
+
+    @Test
+    void failedShardLeavesNoTempFile() throws Exception {
+        OutputFileWriter.Shards shards = writer().shards(exchange());
+        Path target = shards.target("Acme");
+        try {
+            shards.write(target, out -> {
+                out.write("<a>".getBytes(StandardCharsets.UTF_8));
+                throw new IllegalStateException("render failed");
+            });
+        } catch (IllegalStateException expected) {
+            // 写出失败
+        }
+        assertThat(outputFiles()).isEmpty();
+    }
+
+    @Test
+    void compressedShardDecompressesToWrittenBytes() throws Exception {
+        appConfig.getOutput().setCompression("gzip");
+        OutputFileWriter.Shards shards = writer().shards(exchange());
+        Path target = shards.target("Acme");
+        byte[] content = content(300 * 1024);
+        shards.write(target, out -> out.write(content));
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(target))) {
+            assertThat(in).hasBinaryContent(content);
+        }
+    }
+
+    @Test
+    void failedCompressedShardLeavesNoTempFile() throws Exception {
+        appConfig.getOutput().setCompression("gzip");
+        OutputFileWriter writer = writer();
+        OutputFileWriter.Shards shards = writer.shards(exchange());
+        Path target = shards.target("Acme");
+        // 失败前已有多块交给压缩线程
+        assertThatThrownBy(() -> shards.write(target, out -> {
+            out.write(content(300 * 1024));
+            throw new IllegalStateException("render failed");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(outputFiles()).isEmpty();
+
+        // 压缩线程已结束，之后的文件照常写出
+        Path next = shards.target("Globex");
+        shards.write(next, out -> out.write("<b/>".getBytes(StandardCharsets.UTF_8)));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(next))) {
+            assertThat(in).hasContent("<b/>");
+        }
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private OutputFileWriter writer() {
+        return new OutputFileWriter(appConfig, compressExecutor);
+    }
+
+    private Exchange exchange() {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setHeader(Exchange.FILE_NAME, INPUT);
+        return exchange;
+    }
+
+    /**
+     * 去掉文件名中的输入文件名与时间戳，留下公司部分
+     */
+    private static String companyPart(String fileName) {
+        assertThat(fileName).matches("shard-test_.*_\\d{14}\\.xml");
+        return fileName.substring("shard-test_".length(), fileName.length() - "_yyyyMMddHHmmss.xml".length());
+    }
+
+    private static List<Path> outputFiles() throws IOException {
+        Path dir = Paths.get(AppConfig.OUTPUT_DIR);
+        if (!Files.exists(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().contains("shard-test_"))
+                .collect(Collectors.toList());
+        }
+    }
+}
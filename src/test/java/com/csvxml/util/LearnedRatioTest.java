@@ -0,0 +1,72 @@
+package com.csvxml.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 学习的比值按指数加权平均更新，观测值截断到上下限，预分配的容量不为零也不会过大
+ */
+class LearnedRatioTest {
+    @Test
+    void firstObservationReplacesInitialValue() {
+        LearnedRatio ratio = new LearnedRatio(40, 10, 2560);
+        assertThat(ratio.get()).isEqualTo(40.0);
+        ratio.record(8_000, 100);
+        assertThat(ratio.get()).isEqualTo(80.0);
+        // 之后的观测值按 1/4 的权重计入
+        ratio.record(16_000, 100);
+        assertThat(ratio.get()).isEqualTo(100.0);
+    }
+
+    @Test
+    void nonPositiveObservationsAreIgnored() {
+        LearnedRatio ratio = new LearnedRatio(40, 10, 2560);
+        ratio.record(0, 100);
+        ratio.record(100, 0);
+        ratio.record(-1, 10);
+        assertThat(ratio.get()).isEqualTo(40.0);
+    }
+
+    @Test
+    void tinyRatioIsClampedToMinimum() {
+        // 每行只有一个字节的文件：未截断时下一个1GB文件将预分配约10亿行
+        LearnedRatio ratio = new LearnedRatio(40, 10, 2560);
+        ratio.record(1_000_000, 1_000_000);
+        assertThat(ratio.get()).isEqualTo(10.0);
+        assertThat(ratio.divide(1L << 30)).isEqualTo((int) ((1L << 30) / 10.0 * 1.125));
+    }
+
+    @Test
+    void hugeRatioIsClampedToMaximum() {
+        // 只有一行 100MB 的值：未截断时每个Profile按 100MB 预分配
+        LearnedRatio ratio = new LearnedRatio(320, 80, 5120);
+        ratio.record(100L * 1024 * 1024, 1);
+        assertThat(ratio.get()).isEqualTo(5120.0);
+        assertThat(ratio.multiply(1000)).isEqualTo((int) (1000 * 5120 * 1.125));
+        // 之后正常的文件使比值逐步回落
+        for (int i = 0; i < 50; i++) {
+            ratio.record(320_000, 1000);
+        }
+        assertThat(ratio.get()).isCloseTo(320.0, within(1.0));
+    }
+
+    @Test
+    void capacityIsPositiveAndBounded() {
+        LearnedRatio ratio = new LearnedRatio(320, 80, 5120);
+        ratio.record(Long.MAX_VALUE, 1);
+        assertThat(ratio.multiply(1)).isPositive();
+        assertThat(ratio.multiply(Long.MAX_VALUE / 8192)).isEqualTo(Integer.MAX_VALUE - 8);
+        assertThat(ratio.divide(1)).isZero();
+        assertThat(ratio.multiply(0)).isZero();
+    }
+
+    @Test
+    void boundsMustContainInitialValue() {
+        assertThatThrownBy(() -> new LearnedRatio(40, 50, 100)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LearnedRatio(40, 0, 100)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new LearnedRatio(400, 10, 100)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,80 @@
+package com.csvxml.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderedTaskWindowTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void resultsFollowSubmissionOrder() throws Exception {
+        List<Integer> results = new ArrayList<>();
+        OrderedTaskWindow<Integer> window = new OrderedTaskWindow<>(executor, 8, results::add);
+        Random random = new Random(1);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int value = i;
+            long delay = random.nextInt(3);
+            // 准备好的结果与并行任务交错提交
+            if (i % 10 == 0) {
+                window.add(-value);
+                expected.add(-value);
+            }
+            window.submit(() -> {
+                TimeUnit.MILLISECONDS.sleep(delay);
+                return value;
+            });
+            expected.add(value);
+        }
+        window.drainAll();
+        assertThat(results).isEqualTo(expected);
+    }
+
+    @Test
+    void inFlightTasksAreBounded() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        OrderedTaskWindow<Integer> window = new OrderedTaskWindow<>(executor, 2, result -> { });
+        for (int i = 0; i < 50; i++) {
+            window.submit(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                TimeUnit.MILLISECONDS.sleep(1);
+                running.decrementAndGet();
+                return 0;
+            });
+        }
+        window.drainAll();
+        // 提交线程在第三个任务提交后才等待最早的任务
+        assertThat(peak.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void taskFailureIsRethrownInOrder() throws Exception {
+        List<Integer> results = new ArrayList<>();
+        OrderedTaskWindow<Integer> window = new OrderedTaskWindow<>(executor, 4, results::add);
+        window.submit(() -> 1);
+        window.submit(() -> {
+            throw new IOException("broken");
+        });
+        window.submit(() -> 3);
+        assertThatThrownBy(window::drainAll).isInstanceOf(IOException.class).hasMessage("broken");
+        assertThat(results).containsExactly(1);
+        window.cancelAll();
+    }
+}
@@ -0,0 +1,176 @@
+package com.csvxml.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 解压后与写入的数据逐字节相同，包括恰好写满一块、跨越多块与逐字节写入；
+ * 下层输出流失败时写入线程不再阻塞，下一次写入或 finish 抛出该异常
+ */
+class PipelinedGzipOutputStreamTest {
+    private static final int BLOCK_SIZE = 16;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void roundTripAcrossBlockBoundaries() throws Exception {
+        // 空、不满一块、恰好一块与三块（写入线程、压缩线程与队列各一块）、多于三块
+        for (int length : new int[] {0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 3 * BLOCK_SIZE,
+                3 * BLOCK_SIZE + 1, 4 * BLOCK_SIZE, 1000}) {
+            byte[] data = random(length);
+            TrackingOutputStream target = new TrackingOutputStream();
+            PipelinedGzipOutputStream out = new PipelinedGzipOutputStream(target, 6, BLOCK_SIZE, executor);
+            writeInChunks(out, data, new Random(length));
+            out.finish();
+
+            assertThat(gunzip(target.toByteArray())).as("length %d", length).isEqualTo(data);
+            // finish 不关闭下层输出流，close 关闭
+            assertThat(target.closed).isFalse();
+            out.close();
+            assertThat(target.closed).isTrue();
+        }
+    }
+
+    @Test
+    void singleByteWrites() throws Exception {
+        byte[] data = random(5 * BLOCK_SIZE + 3);
+        TrackingOutputStream target = new TrackingOutputStream();
+        try (PipelinedGzipOutputStream out = new PipelinedGzipOutputStream(target, 1, BLOCK_SIZE, executor)) {
+            for (byte b : data) {
+                out.write(b);
+            }
+        }
+        assertThat(gunzip(target.toByteArray())).isEqualTo(data);
+        assertThat(target.closed).isTrue();
+    }
+
+    @Test
+    void writeAfterFinishFails() throws Exception {
+        TrackingOutputStream target = new TrackingOutputStream();
+        PipelinedGzipOutputStream out = new PipelinedGzipOutputStream(target, 6, BLOCK_SIZE, executor);
+        out.write(random(BLOCK_SIZE));
+        out.finish();
+        // 重复 finish 不再写出
+        int length = target.size();
+        out.finish();
+        assertThat(target.size()).isEqualTo(length);
+
+        assertThatThrownBy(() -> out.write(1)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> out.write(new byte[1])).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void targetFailureFailsWriter() {
+        FailingOutputStream target = new FailingOutputStream(BLOCK_SIZE);
+        PipelinedGzipOutputStream out = new PipelinedGzipOutputStream(target, 0, BLOCK_SIZE, executor);
+        // 压缩线程失败后不再取块，写入线程取到 FAILED 后抛出压缩线程的异常，不会一直阻塞。
+        // Deflater 内部缓冲约 64KB 后才写出，写入的数据需多于此
+        byte[] block = random(BLOCK_SIZE);
+        assertThatThrownBy(() -> {
+            for (int i = 0; i < 1_000_000 / BLOCK_SIZE; i++) {
+                out.write(block);
+            }
+        }).isInstanceOf(IOException.class).hasMessage("disk full");
+        assertThatThrownBy(() -> out.write(1)).isInstanceOf(IOException.class).hasMessage("Stream finished");
+        // 异常已由写入抛出，close 只关闭下层输出流
+        assertThatCode(out::close).doesNotThrowAnyException();
+        assertThat(target.closed).isTrue();
+    }
+
+    @Test
+    void targetFailureWhileFinishingFailsFinish() {
+        // 数据不满一块，下层输出流在写出 gzip 尾部时失败
+        FailingOutputStream target = new FailingOutputStream(0);
+        PipelinedGzipOutputStream out = new PipelinedGzipOutputStream(target, 6, BLOCK_SIZE, executor);
+        assertThatThrownBy(() -> {
+            out.write(new byte[] {1, 2, 3});
+            out.finish();
+        }).isInstanceOf(IOException.class).hasMessage("disk full");
+    }
+
+    private static void writeInChunks(OutputStream out, byte[] data, Random random) throws IOException {
+        int offset = 0;
+        while (offset < data.length) {
+            int length = Math.min(data.length - offset, random.nextInt(3 * BLOCK_SIZE) + 1);
+            out.write(data, offset, length);
+            offset += length;
+        }
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[256];
+            for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static final class TrackingOutputStream extends ByteArrayOutputStream {
+        volatile boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * 写出 limit 字节后失败，模拟磁盘已满
+     */
+    private static final class FailingOutputStream extends OutputStream {
+        private final int limit;
+        private int written;
+        volatile boolean closed;
+
+        FailingOutputStream(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (written + len > limit) {
+                throw new IOException("disk full");
+            }
+            written += len;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
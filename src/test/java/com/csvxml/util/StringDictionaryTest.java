@@ -0,0 +1,58 @@
+package com.csvxml.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 字典返回已有的实例；容量固定，冲突时新值替换旧值
+ */
+class StringDictionaryTest {
+    @Test
+    void equalValuesShareOneInstance() {
+        StringDictionary dictionary = new StringDictionary(16);
+        String first = dictionary.canonical(new String("Acme"));
+        String second = dictionary.canonical(new String("Acme"));
+        assertThat(second).isSameAs(first);
+        assertThat(dictionary.canonical(new String("腾讯"))).isSameAs(dictionary.canonical(new String("腾讯")));
+    }
+
+    @Test
+    void nullAndLongValuesAreReturnedAsIs() {
+        StringDictionary dictionary = new StringDictionary(16);
+        assertThat(dictionary.canonical(null)).isNull();
+        String longValue = new String(new char[65]).replace('\0', 'x');
+        dictionary.canonical(longValue);
+        String copy = new String(longValue);
+        assertThat(dictionary.canonical(copy)).isSameAs(copy);
+        // 64个字符仍合并
+        String limit = longValue.substring(1);
+        dictionary.canonical(limit);
+        assertThat(dictionary.canonical(new String(limit))).isSameAs(limit);
+    }
+
+    @Test
+    void capacityIsBoundedAndCollisionsEvict() {
+        StringDictionary dictionary = new StringDictionary(4);
+        String[] values = new String[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dictionary.canonical("value-" + i);
+        }
+        // 4 个槽位只保留最近的值：最后放入的值仍被合并，最早的值已被替换
+        String last = new String("value-999");
+        assertThat(dictionary.canonical(last)).isSameAs(values[999]);
+        String first = new String("value-0");
+        assertThat(dictionary.canonical(first)).isSameAs(first).isNotSameAs(values[0]);
+    }
+
+    @Test
+    void evictedValueIsReplacedByNewerOne() {
+        StringDictionary dictionary = new StringDictionary(1);
+        // 容量向上取整为 2，"Aa" 与 "BB" 的哈希值相同，落在同一槽位
+        String aa = dictionary.canonical(new String("Aa"));
+        String bb = dictionary.canonical(new String("BB"));
+        assertThat(dictionary.canonical(new String("BB"))).isSameAs(bb);
+        String aaAgain = new String("Aa");
+        assertThat(dictionary.canonical(aaAgain)).isSameAs(aaAgain).isNotSameAs(aa);
+    }
+}
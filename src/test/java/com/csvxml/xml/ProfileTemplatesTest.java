@@ -0,0 +1,64 @@
+package com.csvxml.xml;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.service.DateParser;
+import com.csvxml.service.NameProcessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.w3c.dom.Document;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileTemplatesTest {
+    private final CompiledXmlTemplateProcessor xmlProcessor = new CompiledXmlTemplateProcessor();
+    private final RecordMapping mapping = new RecordMapping(new AppConfig(), new NameProcessor(), new DateParser());
+
+    @Test
+    void companyWithoutPlaceholderRendersLiteral() {
+        assertThat(renderCompany("<Company>Fixed</Company>")).isEqualTo("<Company>Fixed</Company>");
+    }
+
+    @Test
+    void extraCompanyPlaceholdersAreKept() {
+        String company = "<Company region=\"${region}\"><Name>${company}</Name><Code>${code}</Code></Company>";
+        // 与 fillPlaceholders 相同，只填充 ${company}
+        assertThat(renderCompany(company))
+            .isEqualTo("<Company region=\"${region}\"><Name>Acme</Name><Code>${code}</Code></Company>");
+    }
+
+    @Test
+    void defaultCompanyNode() {
+        ProfileTemplates templates = compile("<UserProfiles><Profile><Id>${userId}</Id></Profile></UserProfiles>");
+        XmlOutputBuffer out = new XmlOutputBuffer(64);
+        templates.renderCompany("A&B", out);
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+            .isEqualTo("<Company>A&amp;B</Company>");
+    }
+
+    @Test
+    void compiledProcessorIsPrimary() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                DefaultXmlTemplateProcessor.class, CompiledXmlTemplateProcessor.class)) {
+            assertThat(context.getBean(DefaultXmlTemplateProcessor.class)).isInstanceOf(CompiledXmlTemplateProcessor.class);
+            assertThat(context.getBean(XmlTemplateProcessor.class)).isInstanceOf(CompiledXmlTemplateProcessor.class);
+        }
+    }
+
+    private String renderCompany(String company) {
+        ProfileTemplates templates = compile("<UserProfiles>" + company + "<Profile><Id>${userId}</Id></Profile></UserProfiles>");
+        XmlOutputBuffer out = new XmlOutputBuffer(64);
+        templates.renderCompany("Acme", out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+
+    private ProfileTemplates compile(String xml) {
+        return ProfileTemplates.compile("test", parse(xml), xmlProcessor, mapping, false);
+    }
+
+    private Document parse(String xml) {
+        return xmlProcessor.loadTemplate(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "test");
+    }
+}
@@ -0,0 +1,172 @@
+package com.csvxml.xml;
+
+import com.csvxml.config.AppConfig;
+import com.csvxml.converter.RecordMapping;
+import com.csvxml.service.DateParser;
+import com.csvxml.service.NameProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 模板目录覆盖类路径模板；重新加载时无法编译的文件保留原模板，删除的文件回退到类路径模板，
+ * 已取得的模板实例不受重新加载影响
+ */
+class TemplateRegistryTest {
+    private static final String CLASSPATH_COMPANY = "<Company>Acme</Company>";
+
+    @TempDir
+    Path dir;
+
+    private final AppConfig appConfig = new AppConfig();
+    private final RecordMapping mapping = new RecordMapping(appConfig, new NameProcessor(), new DateParser());
+    private TemplateRegistry created;
+
+    @AfterEach
+    void stop() throws IOException {
+        if (created != null) {
+            created.stop();
+        }
+    }
+
+    @Test
+    void dirTemplatesOverrideClasspath() throws Exception {
+        write("profile.xml", "dir");
+        write("extra.xml", "extra");
+        write("notes.txt", "ignored");
+        TemplateRegistry registry = registry();
+
+        assertThat(company(registry.get("profile"))).isEqualTo(company("dir"));
+        assertThat(company(registry.get("extra"))).isEqualTo(company("extra"));
+        // 类路径中的其他模板仍然可用
+        assertThat(registry.get("sample").getName()).isEqualTo("sample");
+        assertThatThrownBy(() -> registry.get("notes")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void createdTemplateIsLoadedByWatcher() throws Exception {
+        TemplateRegistry registry = registry();
+        registry.start();
+        assertThatThrownBy(() -> registry.get("extra")).isInstanceOf(IllegalStateException.class);
+
+        write("extra.xml", "extra");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        ProfileTemplates loaded = null;
+        while (loaded == null && System.nanoTime() < deadline) {
+            try {
+                loaded = registry.get("extra");
+            } catch (IllegalStateException e) {
+                Thread.sleep(50);
+            }
+        }
+        assertThat(loaded).isNotNull();
+        assertThat(company(loaded)).isEqualTo(company("extra"));
+    }
+
+    @Test
+    void invalidRewriteKeepsPreviousTemplate() throws Exception {
+        write("extra.xml", "extra");
+        TemplateRegistry registry = registry();
+        ProfileTemplates previous = registry.get("extra");
+
+        Files.write(dir.resolve("extra.xml"), "<UserProfiles><Profile>".getBytes(StandardCharsets.UTF_8));
+        registry.reload();
+
+        assertThat(registry.get("extra")).isSameAs(previous);
+    }
+
+    @Test
+    void deletedTemplateFallsBackToClasspath() throws Exception {
+        write("profile.xml", "dir");
+        TemplateRegistry registry = registry();
+        assertThat(company(registry.get("profile"))).isEqualTo(company("dir"));
+
+        Files.delete(dir.resolve("profile.xml"));
+        registry.reload();
+
+        assertThat(company(registry.get("profile"))).isEqualTo(CLASSPATH_COMPANY);
+    }
+
+    @Test
+    void selectsByHeaderThenFileNameRuleThenDefault() throws Exception {
+        write("extra.xml", "extra");
+        AppConfig.Templates.Rule rule = new AppConfig.Templates.Rule();
+        rule.setPattern("orders_*.csv");
+        rule.setTemplate("extra");
+        appConfig.getTemplates().getRules().add(rule);
+        TemplateRegistry registry = registry();
+
+        // 消息头优先于文件名规则
+        assertThat(registry.select(exchange("orders_1.csv", "sample")).getName()).isEqualTo("sample");
+        assertThat(registry.select(exchange("orders_1.csv", null)).getName()).isEqualTo("extra");
+        // 规则只匹配文件名，不含目录
+        assertThat(registry.select(exchange("in/orders_2.csv", null)).getName()).isEqualTo("extra");
+        assertThat(registry.select(exchange("other.csv", null)).getName()).isEqualTo("profile");
+        assertThat(registry.select(exchange(null, null)).getName()).isEqualTo("profile");
+        assertThatThrownBy(() -> registry.select(exchange("orders_1.csv", "missing")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("missing");
+    }
+
+    @Test
+    void templatesInUseAreNotChangedByReload() throws Exception {
+        write("extra.xml", "before");
+        TemplateRegistry registry = registry();
+        // 正在转换的文件在开始时取得的模板
+        ProfileTemplates inUse = registry.get("extra");
+
+        write("extra.xml", "after");
+        registry.reload();
+
+        assertThat(company(registry.get("extra"))).isEqualTo(company("after"));
+        assertThat(registry.get("extra")).isNotSameAs(inUse);
+        assertThat(company(inUse)).isEqualTo(company("before"));
+    }
+
+    private TemplateRegistry registry() {
+        appConfig.getTemplates().setDir(dir.toString());
+        created = new TemplateRegistry(new CompiledXmlTemplateProcessor(), mapping, appConfig);
+        return created;
+    }
+
+    /**
+     * 公司节点带有 kind 属性的模板，按渲染出的公司节点区分各个模板
+     */
+    private void write(String fileName, String kind) throws IOException {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<UserProfiles><Company kind=\"" + kind
+            + "\">${company}</Company><Profile><Id>${userId}</Id></Profile></UserProfiles>";
+        // 先写临时文件再重命名，监视线程不会读到写了一半的文件
+        Path temp = Files.write(dir.resolve(fileName + ".part"), xml.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, dir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String company(String kind) {
+        return "<Company kind=\"" + kind + "\">Acme</Company>";
+    }
+
+    private static String company(ProfileTemplates templates) {
+        XmlOutputBuffer out = new XmlOutputBuffer(64);
+        templates.renderCompany("Acme", out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+
+    private static Exchange exchange(String fileName, String template) {
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setHeader(Exchange.FILE_NAME, fileName);
+        exchange.getIn().setHeader(AppConfig.TEMPLATE_HEADER, template);
+        return exchange;
+    }
+}
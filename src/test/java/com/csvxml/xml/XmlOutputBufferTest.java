@@ -0,0 +1,104 @@
+package com.csvxml.xml;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 文本与属性值的转义与原 DOM 路径（{@link DefaultXmlTemplateProcessor#documentToString}）使用的 JDK Transformer 逐个比较
+ */
+class XmlOutputBufferTest {
+    private static final String[] PIECES = {"a", "Z", " ", "  ", "&", "<", ">", "\"", "'", "\t", "\n", "\r", "\r\n",
+        "\u0001", "\u001F", "\u007F", "\u0085", "\u009F", " ", "é", "ß", "߿", "ࠀ", "张伟", "　",
+        "�", "😀", "𠀀", "\uDC00", "]]>", "&amp;", "${company}"};
+
+    private final DefaultXmlTemplateProcessor dom = new DefaultXmlTemplateProcessor();
+
+    @Test
+    void escapingMatchesTransformer() throws Exception {
+        Random random = new Random(18L);
+        List<String> values = new ArrayList<>(Arrays.asList(PIECES));
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder value = new StringBuilder();
+            for (int n = random.nextInt(6); n >= 0; n--) {
+                value.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            values.add(value.toString());
+        }
+        List<String> mismatches = new ArrayList<>();
+        for (String value : values) {
+            String expected = transform(value);
+            String actual = "<r v=\"" + XmlOutputBuffer.escapeAttribute(value) + "\">"
+                + XmlOutputBuffer.escapeText(value) + "</r>";
+            if (!expected.equals(actual)) {
+                mismatches.add(value + ": " + expected + " != " + actual);
+            }
+        }
+        assertThat(mismatches).isEmpty();
+    }
+
+    @Test
+    void unpairedHighSurrogateFailsLikeTransformer() throws Exception {
+        for (String value : Arrays.asList("a\uD800b", "\uD800\uD800\uDC00", "x\uD800\uD800")) {
+            Throwable expected = catchThrowable(() -> transform(value));
+            assertThat(expected).isNotNull();
+            assertThatThrownBy(() -> XmlOutputBuffer.escapeText(value))
+                .isExactlyInstanceOf(RuntimeException.class)
+                .hasMessage(expected.getMessage())
+                .hasRootCauseMessage(rootCause(expected).getMessage());
+            assertThatThrownBy(() -> XmlOutputBuffer.escapeAttribute(value))
+                .hasMessage(expected.getMessage())
+                .hasRootCauseMessage(rootCause(expected).getMessage());
+        }
+    }
+
+    @Test
+    void trailingHighSurrogateFails() {
+        // Transformer 把它留给下一个值：下一个值以低代理字符开头时组合输出，否则丢弃或报错
+        assertThatThrownBy(() -> XmlOutputBuffer.escapeText("a\uD800"))
+            .hasMessage("Failed to convert Document to String")
+            .hasRootCauseMessage("Invalid UTF-16 surrogate detected: d800 ?");
+    }
+
+    /**
+     * 只含一个元素的文档经原 documentToString 输出后，去掉XML声明
+     */
+    private String transform(String value) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element root = doc.createElement("r");
+        root.setAttribute("v", value);
+        root.setTextContent(value);
+        doc.appendChild(root);
+        String xml = dom.documentToString(doc);
+        return xml.substring(xml.indexOf("<r"));
+    }
+
+    private static Throwable catchThrowable(ThrowingCall call) {
+        try {
+            call.run();
+            return null;
+        } catch (Throwable t) {
+            return t;
+        }
+    }
+
+    private static Throwable rootCause(Throwable t) {
+        Throwable root = t;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root;
+    }
+
+    private interface ThrowingCall {
+        void run() throws Exception;
+    }
+}